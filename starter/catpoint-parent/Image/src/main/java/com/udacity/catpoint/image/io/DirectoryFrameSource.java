@@ -0,0 +1,37 @@
+package com.udacity.catpoint.image.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Frames from the image files in a directory, in file name order. Only the file names are held
+ * in memory; each frame is read when it is requested.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private final Iterator<Path> files;
+
+    public DirectoryFrameSource(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.{jpg,jpeg,JPG,JPEG,png,PNG}")) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        this.files = paths.iterator();
+    }
+
+    @Override
+    public byte[] nextFrame() throws IOException {
+        return files.hasNext() ? Files.readAllBytes(files.next()) : null;
+    }
+
+    @Override
+    public void close() {
+        //nothing held open between frames
+    }
+}
@@ -0,0 +1,176 @@
+package com.udacity.catpoint.image.io;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Replays recorded frames into the detection pipeline, for example into
+ * {@code securityService::processImage} or an {@link ImageService}.
+ *
+ * Frames are decoded in parallel but handed to the sink one at a time, in recorded order, on the
+ * calling thread. At most {@code maxInFlight} frames are read ahead of the sink, so memory use
+ * stays the same however long the recording is.
+ */
+public class FrameReplay {
+
+    private final Logger log = LoggerFactory.getLogger(FrameReplay.class);
+
+    private final int decodeThreads;
+    private final int maxInFlight;
+
+    /**
+     * Decodes on one thread per processor, with two frames in flight per thread.
+     */
+    public FrameReplay() {
+        this(Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public FrameReplay(int decodeThreads, int maxInFlight) {
+        if (decodeThreads < 1) {
+            throw new IllegalArgumentException("need at least one decode thread: " + decodeThreads);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("need at least one frame in flight: " + maxInFlight);
+        }
+        this.decodeThreads = decodeThreads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Outcome of a replay.
+     */
+    public static class Result {
+        private final long frames;
+        private final long skipped;
+        private final long elapsedNanos;
+
+        Result(long frames, long skipped, long elapsedNanos) {
+            this.frames = frames;
+            this.skipped = skipped;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Frames delivered to the sink.
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * Frames that could not be decoded and were left out.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getFramesPerSecond() {
+            return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames (%d skipped) in %.1f ms, %.1f frames/sec",
+                    frames, skipped, elapsedNanos / 1e6, getFramesPerSecond());
+        }
+    }
+
+    /**
+     * Reads the source to the end, delivering every decodable frame to the sink in order.
+     * The source is not closed.
+     */
+    public Result replay(FrameSource source, Consumer<BufferedImage> sink) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(decodeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "frame-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] counts = new long[2]; //delivered, skipped
+        long start = System.nanoTime();
+        try {
+            ArrayDeque<Future<BufferedImage>> window = new ArrayDeque<>(maxInFlight);
+            byte[] data;
+            while ((data = source.nextFrame()) != null) {
+                if (window.size() >= maxInFlight) {
+                    deliver(window.poll(), sink, counts);
+                }
+                byte[] frame = data;
+                window.add(executor.submit(() -> ImageIO.read(new ByteArrayInputStream(frame))));
+            }
+            while (!window.isEmpty()) {
+                deliver(window.poll(), sink, counts);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Result result = new Result(counts[0], counts[1], System.nanoTime() - start);
+        log.info("Replayed {}", result);
+        return result;
+    }
+
+    private void deliver(Future<BufferedImage> decoded, Consumer<BufferedImage> sink, long[] counts) throws IOException {
+        BufferedImage image;
+        try {
+            image = decoded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Replay interrupted");
+        } catch (ExecutionException e) {
+            log.warn("Skipping undecodable frame", e.getCause());
+            image = null;
+        }
+        if (image == null) {
+            counts[1]++;
+            return;
+        }
+        sink.accept(image);
+        counts[0]++;
+    }
+
+    /**
+     * Opens a directory of stills or an MJPEG file.
+     */
+    public static FrameSource open(Path path) throws IOException {
+        return Files.isDirectory(path) ? new DirectoryFrameSource(path) : new MjpegFrameSource(path);
+    }
+
+    /**
+     * Load test: replays a directory of stills or an MJPEG file into the fake image service and
+     * reports the frame rate. Usage: {@code FrameReplay <directory|file.mjpeg> [passes]}
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get(args.length > 0 ? args[0] : ".");
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        ImageService imageService = new FakeImageService();
+        FrameReplay replay = new FrameReplay();
+        for (int pass = 1; pass <= passes; pass++) {
+            try (FrameSource source = open(path)) {
+                Result result = replay.replay(source, image -> imageService.imageContainsCat(image, 50.0f));
+                System.out.println("pass " + pass + ": " + result);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.catpoint.image.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the most recent encoded frames of one camera so they can be saved when an incident
+ * happens.
+ *
+ * Frames are copied into fixed-size slots of a single direct buffer allocated up front, and the
+ * per-slot bookkeeping lives in primitive arrays, so ingesting frames creates no garbage however
+ * long the camera runs. Once full, each new frame replaces the oldest.
+ *
+ * {@link #writeTo} freezes the buffer and writes its frames, oldest first, with one gathering
+ * write. The file is a multipart MJPEG stream with a timestamp header per frame, which
+ * {@link MjpegFrameSource} can replay. Frames offered while the buffer is frozen are dropped.
+ */
+public class FrameRingBuffer {
+
+    private final int slotBytes;
+    private final ByteBuffer storage;
+    private final long[] timestamps;
+    private final int[] lengths;
+
+    //guarded by this
+    private int next;
+    private int size;
+    private boolean frozen;
+
+    private final LongAdder framesOffered = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+
+    public FrameRingBuffer(int slots, int slotBytes) {
+        if ((long) slots * slotBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring of " + slots + " slots of " + slotBytes + " bytes is too large");
+        }
+        this.slotBytes = slotBytes;
+        this.storage = ByteBuffer.allocateDirect(slots * slotBytes);
+        this.timestamps = new long[slots];
+        this.lengths = new int[slots];
+    }
+
+    /**
+     * Sized to hold the given duration of video at the given frame rate.
+     */
+    public static FrameRingBuffer forDuration(Duration duration, double framesPerSecond, int slotBytes) {
+        return new FrameRingBuffer((int) Math.ceil(duration.toMillis() / 1000.0 * framesPerSecond), slotBytes);
+    }
+
+    /**
+     * Stores an encoded frame, replacing the oldest if the buffer is full. Returns false if the
+     * frame was dropped because it is larger than a slot or the buffer is being written out.
+     */
+    public boolean offer(byte[] frame, int offset, int length, long timestampMillis) {
+        framesOffered.increment();
+        synchronized (this) {
+            if (length <= slotBytes && !frozen) {
+                storage.position(next * slotBytes);
+                storage.put(frame, offset, length);
+                timestamps[next] = timestampMillis;
+                lengths[next] = length;
+                next = (next + 1) % lengths.length;
+                size = Math.min(size + 1, lengths.length);
+                return true;
+            }
+        }
+        framesDropped.increment();
+        return false;
+    }
+
+    public boolean offer(byte[] frame, long timestampMillis) {
+        return offer(frame, 0, frame.length, timestampMillis);
+    }
+
+    /**
+     * Writes the buffered frames to a new file and empties the buffer. Returns the number of
+     * frames written.
+     */
+    public int writeTo(Path file) throws IOException {
+        int count;
+        int first;
+        synchronized (this) {
+            if (frozen) {
+                throw new IllegalStateException("Already writing out frames");
+            }
+            frozen = true;
+            count = size;
+            first = (next - size + lengths.length) % lengths.length;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            //frozen, so the slots can be read without holding the lock
+            ByteBuffer[] parts = new ByteBuffer[count * 2];
+            for (int i = 0; i < count; i++) {
+                int slot = (first + i) % lengths.length;
+                String header = "--frame\r\nContent-Type: image/jpeg\r\nContent-Length: " + lengths[slot]
+                        + "\r\nX-Timestamp: " + timestamps[slot] + "\r\n\r\n";
+                parts[2 * i] = ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII));
+                parts[2 * i + 1] = storage.duplicate().position(slot * slotBytes).limit(slot * slotBytes + lengths[slot]);
+            }
+            long remaining = 0;
+            for (ByteBuffer part : parts) {
+                remaining += part.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(parts);
+            }
+        } finally {
+            synchronized (this) {
+                size = 0;
+                frozen = false;
+            }
+        }
+        return count;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return lengths.length;
+    }
+
+    public long getFramesOffered() {
+        return framesOffered.sum();
+    }
+
+    /**
+     * Frames that did not fit a slot or arrived while the buffer was being written out.
+     */
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+}
@@ -0,0 +1,15 @@
+package com.udacity.catpoint.image.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential source of encoded frames, such as a recorded MJPEG file or a directory of stills.
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * Returns the next encoded frame, or null once the source is exhausted.
+     */
+    byte[] nextFrame() throws IOException;
+}
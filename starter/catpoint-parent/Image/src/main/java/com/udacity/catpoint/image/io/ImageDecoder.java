@@ -0,0 +1,258 @@
+package com.udacity.catpoint.image.io;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes image files on a background pool, decoding no more pixels than the caller needs.
+ * The header is read first. Previews then use source subsampling, so a 300px preview of a large
+ * still decodes only every n-th pixel instead of decoding everything and scaling it down.
+ * Regions can be decoded without decoding the rest of the image.
+ *
+ * Decoded images are cached by file, modification time and requested size, up to a memory budget.
+ * Callers must treat returned images as read-only because they may be shared.
+ */
+public class ImageDecoder {
+
+    private final ExecutorService executor;
+    private final long cacheBytes;
+
+    //access-ordered, so iteration starts at the least recently used entry. Guarded by itself.
+    private final LinkedHashMap<DecodeKey, CompletableFuture<BufferedImage>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Uses two decode threads and a 64MB cache.
+     */
+    public ImageDecoder() {
+        this(2, 64L * 1024 * 1024);
+    }
+
+    public ImageDecoder(int threads, long cacheBytes) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-decoder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cacheBytes = cacheBytes;
+    }
+
+    /**
+     * Size and format of an image, read from its header without decoding any pixels.
+     */
+    public static class ImageInfo {
+        private final int width;
+        private final int height;
+        private final String format;
+
+        ImageInfo(int width, int height, String format) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+    }
+
+    /**
+     * Reads the image header on the calling thread.
+     */
+    public ImageInfo readInfo(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerFor(input, file);
+            try {
+                return new ImageInfo(reader.getWidth(0), reader.getHeight(0), reader.getFormatName());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes a reduced image that is still at least {@code minWidth} by {@code minHeight} pixels
+     * (or the full image, if that is smaller).
+     */
+    public CompletableFuture<BufferedImage> decodePreview(File file, int minWidth, int minHeight) {
+        return decode(new DecodeKey(file, null, minWidth, minHeight));
+    }
+
+    /**
+     * Decodes the full resolution image, as needed for analysis.
+     */
+    public CompletableFuture<BufferedImage> decodeFull(File file) {
+        return decode(new DecodeKey(file, null, 0, 0));
+    }
+
+    /**
+     * Decodes only the given region of the image, at full resolution.
+     */
+    public CompletableFuture<BufferedImage> decodeRegion(File file, Rectangle region) {
+        return decode(new DecodeKey(file, new Rectangle(region), 0, 0));
+    }
+
+    private CompletableFuture<BufferedImage> decode(DecodeKey key) {
+        CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+        synchronized (cache) {
+            CompletableFuture<BufferedImage> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            cache.put(key, future);
+        }
+        try {
+            executor.execute(() -> complete(key, future));
+        } catch (RejectedExecutionException e) {
+            synchronized (cache) {
+                cache.remove(key);
+            }
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Decodes on a pool thread. The image's weight is counted before its future completes, since
+     * eviction takes any completed entry and subtracts its weight.
+     */
+    private void complete(DecodeKey key, CompletableFuture<BufferedImage> future) {
+        BufferedImage image;
+        try {
+            image = read(key);
+        } catch (RuntimeException e) {
+            synchronized (cache) {
+                cache.remove(key); //let the next caller try again
+            }
+            future.completeExceptionally(new CompletionException(e));
+            return;
+        }
+        synchronized (cache) {
+            cachedBytes += weight(image);
+        }
+        future.complete(image);
+        synchronized (cache) {
+            evict();
+        }
+    }
+
+    /**
+     * Drops least recently used decoded images until the cache fits its budget. Decodes still in
+     * flight are skipped.
+     */
+    private void evict() {
+        Iterator<Map.Entry<DecodeKey, CompletableFuture<BufferedImage>>> it = cache.entrySet().iterator();
+        while (cachedBytes > cacheBytes && it.hasNext()) {
+            CompletableFuture<BufferedImage> future = it.next().getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                cachedBytes -= weight(future.join());
+                it.remove();
+            }
+        }
+    }
+
+    private static long weight(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private static BufferedImage read(DecodeKey key) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(key.file)) {
+            ImageReader reader = readerFor(input, key.file);
+            try {
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (key.region != null) {
+                    param.setSourceRegion(key.region);
+                }
+                if (key.minWidth > 0 && key.minHeight > 0) {
+                    int subsampling = Math.max(1, Math.min(reader.getWidth(0) / key.minWidth, reader.getHeight(0) / key.minHeight));
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static ImageReader readerFor(ImageInputStream input, File file) throws IOException {
+        if (input == null) {
+            throw new IOException("Unable to open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Identifies a decode result. Includes the file's modification time and length, so a file
+     * that changes on disk is decoded again.
+     */
+    private static final class DecodeKey {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final Rectangle region;
+        private final int minWidth;
+        private final int minHeight;
+
+        DecodeKey(File file, Rectangle region, int minWidth, int minHeight) {
+            this.file = file.getAbsoluteFile();
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.region = region;
+            this.minWidth = minWidth;
+            this.minHeight = minHeight;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            DecodeKey that = (DecodeKey) o;
+            return lastModified == that.lastModified && length == that.length
+                    && minWidth == that.minWidth && minHeight == that.minHeight
+                    && file.equals(that.file) && Objects.equals(region, that.region);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(file, lastModified, length, region, minWidth, minHeight);
+        }
+    }
+}
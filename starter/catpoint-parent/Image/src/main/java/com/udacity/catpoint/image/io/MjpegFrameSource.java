@@ -0,0 +1,161 @@
+package com.udacity.catpoint.image.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Frames from a Motion JPEG stream: JPEG images stored back to back, optionally separated by
+ * multipart boundaries or other bytes, which are skipped.
+ *
+ * The stream is read through a fixed-size buffer, so memory use depends on the largest frame
+ * and not on the size of the file. Frames are split by walking the JPEG marker segments rather
+ * than searching for the end-of-image bytes, so EXIF thumbnails embedded in a frame do not
+ * end it early.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer readAhead;
+    private final int maxFrameBytes;
+
+    private byte[] frame;
+    private int frameLength;
+
+    /**
+     * Reads the file with a 1MB read-ahead buffer and frames of up to 32MB.
+     */
+    public MjpegFrameSource(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), 1024 * 1024, 32 * 1024 * 1024);
+    }
+
+    public MjpegFrameSource(ReadableByteChannel channel, int readAheadBytes, int maxFrameBytes) {
+        this.channel = channel;
+        this.readAhead = ByteBuffer.allocateDirect(readAheadBytes);
+        this.readAhead.flip(); //start empty
+        this.maxFrameBytes = maxFrameBytes;
+        this.frame = new byte[Math.min(64 * 1024, maxFrameBytes)];
+    }
+
+    @Override
+    public byte[] nextFrame() throws IOException {
+        //skip anything before the next start-of-image marker
+        int previous = -1;
+        int b;
+        while ((b = read()) != SOI || previous != 0xFF) {
+            if (b < 0) {
+                return null;
+            }
+            previous = b;
+        }
+        frameLength = 0;
+        append(0xFF);
+        append(SOI);
+
+        int marker = readMarker();
+        while (true) {
+            append(0xFF);
+            append(marker);
+            if (marker == EOI) {
+                return Arrays.copyOf(frame, frameLength);
+            }
+            if (isStandalone(marker)) {
+                marker = readMarker();
+                continue;
+            }
+            int high = readRequired();
+            int low = readRequired();
+            append(high);
+            append(low);
+            for (int remaining = ((high << 8) | low) - 2; remaining > 0; remaining--) {
+                append(readRequired());
+            }
+            marker = marker == SOS ? copyEntropyCodedData() : readMarker();
+        }
+    }
+
+    /**
+     * Copies scan data up to the next real marker and returns that marker. Inside scan data 0xFF
+     * is followed by 0x00 (an escaped 0xFF) or a restart marker, neither of which ends the scan.
+     */
+    private int copyEntropyCodedData() throws IOException {
+        while (true) {
+            int b = readRequired();
+            if (b != 0xFF) {
+                append(b);
+                continue;
+            }
+            int next = readRequired();
+            while (next == 0xFF) {
+                next = readRequired(); //fill bytes
+            }
+            if (next == 0x00 || (next >= 0xD0 && next <= 0xD7)) {
+                append(0xFF);
+                append(next);
+            } else {
+                return next;
+            }
+        }
+    }
+
+    private int readMarker() throws IOException {
+        if (readRequired() != 0xFF) {
+            throw new IOException("Corrupt JPEG frame: expected a marker");
+        }
+        int marker;
+        do {
+            marker = readRequired();
+        } while (marker == 0xFF);
+        return marker;
+    }
+
+    private static boolean isStandalone(int marker) {
+        return marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8);
+    }
+
+    private void append(int b) throws IOException {
+        if (frameLength == frame.length) {
+            if (frame.length >= maxFrameBytes) {
+                throw new IOException("JPEG frame larger than " + maxFrameBytes + " bytes");
+            }
+            frame = Arrays.copyOf(frame, Math.min(maxFrameBytes, frame.length * 2));
+        }
+        frame[frameLength++] = (byte) b;
+    }
+
+    private int readRequired() throws IOException {
+        int b = read();
+        if (b < 0) {
+            throw new IOException("Truncated JPEG frame");
+        }
+        return b;
+    }
+
+    private int read() throws IOException {
+        if (!readAhead.hasRemaining()) {
+            readAhead.clear();
+            int read;
+            do {
+                read = channel.read(readAhead);
+            } while (read == 0);
+            readAhead.flip();
+            if (read < 0) {
+                return -1;
+            }
+        }
+        return readAhead.get() & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,400 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClientBuilder;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image Recognition Service built on the non-blocking Rekognition client. Unlike
+ * {@link AwsImageService} a scan can never block indefinitely:
+ * <ul>
+ *     <li>requests go through a bounded connection pool</li>
+ *     <li>each scan has a deadline covering all of its attempts</li>
+ *     <li>failed attempts are retried while attempts and time remain</li>
+ *     <li>a duplicate "hedge" request is sent if the first one is slower than recent calls usually are</li>
+ *     <li>repeated failures open a {@link CircuitBreaker}, and scans go to the fallback service until it closes</li>
+ * </ul>
+ * Build instances with {@link #builder()}. Point {@link Builder#endpointOverride(URI)} at a local
+ * stub server to exercise the service without AWS.
+ */
+public class AsyncAwsImageService implements ImageService, AutoCloseable {
+
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final Logger log = LoggerFactory.getLogger(AsyncAwsImageService.class);
+
+    private final RekognitionAsyncClient rekognitionClient;
+    private final ImageService fallback;
+    private final UploadPreprocessor preprocessor;
+    private final CircuitBreaker circuitBreaker;
+    private final ScheduledExecutorService scheduler;
+    private final long callTimeoutNanos;
+    private final long minHedgeDelayNanos;
+    private final long retryBackoffNanos;
+    private final int maxAttempts;
+
+    //ring of recent successful call latencies, used to pick the hedge delay
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private AsyncAwsImageService(Builder builder) {
+        this.fallback = builder.fallback;
+        this.preprocessor = builder.preprocessor;
+        this.circuitBreaker = new CircuitBreaker(builder.failureThreshold, builder.openDuration);
+        this.callTimeoutNanos = builder.callTimeout.toNanos();
+        this.minHedgeDelayNanos = builder.minHedgeDelay.toNanos();
+        this.retryBackoffNanos = builder.retryBackoff.toNanos();
+        this.maxAttempts = builder.maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rekognition-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        RekognitionAsyncClientBuilder clientBuilder = RekognitionAsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(builder.awsId, builder.awsSecret)))
+                .region(Region.of(builder.region))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(builder.maxConnections)
+                        .maxPendingConnectionAcquires(builder.maxPendingRequests)
+                        .connectionAcquisitionTimeout(builder.callTimeout))
+                //retries and deadlines are handled here so they can share one budget per scan
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(RetryPolicy.none())
+                        .apiCallTimeout(builder.callTimeout)
+                        .build());
+        if (builder.endpointOverride != null) {
+            clientBuilder.endpointOverride(builder.endpointOverride);
+        }
+        this.rekognitionClient = clientBuilder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns true if the provided image contains a cat. Falls back to the configured fallback
+     * service when the circuit is open or Rekognition does not answer in time.
+     * @param image Image to scan
+     * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Returns every label Rekognition finds with at least 20% confidence, or the fallback
+     * service's result when Rekognition is unavailable.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        return detect(image, AwsImageService.DETECT_MIN_CONFIDENCE);
+    }
+
+    private DetectionResult detect(BufferedImage image, float minConfidence) {
+        //while the circuit is open, frames go to the fallback without being encoded for nothing
+        if (!circuitBreaker.allowRequest()) {
+            fallbacks.increment();
+            return fallback.detect(image);
+        }
+
+        Image awsImage;
+        try {
+            awsImage = Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(preprocessor.encode(image))).build();
+        } catch (IOException ioe) {
+            circuitBreaker.release();
+            log.error("Error building image byte array", ioe);
+            return DetectionResult.empty();
+        }
+
+        DetectLabelsRequest request = DetectLabelsRequest.builder().image(awsImage).minConfidence(minConfidence).build();
+        try {
+            DetectLabelsResponse response = detectLabels(request);
+            circuitBreaker.recordSuccess();
+            return AwsImageService.toResult(response);
+        } catch (TimeoutException e) {
+            circuitBreaker.recordFailure();
+            log.warn("Rekognition call timed out, using fallback image service", e);
+        } catch (ExecutionException e) {
+            //a request Rekognition rejected as invalid says nothing about whether it is up
+            if (isClientError(e.getCause())) {
+                circuitBreaker.release();
+            } else {
+                circuitBreaker.recordFailure();
+            }
+            log.warn("Rekognition call failed, using fallback image service", e);
+        } catch (InterruptedException ie) {
+            circuitBreaker.release();
+            Thread.currentThread().interrupt();
+        }
+        fallbacks.increment();
+        return fallback.detect(image);
+    }
+
+    /**
+     * Runs hedged attempts until one succeeds, the attempts are used up, a non-retryable error
+     * comes back or the deadline passes.
+     */
+    private DetectLabelsResponse detectLabels(DetectLabelsRequest request)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        long deadline = System.nanoTime() + callTimeoutNanos;
+        for (int attempt = 1; ; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException("Rekognition deadline exceeded after " + (attempt - 1) + " attempts");
+            }
+            long start = System.nanoTime();
+            CompletableFuture<DetectLabelsResponse> call = hedgedCall(request);
+            try {
+                DetectLabelsResponse response = call.get(remaining, TimeUnit.NANOSECONDS);
+                recordLatency(System.nanoTime() - start);
+                return response;
+            } catch (TimeoutException te) {
+                call.cancel(true);
+                throw te;
+            } catch (ExecutionException ee) {
+                long backoff = retryBackoffNanos << (attempt - 1);
+                if (attempt >= maxAttempts || !isRetryable(ee.getCause()) || deadline - System.nanoTime() <= backoff) {
+                    throw ee;
+                }
+                retries.increment();
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Sends the request, and sends it a second time if no answer has arrived by the hedge delay.
+     * The first successful answer wins and the other call is cancelled. The result only fails
+     * once every call that was sent has failed.
+     */
+    private CompletableFuture<DetectLabelsResponse> hedgedCall(DetectLabelsRequest request) {
+        CompletableFuture<DetectLabelsResponse> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        CompletableFuture<DetectLabelsResponse> primary = rekognitionClient.detectLabels(request);
+        CompletableFuture<?>[] hedge = new CompletableFuture<?>[1];
+
+        primary.whenComplete((response, error) -> complete(result, outstanding, response, error));
+        ScheduledFuture<?> hedgeTimer = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            hedgesSent.increment();
+            CompletableFuture<DetectLabelsResponse> secondary = rekognitionClient.detectLabels(request);
+            hedge[0] = secondary;
+            secondary.whenComplete((response, error) -> complete(result, outstanding, response, error));
+        }, hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+
+        result.whenComplete((response, error) -> {
+            hedgeTimer.cancel(false);
+            primary.cancel(true);
+            if (hedge[0] != null) {
+                hedge[0].cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static void complete(CompletableFuture<DetectLabelsResponse> result, AtomicInteger outstanding,
+                                 DetectLabelsResponse response, Throwable error) {
+        if (error == null) {
+            result.complete(response);
+        } else if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+        }
+    }
+
+    private static boolean isClientError(Throwable error) {
+        if (!(error instanceof SdkServiceException)) {
+            return false;
+        }
+        SdkServiceException serviceException = (SdkServiceException) error;
+        return serviceException.statusCode() >= 400 && serviceException.statusCode() < 500
+                && !serviceException.isThrottlingException();
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof SdkServiceException) {
+            SdkServiceException serviceException = (SdkServiceException) error;
+            return serviceException.statusCode() >= 500 || serviceException.isThrottlingException();
+        }
+        return error instanceof SdkClientException || error instanceof IOException;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[latencyCount++ % LATENCY_SAMPLES] = nanos;
+    }
+
+    /**
+     * Hedge once a call has taken longer than 95% of recent calls, but never sooner than the
+     * configured minimum.
+     */
+    private synchronized long hedgeDelayNanos() {
+        int samples = Math.min(latencyCount, LATENCY_SAMPLES);
+        if (samples < 20) {
+            return Math.max(minHedgeDelayNanos, callTimeoutNanos / 2);
+        }
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return Math.max(minHedgeDelayNanos, sorted[(int) (samples * 0.95)]);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        rekognitionClient.close();
+    }
+
+    /**
+     * Settings for {@link AsyncAwsImageService}. Only the credentials are required; everything
+     * else has a default suitable for a single home installation.
+     */
+    public static class Builder {
+        private String awsId;
+        private String awsSecret;
+        private String region = "us-east-2";
+        private URI endpointOverride;
+        private int maxConnections = 16;
+        private int maxPendingRequests = 64;
+        private Duration callTimeout = Duration.ofSeconds(5);
+        private Duration minHedgeDelay = Duration.ofMillis(250);
+        private Duration retryBackoff = Duration.ofMillis(100);
+        private int maxAttempts = 3;
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private ImageService fallback = (image, confidenceThreshhold) -> false;
+        private UploadPreprocessor preprocessor = new UploadPreprocessor();
+
+        private Builder() {
+        }
+
+        public Builder credentials(String awsId, String awsSecret) {
+            this.awsId = awsId;
+            this.awsSecret = awsSecret;
+            return this;
+        }
+
+        public Builder region(String region) {
+            this.region = region;
+            return this;
+        }
+
+        /**
+         * Sends requests to the given endpoint instead of the regional AWS endpoint.
+         */
+        public Builder endpointOverride(URI endpointOverride) {
+            this.endpointOverride = endpointOverride;
+            return this;
+        }
+
+        /**
+         * Maximum number of open connections, and of requests allowed to wait for one.
+         */
+        public Builder connectionPool(int maxConnections, int maxPendingRequests) {
+            this.maxConnections = maxConnections;
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * Deadline for one scan, covering every attempt and hedge made for it.
+         */
+        public Builder callTimeout(Duration callTimeout) {
+            this.callTimeout = callTimeout;
+            return this;
+        }
+
+        /**
+         * Shortest time to wait before sending a hedge request. The actual delay follows the
+         * 95th percentile of recent call latencies.
+         */
+        public Builder minHedgeDelay(Duration minHedgeDelay) {
+            this.minHedgeDelay = minHedgeDelay;
+            return this;
+        }
+
+        /**
+         * Attempts per scan and the backoff before the first retry, doubling on each retry after.
+         */
+        public Builder retries(int maxAttempts, Duration retryBackoff) {
+            this.maxAttempts = maxAttempts;
+            this.retryBackoff = retryBackoff;
+            return this;
+        }
+
+        /**
+         * Failed scans in a row that open the circuit, and how long it stays open.
+         */
+        public Builder circuitBreaker(int failureThreshold, Duration openDuration) {
+            this.failureThreshold = failureThreshold;
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Service that answers scans while Rekognition is unavailable. Defaults to "no cat".
+         */
+        public Builder fallback(ImageService fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Downscales and encodes images before they are uploaded.
+         */
+        public Builder preprocessor(UploadPreprocessor preprocessor) {
+            this.preprocessor = preprocessor;
+            return this;
+        }
+
+        public AsyncAwsImageService build() {
+            return new AsyncAwsImageService(this);
+        }
+    }
+}
@@ -12,12 +12,13 @@ import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -37,16 +38,51 @@ public class AwsImageService implements ImageService{
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
+    //labels below this are not worth keeping for later threshold checks
+    static final float DETECT_MIN_CONFIDENCE = 20.0f;
+
     //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    private static volatile CompletableFuture<RekognitionClient> rekognitionClient;
+
+    private final UploadPreprocessor preprocessor;
 
+    /**
+     * Starts building the shared Rekognition client in the background and returns immediately,
+     * so constructing the service does not hold up application startup. Use {@link #ready()} to
+     * wait for the client; scans issued before then wait for it on their own.
+     */
     public AwsImageService() {
+        this(new UploadPreprocessor());
+    }
+
+    /**
+     * @param preprocessor Downscales and encodes images before they are uploaded
+     */
+    public AwsImageService(UploadPreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+        initializeClient();
+    }
+
+    private static synchronized void initializeClient() {
+        if (rekognitionClient == null || rekognitionClient.isCompletedExceptionally()) {
+            rekognitionClient = CompletableFuture.supplyAsync(AwsImageService::buildClient, runnable -> {
+                Thread thread = new Thread(runnable, "rekognition-init");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+    }
+
+    private static RekognitionClient buildClient() {
         Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+        try (InputStream is = AwsImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                throw new IOException("config.properties not found on the classpath");
+            }
             props.load(is);
         } catch (IOException ioe ) {
-            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
-            return;
+            LoggerFactory.getLogger(AwsImageService.class).error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+            throw new UncheckedIOException(ioe);
         }
 
         String awsId = props.getProperty("aws.id");
@@ -54,12 +90,19 @@ public class AwsImageService implements ImageService{
         String awsRegion = props.getProperty("aws.region");
 
         AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
+        return RekognitionClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
                 .build();
     }
 
+    /**
+     * Completes once the Rekognition client has been built, or exceptionally if it could not be.
+     */
+    public CompletableFuture<Void> ready() {
+        return rekognitionClient.thenApply(client -> null);
+    }
+
     /**
      * Returns true if the provided image contains a cat.
      * @param image Image to scan
@@ -67,23 +110,43 @@ public class AwsImageService implements ImageService{
      * @return
      */
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Returns every label Rekognition finds with at least {@value #DETECT_MIN_CONFIDENCE}% confidence,
+     * or an empty result if the image could not be scanned.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        return detect(image, DETECT_MIN_CONFIDENCE);
+    }
+
+    private DetectionResult detect(BufferedImage image, float minConfidence) {
         Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        try {
+            awsImage = Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(preprocessor.encode(image))).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return DetectionResult.empty();
+        }
+        RekognitionClient client;
+        try {
+            client = rekognitionClient.join();
+        } catch (CompletionException ce) {
+            log.error("AWS Rekognition is not available", ce.getCause());
+            return DetectionResult.empty();
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
-        logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(minConfidence).build();
+        DetectLabelsResponse response = client.detectLabels(detectLabelsRequest);
+        DetectionResult result = toResult(response);
+        log.info("{}", result);
+        return result;
     }
 
-    private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
-                .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
-                .collect(Collectors.joining(", ")));
+    static DetectionResult toResult(DetectLabelsResponse response) {
+        return DetectionResult.of(response.labels().stream()
+                .map(label -> new DetectionResult.Label(label.name(), label.confidence()))
+                .collect(Collectors.toList()));
     }
 }
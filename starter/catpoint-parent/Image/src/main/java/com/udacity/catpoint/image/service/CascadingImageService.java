@@ -0,0 +1,146 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-stage {@link ImageService}. A cheap local {@link ImageScorer} looks at every image first.
+ * Images the scorer remembers get the result the remote service gave for them, confident scores
+ * are answered on the spot, and only images scoring between the bands are sent on to the remote
+ * service, whose result is fed back to the scorer.
+ *
+ * With bands of 0.2 and 0.8, an image scoring 0.1 is a confident no, 0.9 a confident yes and
+ * 0.5 goes to the remote service.
+ */
+public class CascadingImageService implements ImageService {
+
+    private static final DetectionResult LOCAL_CAT = DetectionResult.of(List.of(new DetectionResult.Label("Cat", 100.0f)));
+
+    private final ImageScorer scorer;
+    private final ImageService remote;
+    private final float rejectBelow;
+    private final float acceptAbove;
+
+    private final LongAdder localRejects = new LongAdder();
+    private final LongAdder localAccepts = new LongAdder();
+    private final LongAdder localRecalls = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+    private final LongAdder localNanos = new LongAdder();
+    private final LongAdder remoteNanos = new LongAdder();
+
+    /**
+     * Uses bands of 0.2 and 0.8.
+     */
+    public CascadingImageService(ImageScorer scorer, ImageService remote) {
+        this(scorer, remote, 0.2f, 0.8f);
+    }
+
+    /**
+     * @param rejectBelow scores below this are answered "no cat" without escalating
+     * @param acceptAbove scores above this are answered "cat" without escalating
+     */
+    public CascadingImageService(ImageScorer scorer, ImageService remote, float rejectBelow, float acceptAbove) {
+        if (rejectBelow > acceptAbove) {
+            throw new IllegalArgumentException("rejectBelow " + rejectBelow + " is above acceptAbove " + acceptAbove);
+        }
+        this.scorer = scorer;
+        this.remote = remote;
+        this.rejectBelow = rejectBelow;
+        this.acceptAbove = acceptAbove;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Images answered from a confident score have no labels from the remote service: a confident
+     * no is an empty result and a confident yes is a "Cat" label at full confidence.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        DetectionResult local = screen(image);
+        if (local != null) {
+            return local;
+        }
+        long start = System.nanoTime();
+        DetectionResult result = remote.detect(image);
+        remoteNanos.add(System.nanoTime() - start);
+        scorer.learn(image, result);
+        return result;
+    }
+
+    /**
+     * Returns the local answer, or null if the image has to be escalated.
+     */
+    private DetectionResult screen(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("No image to screen");
+        }
+        long start = System.nanoTime();
+        try {
+            DetectionResult remembered = scorer.recall(image);
+            if (remembered != null) {
+                localRecalls.increment();
+                return remembered;
+            }
+            float score = scorer.scoreUnrecalled(image);
+            if (score < rejectBelow) {
+                localRejects.increment();
+                return DetectionResult.empty();
+            }
+            if (score > acceptAbove) {
+                localAccepts.increment();
+                return LOCAL_CAT;
+            }
+        } finally {
+            localNanos.add(System.nanoTime() - start);
+        }
+        escalations.increment();
+        return null;
+    }
+
+    public long getLocalRejects() {
+        return localRejects.sum();
+    }
+
+    public long getLocalAccepts() {
+        return localAccepts.sum();
+    }
+
+    /**
+     * Images answered with a result the scorer remembered from the remote service.
+     */
+    public long getLocalRecalls() {
+        return localRecalls.sum();
+    }
+
+    public long getEscalations() {
+        return escalations.sum();
+    }
+
+    /**
+     * Fraction of images sent to the remote service.
+     */
+    public double getEscalationRate() {
+        long escalated = escalations.sum();
+        long total = escalated + localRejects.sum() + localAccepts.sum() + localRecalls.sum();
+        return total == 0 ? 0 : (double) escalated / total;
+    }
+
+    /**
+     * Total time spent in the local scorer.
+     */
+    public long getLocalNanos() {
+        return localNanos.sum();
+    }
+
+    /**
+     * Total time spent waiting for the remote service.
+     */
+    public long getRemoteNanos() {
+        return remoteNanos.sum();
+    }
+}
@@ -0,0 +1,135 @@
+package com.udacity.catpoint.image.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Everything a recognition service found in an image: each label with its confidence, in
+ * percent. Keeping the labels rather than a yes/no answer means the same result can be checked
+ * against any threshold or label later, and cached or stored, without scanning the image again.
+ *
+ * Results only contain labels the service reported, so thresholds below the one the scan was
+ * made with may miss labels. Immutable.
+ */
+public final class DetectionResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final DetectionResult EMPTY = new DetectionResult(Collections.emptyList());
+
+    private final List<Label> labels;
+
+    private DetectionResult(List<Label> labels) {
+        this.labels = labels;
+    }
+
+    public static DetectionResult of(List<Label> labels) {
+        return labels.isEmpty() ? EMPTY : new DetectionResult(Collections.unmodifiableList(new ArrayList<>(labels)));
+    }
+
+    /**
+     * A result with no labels, as returned when nothing was recognised.
+     */
+    public static DetectionResult empty() {
+        return EMPTY;
+    }
+
+    public List<Label> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Highest confidence reported for the label, ignoring case, or 0 if it was not reported.
+     */
+    public float confidence(String name) {
+        float best = 0;
+        for (Label label : labels) {
+            if (label.getName().equalsIgnoreCase(name)) {
+                best = Math.max(best, label.getConfidence());
+            }
+        }
+        return best;
+    }
+
+    /**
+     * True if the label was reported with at least the given confidence.
+     */
+    public boolean contains(String name, float confidenceThreshhold) {
+        return confidence(name) >= confidenceThreshhold;
+    }
+
+    /**
+     * True if any label naming a cat was reported with at least the given confidence. Like the
+     * original check, any label containing "cat" counts, so "Cat" and "Wildcat" both match.
+     */
+    public boolean containsCat(float confidenceThreshhold) {
+        for (Label label : labels) {
+            if (label.getConfidence() >= confidenceThreshhold && label.getName().toLowerCase(Locale.ROOT).contains("cat")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return labels.equals(((DetectionResult) o).labels);
+    }
+
+    @Override
+    public int hashCode() {
+        return labels.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return labels.toString();
+    }
+
+    /**
+     * A recognised label and the service's confidence in it, from 0 to 100.
+     */
+    public static final class Label implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final float confidence;
+
+        public Label(String name, float confidence) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.confidence = confidence;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Label label = (Label) o;
+            return Float.compare(label.confidence, confidence) == 0 && name.equals(label.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, confidence);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%.1f%%)", name, confidence);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Image preprocessing kernels that work directly on pixel arrays: packed RGB ints
+ * ({@code 0xRRGGBB}, row-major) and 8-bit gray planes. Resizing, frame differencing and
+ * histograms run several times faster than the same work done through AWT, which goes through
+ * a color model for every pixel. AWT's native loop still converts to gray faster, but it yields
+ * an image rather than the plain array the other kernels need (see ImageKernelsBenchmark).
+ *
+ * Inner loops are written so HotSpot's superword pass can vectorize them: straight-line
+ * arithmetic over arrays, no calls, no branches, and index tables computed outside the loop.
+ * Callers pass in the output arrays, so processing a camera feed allocates no per-frame
+ * buffers, only small per-call tables.
+ */
+public final class ImageKernels {
+
+    //integer Rec. 601 luma weights, summing to 256
+    private static final int RED_WEIGHT = 77;
+    private static final int GREEN_WEIGHT = 150;
+    private static final int BLUE_WEIGHT = 29;
+
+    private ImageKernels() {
+    }
+
+    /**
+     * The image's pixels as packed RGB. For plain INT_RGB and INT_ARGB images this is the
+     * image's own array, so writes show up in the image; anything else is converted into a new
+     * array with one bulk read.
+     */
+    public static int[] pixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            DataBufferInt data = (DataBufferInt) image.getRaster().getDataBuffer();
+            if (data.getNumBanks() == 1 && data.getOffset() == 0 && data.getSize() == width * height) {
+                return data.getData();
+            }
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /**
+     * Luma of one packed RGB pixel, 0 to 255.
+     */
+    public static int luma(int rgb) {
+        return (((rgb >> 16) & 0xFF) * RED_WEIGHT + ((rgb >> 8) & 0xFF) * GREEN_WEIGHT + (rgb & 0xFF) * BLUE_WEIGHT) >> 8;
+    }
+
+    /**
+     * Converts {@code count} RGB pixels to a gray plane.
+     */
+    public static void grayscale(int[] rgb, byte[] gray, int count) {
+        for (int i = 0; i < count; i++) {
+            int p = rgb[i];
+            gray[i] = (byte) ((((p >> 16) & 0xFF) * RED_WEIGHT + ((p >> 8) & 0xFF) * GREEN_WEIGHT + (p & 0xFF) * BLUE_WEIGHT) >> 8);
+        }
+    }
+
+    /**
+     * Halves both dimensions of an RGB image, averaging each 2x2 block of source pixels into one
+     * pixel. {@code dst} must hold {@code (width / 2) * (height / 2)} pixels; an odd last row or
+     * column is dropped.
+     */
+    public static void halve(int[] src, int width, int height, int[] dst) {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        for (int y = 0; y < halfHeight; y++) {
+            int row0 = 2 * y * width;
+            int row1 = row0 + width;
+            int out = y * halfWidth;
+            for (int x = 0; x < halfWidth; x++) {
+                int a = src[row0 + 2 * x];
+                int b = src[row0 + 2 * x + 1];
+                int c = src[row1 + 2 * x];
+                int d = src[row1 + 2 * x + 1];
+                //average the red+blue and green channels in parallel, two channels per operation
+                int rb = ((a & 0xff00ff) + (b & 0xff00ff) + (c & 0xff00ff) + (d & 0xff00ff) + 0x020002) >>> 2;
+                int g = ((a & 0x00ff00) + (b & 0x00ff00) + (c & 0x00ff00) + (d & 0x00ff00) + 0x000200) >>> 2;
+                dst[out + x] = (rb & 0xff00ff) | (g & 0x00ff00);
+            }
+        }
+    }
+
+    /**
+     * Shrinks a gray plane by an integer factor, averaging each factor x factor block. {@code dst}
+     * must hold {@code (width / factor) * (height / factor)} values.
+     */
+    public static void boxDownscale(byte[] src, int width, int height, int factor, byte[] dst) {
+        int outWidth = width / factor;
+        int outHeight = height / factor;
+        int area = factor * factor;
+        int[] sums = new int[outWidth];
+        for (int y = 0; y < outHeight; y++) {
+            Arrays.fill(sums, 0);
+            for (int sy = 0; sy < factor; sy++) {
+                int row = (y * factor + sy) * width;
+                for (int sx = 0; sx < factor; sx++) {
+                    //one pass per column offset keeps the inner loop a plain strided add
+                    for (int x = 0; x < outWidth; x++) {
+                        sums[x] += src[row + x * factor + sx] & 0xFF;
+                    }
+                }
+            }
+            int out = y * outWidth;
+            for (int x = 0; x < outWidth; x++) {
+                dst[out + x] = (byte) ((sums[x] + area / 2) / area);
+            }
+        }
+    }
+
+    /**
+     * Resizes an RGB image with bilinear interpolation, sampling at pixel centres. Best for
+     * factors under two; for more, {@link #halve} first so no source pixel is skipped.
+     */
+    public static void bilinear(int[] src, int width, int height, int[] dst, int dstWidth, int dstHeight) {
+        //per-column source index and 8-bit weight, shared by every row
+        int[] x0 = new int[dstWidth];
+        int[] x1 = new int[dstWidth];
+        int[] wx = new int[dstWidth];
+        for (int x = 0; x < dstWidth; x++) {
+            long fixed = Math.max(0, ((2L * x + 1) * width * 256) / (2L * dstWidth) - 128);
+            x0[x] = (int) Math.min(fixed >> 8, width - 1);
+            x1[x] = Math.min(x0[x] + 1, width - 1);
+            wx[x] = (int) (fixed & 0xFF);
+        }
+        for (int y = 0; y < dstHeight; y++) {
+            long fixed = Math.max(0, ((2L * y + 1) * height * 256) / (2L * dstHeight) - 128);
+            int row0 = (int) Math.min(fixed >> 8, height - 1) * width;
+            int row1 = Math.min(row0 / width + 1, height - 1) * width;
+            int wy = (int) (fixed & 0xFF);
+            int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                int a = src[row0 + x0[x]];
+                int b = src[row0 + x1[x]];
+                int c = src[row1 + x0[x]];
+                int d = src[row1 + x1[x]];
+                int w = wx[x];
+                //blend red+blue and green in parallel; 8-bit weights leave room in each lane
+                int topRb = ((a & 0xff00ff) * (256 - w) + (b & 0xff00ff) * w) >>> 8;
+                int topG = ((a & 0x00ff00) * (256 - w) + (b & 0x00ff00) * w) >>> 8;
+                int bottomRb = ((c & 0xff00ff) * (256 - w) + (d & 0xff00ff) * w) >>> 8;
+                int bottomG = ((c & 0x00ff00) * (256 - w) + (d & 0x00ff00) * w) >>> 8;
+                int rb = (((topRb & 0xff00ff) * (256 - wy) + (bottomRb & 0xff00ff) * wy) >>> 8) & 0xff00ff;
+                int g = (((topG & 0x00ff00) * (256 - wy) + (bottomG & 0x00ff00) * wy) >>> 8) & 0x00ff00;
+                dst[out + x] = rb | g;
+            }
+        }
+    }
+
+    /**
+     * Compares two gray frames. Writes 0xFF to {@code mask} where the pixels differ by more than
+     * the threshold and 0 elsewhere, and returns how many did. {@code mask} may be null.
+     */
+    public static int difference(byte[] previous, byte[] current, int threshold, byte[] mask, int count) {
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = Math.abs((previous[i] & 0xFF) - (current[i] & 0xFF));
+            //(threshold - delta) >> 31 is -1 exactly when delta > threshold
+            int moved = (threshold - delta) >> 31;
+            changed -= moved;
+            if (mask != null) {
+                mask[i] = (byte) moved;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Sum of absolute differences between two gray frames.
+     */
+    public static long sumOfAbsoluteDifferences(byte[] a, byte[] b, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        return sum;
+    }
+
+    /**
+     * Counts each gray level into {@code bins}, which must have 256 entries and is cleared first.
+     * Consecutive pixels usually have the same level, so counts go to four separate tables in
+     * turn, letting the increments proceed without waiting on each other.
+     */
+    public static void histogram(byte[] gray, int count, int[] bins) {
+        int[] h0 = new int[256];
+        int[] h1 = new int[256];
+        int[] h2 = new int[256];
+        int[] h3 = new int[256];
+        int i = 0;
+        for (; i + 3 < count; i += 4) {
+            h0[gray[i] & 0xFF]++;
+            h1[gray[i + 1] & 0xFF]++;
+            h2[gray[i + 2] & 0xFF]++;
+            h3[gray[i + 3] & 0xFF]++;
+        }
+        for (; i < count; i++) {
+            h0[gray[i] & 0xFF]++;
+        }
+        for (int level = 0; level < 256; level++) {
+            bins[level] = h0[level] + h1[level] + h2[level] + h3[level];
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Fast local estimate of whether an image shows a cat, used to decide which images are worth
+ * sending to a slower, more accurate {@link ImageService}.
+ */
+public interface ImageScorer {
+
+    /**
+     * Returns the likelihood that the image shows a cat, from 0 (certainly not) to 1 (certainly).
+     * Scores near the middle mean the scorer cannot tell.
+     */
+    float score(BufferedImage image);
+
+    /**
+     * Returns the same as {@link #score}, for an image {@link #recall} has just found no match for.
+     * Scorers that only know what they remember can answer without looking at the image again.
+     */
+    default float scoreUnrecalled(BufferedImage image) {
+        return score(image);
+    }
+
+    /**
+     * Returns what the accurate service found in an image the scorer considers the same as this
+     * one, or null if it remembers none. Scorers that do not learn never remember anything.
+     */
+    default DetectionResult recall(BufferedImage image) {
+        return null;
+    }
+
+    /**
+     * Tells the scorer what the accurate service found in an image it could not decide.
+     * Scorers that do not learn can ignore it.
+     */
+    default void learn(BufferedImage image, DetectionResult result) {
+    }
+}
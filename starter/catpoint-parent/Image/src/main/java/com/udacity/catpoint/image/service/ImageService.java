@@ -1,7 +1,19 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
+
+    /**
+     * Returns every label found in the image, so the result can be checked against any
+     * threshold later without scanning again. Services that can only answer yes or no report a
+     * "Cat" label at full confidence when they see a cat at the default threshold of 50.
+     */
+    default DetectionResult detect(BufferedImage image) {
+        return imageContainsCat(image, 50.0f)
+                ? DetectionResult.of(List.of(new DetectionResult.Label("Cat", 100.0f)))
+                : DetectionResult.empty();
+    }
 }
@@ -0,0 +1,137 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+
+/**
+ * The parts of a camera's view worth analyzing, such as a yard without the street beyond it.
+ * Regions are fractions of the frame, from 0 to 1, so the same configuration works at any
+ * resolution.
+ *
+ * A single region is cut out with {@link BufferedImage#getSubimage}, which shares the pixels of
+ * the frame instead of copying them. With several regions, the box around them is copied and
+ * everything outside the regions is blacked out. Immutable.
+ */
+public final class RegionOfInterest {
+
+    /**
+     * The whole frame; applying it returns the frame unchanged.
+     */
+    public static final RegionOfInterest FULL_FRAME = new RegionOfInterest(Collections.emptyList());
+
+    private final List<Rectangle2D.Double> regions;
+
+    private RegionOfInterest(List<Rectangle2D.Double> regions) {
+        this.regions = regions;
+    }
+
+    public static RegionOfInterest of(Rectangle2D... regions) {
+        List<Rectangle2D.Double> copies = new ArrayList<>();
+        for (Rectangle2D region : regions) {
+            if (region.getMinX() < 0 || region.getMinY() < 0 || region.getMaxX() > 1 || region.getMaxY() > 1
+                    || region.getWidth() <= 0 || region.getHeight() <= 0) {
+                throw new IllegalArgumentException("Region must lie within the unit square: " + region);
+            }
+            copies.add(new Rectangle2D.Double(region.getX(), region.getY(), region.getWidth(), region.getHeight()));
+        }
+        return copies.isEmpty() ? FULL_FRAME : new RegionOfInterest(Collections.unmodifiableList(copies));
+    }
+
+    /**
+     * Parses regions written as {@code x,y,width,height} fractions separated by semicolons, for
+     * example {@code 0,0.5,1,0.5} for the bottom half. A blank string is the full frame.
+     */
+    public static RegionOfInterest parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return FULL_FRAME;
+        }
+        List<Rectangle2D> regions = new ArrayList<>();
+        for (String part : spec.split(";")) {
+            String[] values = part.trim().split("\\s*,\\s*");
+            if (values.length != 4) {
+                throw new IllegalArgumentException("Expected x,y,width,height but got '" + part + "'");
+            }
+            regions.add(new Rectangle2D.Double(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                    Double.parseDouble(values[2]), Double.parseDouble(values[3])));
+        }
+        return of(regions.toArray(new Rectangle2D[0]));
+    }
+
+    /**
+     * Reads the regions of every camera configured as {@code camera.<id>.roi=<regions>}, keyed
+     * by camera id.
+     */
+    public static Map<String, RegionOfInterest> fromProperties(Properties properties) {
+        Map<String, RegionOfInterest> cameras = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("camera.") && key.endsWith(".roi")) {
+                cameras.put(key.substring(7, key.length() - 4), parse(properties.getProperty(key)));
+            }
+        }
+        return cameras;
+    }
+
+    public boolean isFullFrame() {
+        return regions.isEmpty();
+    }
+
+    /**
+     * Returns the part of the image to analyze.
+     */
+    public BufferedImage apply(BufferedImage image) {
+        if (regions.isEmpty()) {
+            return image;
+        }
+        Rectangle bounds = null;
+        List<Rectangle> pixelRegions = new ArrayList<>(regions.size());
+        for (Rectangle2D.Double region : regions) {
+            Rectangle pixels = toPixels(region, image.getWidth(), image.getHeight());
+            pixelRegions.add(pixels);
+            bounds = bounds == null ? pixels : bounds.union(pixels);
+        }
+        if (pixelRegions.size() == 1) {
+            return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+        }
+
+        BufferedImage masked = new BufferedImage(bounds.width, bounds.height,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = masked.createGraphics();
+        for (Rectangle pixels : pixelRegions) {
+            g.drawImage(image.getSubimage(pixels.x, pixels.y, pixels.width, pixels.height),
+                    pixels.x - bounds.x, pixels.y - bounds.y, null);
+        }
+        g.dispose();
+        return masked;
+    }
+
+    /**
+     * The region in pixels, at least one pixel in each direction and within the image.
+     */
+    private static Rectangle toPixels(Rectangle2D.Double region, int width, int height) {
+        int x = Math.min(width - 1, (int) Math.floor(region.x * width));
+        int y = Math.min(height - 1, (int) Math.floor(region.y * height));
+        int maxX = Math.max(x + 1, Math.min(width, (int) Math.ceil(region.getMaxX() * width)));
+        int maxY = Math.max(y + 1, Math.min(height, (int) Math.ceil(region.getMaxY() * height)));
+        return new Rectangle(x, y, maxX - x, maxY - y);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return regions.equals(((RegionOfInterest) o).regions);
+    }
+
+    @Override
+    public int hashCode() {
+        return regions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return regions.isEmpty() ? "full frame" : regions.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends only a camera's {@link RegionOfInterest} to the wrapped service, so preprocessing,
+ * upload and recognition work on fewer pixels, and movement outside the region cannot raise an
+ * alarm. Use one instance per camera.
+ */
+public class RegionOfInterestImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final RegionOfInterest region;
+
+    private final LongAdder pixelsReceived = new LongAdder();
+    private final LongAdder pixelsAnalyzed = new LongAdder();
+
+    public RegionOfInterestImageService(ImageService delegate, RegionOfInterest region) {
+        this.delegate = delegate;
+        this.region = region;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return delegate.imageContainsCat(crop(image), confidenceThreshhold);
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        return delegate.detect(crop(image));
+    }
+
+    private BufferedImage crop(BufferedImage image) {
+        if (image == null) {
+            return null;
+        }
+        BufferedImage cropped = region.apply(image);
+        pixelsReceived.add((long) image.getWidth() * image.getHeight());
+        pixelsAnalyzed.add((long) cropped.getWidth() * cropped.getHeight());
+        return cropped;
+    }
+
+    public RegionOfInterest getRegion() {
+        return region;
+    }
+
+    public long getPixelsReceived() {
+        return pixelsReceived.sum();
+    }
+
+    /**
+     * Pixels passed on to the wrapped service after cropping.
+     */
+    public long getPixelsAnalyzed() {
+        return pixelsAnalyzed.sum();
+    }
+}
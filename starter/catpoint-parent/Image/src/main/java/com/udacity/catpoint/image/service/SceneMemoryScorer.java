@@ -0,0 +1,125 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link ImageScorer} for fixed cameras, where most frames look like one already judged. Each
+ * image is reduced to a 16x16 grayscale thumbnail and compared with the thumbnails of the last
+ * few images the accurate service decided. If no cell of the thumbnail differs from a remembered
+ * one by more than the allowed difference, its result is recalled as is, so it can be checked
+ * against any threshold; a new scene scores 0.5, so it is escalated. Comparing cell by cell
+ * rather than on the average keeps a small, high-contrast intruder from passing as the same scene.
+ *
+ * Building the thumbnail samples a fixed grid of pixels, so scoring costs the same for any image
+ * size and takes well under a millisecond.
+ */
+public class SceneMemoryScorer implements ImageScorer {
+
+    private static final int THUMBNAIL_SIZE = 16;
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private final int maxDifference;
+
+    //guarded by this; a ring of the most recently learned scenes
+    private final byte[][] scenes;
+    private final DetectionResult[] results;
+    private int learned;
+
+    /**
+     * Remembers 8 scenes and treats a difference of up to 12 gray levels in every cell as the same
+     * scene.
+     */
+    public SceneMemoryScorer() {
+        this(8, 12);
+    }
+
+    /**
+     * @param maxDifference largest difference in gray levels any one cell of the thumbnail may show
+     *                      for the image to count as a remembered scene
+     */
+    public SceneMemoryScorer(int sceneCount, int maxDifference) {
+        this.scenes = new byte[sceneCount][];
+        this.results = new DetectionResult[sceneCount];
+        this.maxDifference = maxDifference;
+    }
+
+    /**
+     * A remembered scene scores 1 if a cat was found in it at the default threshold of 50, and 0
+     * otherwise.
+     */
+    @Override
+    public float score(BufferedImage image) {
+        DetectionResult remembered = recall(image);
+        if (remembered == null) {
+            return 0.5f;
+        }
+        return remembered.containsCat(50.0f) ? 1f : 0f;
+    }
+
+    /**
+     * An image not recalled is a new scene, so it scores 0.5 without being compared again.
+     */
+    @Override
+    public float scoreUnrecalled(BufferedImage image) {
+        return 0.5f;
+    }
+
+    @Override
+    public DetectionResult recall(BufferedImage image) {
+        byte[] thumbnail = thumbnail(image);
+        synchronized (this) {
+            int best = -1;
+            int bestDistance = maxDifference + 1;
+            for (int i = 0; i < Math.min(learned, scenes.length); i++) {
+                int distance = distance(thumbnail, scenes[i], bestDistance);
+                if (distance < bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+            return best < 0 ? null : results[best];
+        }
+    }
+
+    @Override
+    public void learn(BufferedImage image, DetectionResult result) {
+        byte[] thumbnail = thumbnail(image);
+        synchronized (this) {
+            int slot = learned++ % scenes.length;
+            scenes[slot] = thumbnail;
+            results[slot] = result;
+        }
+    }
+
+    /**
+     * Largest absolute difference of any one cell, stopping early once it reaches the cutoff.
+     */
+    private static int distance(byte[] a, byte[] b, int cutoff) {
+        int max = 0;
+        for (int i = 0; i < a.length && max < cutoff; i++) {
+            max = Math.max(max, Math.abs((a[i] & 0xFF) - (b[i] & 0xFF)));
+        }
+        return max;
+    }
+
+    static byte[] thumbnail(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int grid = THUMBNAIL_SIZE * SAMPLES_PER_CELL;
+        byte[] thumbnail = new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+        for (int cellY = 0; cellY < THUMBNAIL_SIZE; cellY++) {
+            for (int cellX = 0; cellX < THUMBNAIL_SIZE; cellX++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) ((cellY * SAMPLES_PER_CELL + sy + 0.5) * height / grid);
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) ((cellX * SAMPLES_PER_CELL + sx + 0.5) * width / grid);
+                        sum += ImageKernels.luma(image.getRGB(x, y));
+                    }
+                }
+                thumbnail[cellY * THUMBNAIL_SIZE + cellX] = (byte) (sum / (SAMPLES_PER_CELL * SAMPLES_PER_CELL));
+            }
+        }
+        return thumbnail;
+    }
+}
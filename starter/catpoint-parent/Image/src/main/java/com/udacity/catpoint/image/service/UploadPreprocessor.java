@@ -0,0 +1,198 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepares camera images for upload to a recognition service. Labels like "Cat" are reliably
+ * detected at 640px, so sending full resolution stills only costs bandwidth and encode time.
+ * Images are downscaled to a maximum dimension and encoded as JPEG at the highest quality that
+ * fits the byte budget.
+ *
+ * Downscaling halves the image with a 2x2 box filter directly on the pixel array until it is
+ * within a factor of two of the target, then does one bilinear step to the exact size. This is
+ * much faster than {@link Image#getScaledInstance} and avoids the aliasing of a single bilinear
+ * step from a very large image.
+ */
+public class UploadPreprocessor {
+
+    private static final float MAX_QUALITY = 0.85f;
+    private static final float MIN_QUALITY = 0.4f;
+    private static final int QUALITY_SEARCH_STEPS = 4;
+
+    private final Logger log = LoggerFactory.getLogger(UploadPreprocessor.class);
+
+    private final int maxDimension;
+    private final int byteBudget;
+
+    private final LongAdder images = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder estimatedBytesSaved = new LongAdder();
+
+    /**
+     * Defaults to a 640px maximum dimension and a 100KB budget.
+     */
+    public UploadPreprocessor() {
+        this(640, 100_000);
+    }
+
+    public UploadPreprocessor(int maxDimension, int byteBudget) {
+        this.maxDimension = maxDimension;
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Downscales and encodes the image as JPEG bytes ready to upload.
+     */
+    public byte[] encode(BufferedImage image) throws IOException {
+        BufferedImage scaled = downscale(image, maxDimension);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(byteBudget);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        byte[] best;
+        float bestQuality;
+        try {
+            best = encodeJpeg(writer, scaled, MAX_QUALITY, out);
+            bestQuality = MAX_QUALITY;
+            if (best.length > byteBudget) {
+                //binary search for the highest quality that still fits the budget
+                byte[] fitting = null;
+                float low = MIN_QUALITY;
+                float high = MAX_QUALITY;
+                for (int step = 0; step < QUALITY_SEARCH_STEPS; step++) {
+                    float quality = (low + high) / 2;
+                    byte[] attempt = encodeJpeg(writer, scaled, quality, out);
+                    if (attempt.length <= byteBudget) {
+                        fitting = attempt;
+                        bestQuality = quality;
+                        low = quality;
+                    } else {
+                        high = quality;
+                    }
+                }
+                if (fitting == null) {
+                    //best effort: nothing fits, so send the smallest we are willing to
+                    fitting = encodeJpeg(writer, scaled, MIN_QUALITY, out);
+                    bestQuality = MIN_QUALITY;
+                }
+                best = fitting;
+            }
+        } finally {
+            writer.dispose();
+        }
+
+        //jpeg size grows roughly with pixel count, so scale up to estimate the full size upload
+        double pixelRatio = (double) image.getWidth() * image.getHeight() / ((double) scaled.getWidth() * scaled.getHeight());
+        long estimatedOriginal = (long) (best.length * pixelRatio);
+        images.increment();
+        encodedBytes.add(best.length);
+        estimatedBytesSaved.add(estimatedOriginal - best.length);
+        log.debug("Prepared {}x{} image as {}x{} jpeg at quality {}: {} bytes, about {} at full size",
+                image.getWidth(), image.getHeight(), scaled.getWidth(), scaled.getHeight(), bestQuality, best.length, estimatedOriginal);
+        return best;
+    }
+
+    /**
+     * Returns an opaque image whose larger side is at most {@code maxDimension}. Images that are
+     * already small enough are returned as they are, unless they have an alpha channel, which
+     * JPEG cannot encode.
+     */
+    public static BufferedImage downscale(BufferedImage image, int maxDimension) {
+        int largest = Math.max(image.getWidth(), image.getHeight());
+        if (largest <= maxDimension) {
+            return image.getColorModel().hasAlpha() ? redraw(image, image.getWidth(), image.getHeight()) : image;
+        }
+        double scale = (double) maxDimension / largest;
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        if (current.getWidth() >= targetWidth * 2 && current.getHeight() >= targetHeight * 2) {
+            current = toIntRgb(current);
+            while (current.getWidth() >= targetWidth * 2 && current.getHeight() >= targetHeight * 2) {
+                current = halve(current);
+            }
+        }
+        if (current.getWidth() == targetWidth && current.getHeight() == targetHeight) {
+            return current;
+        }
+        return redraw(current, targetWidth, targetHeight);
+    }
+
+    /**
+     * Draws the image at the given size with bilinear interpolation. The result is 3BYTE_BGR,
+     * the layout the JPEG writer encodes without converting.
+     */
+    private static BufferedImage redraw(BufferedImage image, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return target;
+    }
+
+    /**
+     * Halves both dimensions, averaging each 2x2 block of source pixels into one pixel.
+     */
+    private static BufferedImage halve(BufferedImage source) {
+        BufferedImage result = new BufferedImage(source.getWidth() / 2, source.getHeight() / 2, BufferedImage.TYPE_INT_RGB);
+        ImageKernels.halve(((DataBufferInt) source.getRaster().getDataBuffer()).getData(), source.getWidth(), source.getHeight(),
+                ((DataBufferInt) result.getRaster().getDataBuffer()).getData());
+        return result;
+    }
+
+    /**
+     * Returns the image itself if it is a plain, unshared INT_RGB image, otherwise an INT_RGB copy
+     * the box filter can work on directly.
+     */
+    private static BufferedImage toIntRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB
+                && image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static byte[] encodeJpeg(ImageWriter writer, BufferedImage image, float quality, ByteArrayOutputStream out) throws IOException {
+        out.reset();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        return out.toByteArray();
+    }
+
+    public long getImages() {
+        return images.sum();
+    }
+
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    /**
+     * Estimated bytes saved compared to uploading each image at full size.
+     */
+    public long getEstimatedBytesSaved() {
+        return estimatedBytesSaved.sum();
+    }
+}
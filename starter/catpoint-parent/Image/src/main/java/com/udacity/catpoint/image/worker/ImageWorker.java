@@ -0,0 +1,109 @@
+package com.udacity.catpoint.image.worker;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an {@link ImageService} in its own process, so the heap churn and GC pauses of image
+ * recognition stay out of the process handling alarms. Started by {@link WorkerImageService}.
+ *
+ * Frames arrive in a {@link SharedFrameRing}; requests and verdicts are tab-separated lines on
+ * stdin and stdout:
+ * <pre>
+ * DETECT id slot width height
+ * OK id [label confidence]...
+ * ERR id message
+ * </pre>
+ * Requests are handled by a pool of threads, so verdicts may come back in any order. The worker
+ * exits when stdin is closed.
+ *
+ * Usage: {@code ImageWorker <ring-file> [threads] [image-service-class]}. The service class needs
+ * a public no-argument constructor and defaults to {@link FakeImageService}.
+ */
+public class ImageWorker {
+
+    static final String DETECT = "DETECT";
+    static final String OK = "OK";
+    static final String ERR = "ERR";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ImageWorker <ring-file> [threads] [image-service-class]");
+            System.exit(2);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String serviceClass = args.length > 2 ? args[2] : FakeImageService.class.getName();
+        ImageService service = (ImageService) Class.forName(serviceClass).getDeclaredConstructor().newInstance();
+        try (SharedFrameRing ring = SharedFrameRing.open(Paths.get(args[0]))) {
+            serve(ring, service, threads, System.in, System.out);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Answers requests until the input ends, then waits for those in progress.
+     */
+    static void serve(SharedFrameRing ring, ImageService service, int threads, InputStream requests,
+                      OutputStream verdicts) throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(requests, StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(verdicts, StandardCharsets.UTF_8));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 5 || !DETECT.equals(fields[0])) {
+                    System.err.println("Ignoring request: " + line);
+                    continue;
+                }
+                pool.execute(() -> reply(out, fields[1], detect(ring, service, fields)));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static String detect(SharedFrameRing ring, ImageService service, String[] request) {
+        try {
+            int slot = Integer.parseInt(request[2]);
+            int width = Integer.parseInt(request[3]);
+            int height = Integer.parseInt(request[4]);
+            DetectionResult result = service.detect(ring.read(slot, width, height));
+            StringBuilder line = new StringBuilder(OK).append('\t').append(request[1]);
+            for (DetectionResult.Label label : result.getLabels()) {
+                line.append('\t').append(label.getName().replace('\t', ' ')).append('\t').append(label.getConfidence());
+            }
+            return line.toString();
+        } catch (RuntimeException e) {
+            return ERR + '\t' + request[1] + '\t' + String.valueOf(e).replaceAll("[\\t\\r\\n]", " ");
+        }
+    }
+
+    private static void reply(Writer out, String id, String line) {
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                //the client is gone; stdin will end too
+                System.err.println("Could not answer request " + id + ": " + e);
+            }
+        }
+    }
+}
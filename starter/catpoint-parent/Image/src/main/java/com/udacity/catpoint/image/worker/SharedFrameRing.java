@@ -0,0 +1,135 @@
+package com.udacity.catpoint.image.worker;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed slots of RGB pixels in a memory-mapped file, shared by the security process and an
+ * {@link ImageWorker} process. The client writes a frame's pixels straight into a slot and tells
+ * the worker which slot to read over the control channel, so frames are never encoded, and the
+ * pages are shared by both processes rather than sent between them.
+ *
+ * Which slots are in use is decided by the client; the ring itself does no locking. The file
+ * starts with a header giving the slot count and size, so the worker only needs its path.
+ */
+public class SharedFrameRing implements Closeable {
+
+    private static final int MAGIC = 0x43415446; //"CATF"
+    private static final int HEADER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final IntBuffer pixels;
+    private final int slots;
+    private final int slotPixels;
+
+    private SharedFrameRing(FileChannel channel, int slots, int slotPixels) throws IOException {
+        this.channel = channel;
+        this.slots = slots;
+        this.slotPixels = slotPixels;
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slots * slotPixels * 4);
+        mapped.order(ByteOrder.nativeOrder());
+        this.pixels = mapped.position(HEADER_BYTES).slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Creates the file, replacing any previous one, with room for the given number of frames
+     * of up to {@code slotPixels} pixels each.
+     */
+    public static SharedFrameRing create(Path file, int slots, int slotPixels) throws IOException {
+        if ((long) slots * slotPixels * 4 > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IllegalArgumentException("Ring of " + slots + " slots of " + slotPixels + " pixels is too large");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SharedFrameRing ring = new SharedFrameRing(channel, slots, slotPixels);
+        ring.mapped.putInt(4, slots).putInt(8, slotPixels).putInt(0, MAGIC);
+        return ring;
+    }
+
+    /**
+     * Maps a ring created by another process.
+     */
+    public static SharedFrameRing open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.nativeOrder());
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a frame ring");
+            }
+            return new SharedFrameRing(channel, header.getInt(4), header.getInt(8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the image's pixels into the slot. Images backed by an int raster, the usual case
+     * for camera frames, are copied with one bulk put.
+     */
+    public void write(int slot, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        checkFits(width, height);
+        IntBuffer target = slotBuffer(slot);
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB) {
+            DataBufferInt data = (DataBufferInt) image.getRaster().getDataBuffer();
+            if (data.getNumBanks() == 1 && data.getOffset() == 0 && data.getSize() == width * height) {
+                target.put(data.getData(), 0, width * height);
+                return;
+            }
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            target.put(row);
+        }
+    }
+
+    /**
+     * Copies the slot into a new image of the given size. Camera frames have no transparency,
+     * so alpha is ignored.
+     */
+    public BufferedImage read(int slot, int width, int height) {
+        checkFits(width, height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        slotBuffer(slot).get(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, width * height);
+        return image;
+    }
+
+    private IntBuffer slotBuffer(int slot) {
+        if (slot < 0 || slot >= slots) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " of " + slots);
+        }
+        return pixels.duplicate().position(slot * slotPixels).limit((slot + 1) * slotPixels);
+    }
+
+    private void checkFits(int width, int height) {
+        if ((long) width * height > slotPixels) {
+            throw new IllegalArgumentException(width + "x" + height + " frame does not fit a slot of " + slotPixels + " pixels");
+        }
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getSlotPixels() {
+        return slotPixels;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,418 @@
+package com.udacity.catpoint.image.worker;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image Recognition Service that sends frames to {@link ImageWorker} processes, so recognition
+ * has its own heap and can use as many cores as it is given without pausing the caller.
+ *
+ * Each worker has its own {@link SharedFrameRing}. A scan takes a free slot of the least busy
+ * worker, writes the frame's pixels into it and sends the worker a one-line request; the slot is
+ * reused once the worker has answered. When no slot frees up or no answer comes within the
+ * timeout, or the worker has died, the scan is answered by the fallback service instead. A dead
+ * worker is restarted on the next scan.
+ *
+ * Build instances with {@link #builder()}.
+ */
+public class WorkerImageService implements ImageService, AutoCloseable {
+
+    private final Logger log = LoggerFactory.getLogger(WorkerImageService.class);
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final Path temporaryDirectory;
+    private final ImageService fallback;
+    private final long timeoutNanos;
+    private final AtomicLong ids = new AtomicLong();
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+
+    private WorkerImageService(Builder builder) throws IOException {
+        this.fallback = builder.fallback;
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.temporaryDirectory = builder.ringDirectory == null ? Files.createTempDirectory("catpoint-frames") : null;
+        Path directory = builder.ringDirectory != null ? builder.ringDirectory : temporaryDirectory;
+        try {
+            for (int i = 0; i < builder.processes; i++) {
+                Worker worker = new Worker(builder, directory.resolve("worker-" + i + ".ring"));
+                workers.add(worker);
+                worker.start();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Returns the worker's result, or the fallback service's if the worker could not answer in
+     * time.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        scans.increment();
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            Worker worker = leastBusy();
+            Integer slot = worker.freeSlots.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+            if (slot == null) {
+                log.warn("No free frame slot within the timeout, using fallback");
+                return useFallback(image);
+            }
+            CompletableFuture<DetectionResult> verdict = worker.send(slot, image);
+            return verdict.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return useFallback(image);
+        } catch (TimeoutException e) {
+            log.warn("Image worker did not answer within the timeout, using fallback");
+            return useFallback(image);
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            log.warn("Image worker failed, using fallback", e);
+            return useFallback(image);
+        }
+    }
+
+    private DetectionResult useFallback(BufferedImage image) {
+        fallbacks.increment();
+        return fallback.detect(image);
+    }
+
+    private Worker leastBusy() {
+        Worker best = workers.get(0);
+        for (Worker worker : workers) {
+            if (worker.freeSlots.size() > best.freeSlots.size()) {
+                best = worker;
+            }
+        }
+        return best;
+    }
+
+    public long getScans() {
+        return scans.sum();
+    }
+
+    /**
+     * Scans answered by the fallback service.
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Times a worker process had to be started again after it died.
+     */
+    public long getRestarts() {
+        return restarts.sum();
+    }
+
+    /**
+     * Process ids of the running workers.
+     */
+    public List<Long> getWorkerPids() {
+        List<Long> pids = new ArrayList<>();
+        for (Worker worker : workers) {
+            synchronized (worker) {
+                if (worker.process != null && worker.process.isAlive()) {
+                    pids.add(worker.process.pid());
+                }
+            }
+        }
+        return pids;
+    }
+
+    /**
+     * Closes each worker's input so it finishes what it is doing and exits, and removes the
+     * frame files.
+     */
+    @Override
+    public void close() {
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        if (temporaryDirectory != null) {
+            try {
+                Files.deleteIfExists(temporaryDirectory);
+            } catch (IOException e) {
+                log.warn("Could not remove {}", temporaryDirectory, e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private int processes = 1;
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int slots = 8;
+        private int maxFramePixels = 1920 * 1080;
+        private String serviceClass = FakeImageService.class.getName();
+        private List<String> jvmOptions = List.of();
+        private Path ringDirectory;
+        private Duration timeout = Duration.ofSeconds(5);
+        private ImageService fallback = (image, confidenceThreshhold) -> false;
+
+        private Builder() {
+        }
+
+        /**
+         * Number of worker processes, each with its own heap and frame ring.
+         */
+        public Builder processes(int processes) {
+            if (processes < 1) {
+                throw new IllegalArgumentException("need at least one worker process: " + processes);
+            }
+            this.processes = processes;
+            return this;
+        }
+
+        /**
+         * Threads scanning frames in each worker process.
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("need at least one thread per worker: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Frames each worker can be given at once, and the largest frame in pixels.
+         */
+        public Builder slots(int slots, int maxFramePixels) {
+            this.slots = slots;
+            this.maxFramePixels = maxFramePixels;
+            return this;
+        }
+
+        /**
+         * Image service the workers run. Must have a public no-argument constructor.
+         */
+        public Builder service(Class<? extends ImageService> serviceClass) {
+            this.serviceClass = serviceClass.getName();
+            return this;
+        }
+
+        /**
+         * Extra options for the worker JVMs, such as a heap limit.
+         */
+        public Builder jvmOptions(String... jvmOptions) {
+            this.jvmOptions = List.of(jvmOptions);
+            return this;
+        }
+
+        /**
+         * Where to put the frame files. Defaults to a new temporary directory; a RAM-backed
+         * directory such as /dev/shm avoids any write-back to disk.
+         */
+        public Builder ringDirectory(Path ringDirectory) {
+            this.ringDirectory = ringDirectory;
+            return this;
+        }
+
+        /**
+         * Longest a scan waits for a free slot and the worker's answer together.
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder fallback(ImageService fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Creates the frame files and starts the worker processes.
+         */
+        public WorkerImageService build() throws IOException {
+            return new WorkerImageService(this);
+        }
+    }
+
+    /**
+     * The command running {@link ImageWorker} with this JVM's own module or class path.
+     */
+    static List<String> javaCommand(List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null && ImageWorker.class.getModule().isNamed()) {
+            command.addAll(Arrays.asList("-p", modulePath, "-m",
+                    ImageWorker.class.getModule().getName() + "/" + ImageWorker.class.getName()));
+        } else {
+            command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), ImageWorker.class.getName()));
+        }
+        return command;
+    }
+
+    /**
+     * One worker process, its frame ring and the requests it has not answered yet.
+     */
+    private class Worker {
+        private final Path ringFile;
+        private final List<String> command;
+        private final SharedFrameRing ring;
+        private final BlockingQueue<Integer> freeSlots;
+        private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+        //guarded by this
+        private Process process;
+        private Writer requests;
+        private boolean stopped;
+
+        private Worker(Builder builder, Path ringFile) throws IOException {
+            this.ringFile = ringFile;
+            this.ring = SharedFrameRing.create(ringFile, builder.slots, builder.maxFramePixels);
+            this.freeSlots = new ArrayBlockingQueue<>(builder.slots);
+            for (int slot = 0; slot < builder.slots; slot++) {
+                freeSlots.add(slot);
+            }
+            this.command = javaCommand(builder.jvmOptions);
+            command.addAll(List.of(ringFile.toString(), String.valueOf(builder.threads), builder.serviceClass));
+        }
+
+        private synchronized void start() throws IOException {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            Process started = process;
+            Thread reader = new Thread(() -> readVerdicts(started), "image-worker-reader-" + started.pid());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private CompletableFuture<DetectionResult> send(int slot, BufferedImage image) throws IOException {
+            long id = ids.incrementAndGet();
+            boolean registered = false;
+            try {
+                ring.write(slot, image);
+                synchronized (this) {
+                    if (stopped) {
+                        throw new IOException("Image worker service is closed");
+                    }
+                    if (!process.isAlive()) {
+                        restarts.increment();
+                        log.warn("Image worker {} exited with {}, restarting", process.pid(), process.exitValue());
+                        start();
+                    }
+                    Pending request = new Pending(slot, process);
+                    pending.put(id, request);
+                    registered = true;
+                    requests.write(ImageWorker.DETECT + '\t' + id + '\t' + slot + '\t' + image.getWidth() + '\t' + image.getHeight() + '\n');
+                    requests.flush();
+                    return request.verdict;
+                }
+            } catch (IOException | RuntimeException e) {
+                //whoever takes the request out of pending gives its slot back
+                if (!registered || pending.remove(id) != null) {
+                    freeSlots.add(slot);
+                }
+                throw e;
+            }
+        }
+
+        private void readVerdicts(Process from) {
+            try (BufferedReader verdicts = new BufferedReader(new InputStreamReader(from.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = verdicts.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    Pending request = fields.length >= 2 ? pending.remove(Long.parseLong(fields[1])) : null;
+                    if (request == null) {
+                        continue; //already given up on
+                    }
+                    freeSlots.add(request.slot);
+                    if (ImageWorker.OK.equals(fields[0])) {
+                        List<DetectionResult.Label> labels = new ArrayList<>();
+                        for (int i = 2; i + 1 < fields.length; i += 2) {
+                            labels.add(new DetectionResult.Label(fields[i], Float.parseFloat(fields[i + 1])));
+                        }
+                        request.verdict.complete(DetectionResult.of(labels));
+                    } else {
+                        request.verdict.completeExceptionally(new IOException("Image worker failed: " + line));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Lost image worker {}", from.pid(), e);
+            }
+            //the process is gone, so nothing will read the slots of the requests it did not answer
+            for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+                if (entry.getValue().process == from && pending.remove(entry.getKey(), entry.getValue())) {
+                    freeSlots.add(entry.getValue().slot);
+                    entry.getValue().verdict.completeExceptionally(new IOException("Image worker exited"));
+                }
+            }
+        }
+
+        private void stop() {
+            Process stopping;
+            synchronized (this) {
+                stopped = true;
+                stopping = process;
+                try {
+                    if (requests != null) {
+                        requests.close();
+                    }
+                } catch (IOException e) {
+                    //exiting anyway
+                }
+            }
+            if (stopping != null) {
+                try {
+                    if (!stopping.waitFor(2, TimeUnit.SECONDS)) {
+                        stopping.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    stopping.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                ring.close();
+                Files.deleteIfExists(ringFile);
+            } catch (IOException e) {
+                log.warn("Could not remove frame file {}", ringFile, e);
+            }
+        }
+    }
+
+    private static class Pending {
+        private final int slot;
+        private final Process process;
+        private final CompletableFuture<DetectionResult> verdict = new CompletableFuture<>();
+
+        private Pending(int slot, Process process) {
+            this.slot = slot;
+            this.process = process;
+        }
+    }
+}
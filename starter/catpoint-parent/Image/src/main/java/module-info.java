@@ -4,6 +4,9 @@ module com.udacity.catpoint.image {
     requires software.amazon.awssdk.core;
     requires software.amazon.awssdk.services.rekognition;
     requires software.amazon.awssdk.regions;
+    requires software.amazon.awssdk.http.nio.netty;
     requires java.desktop;
     exports com.udacity.catpoint.image.service;
+    exports com.udacity.catpoint.image.io;
+    exports com.udacity.catpoint.image.worker;
 }
@@ -0,0 +1,106 @@
+package com.udacity.catpoint.image.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameReplayTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void mjpeg_framesDeliveredInOrder() throws IOException {
+        Path file = tempDir.resolve("recording.mjpeg");
+        ByteArrayOutputStream mjpeg = new ByteArrayOutputStream();
+        for (int width = 10; width < 50; width++) {
+            mjpeg.write(("--frame\r\nContent-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            mjpeg.write(jpeg(width));
+        }
+        Files.write(file, mjpeg.toByteArray());
+
+        List<Integer> widths = new ArrayList<>();
+        FrameReplay.Result result;
+        try (FrameSource source = FrameReplay.open(file)) {
+            result = new FrameReplay(4, 3).replay(source, image -> widths.add(image.getWidth()));
+        }
+
+        assertEquals(40, result.getFrames());
+        assertEquals(0, result.getSkipped());
+        for (int i = 0; i < widths.size(); i++) {
+            assertEquals(10 + i, widths.get(i));
+        }
+    }
+
+    @Test
+    public void mjpeg_embeddedThumbnailDoesNotEndFrame() throws IOException {
+        byte[] frame = jpeg(20);
+        byte[] payload = {'E', 'x', 'i', 'f', 0, 0, (byte) 0xFF, (byte) 0xD8, 1, 2, (byte) 0xFF, (byte) 0xD9};
+        ByteArrayOutputStream withThumbnail = new ByteArrayOutputStream();
+        withThumbnail.write(frame, 0, 2);
+        withThumbnail.write(new byte[]{(byte) 0xFF, (byte) 0xE1, 0, (byte) (payload.length + 2)});
+        withThumbnail.write(payload);
+        withThumbnail.write(frame, 2, frame.length - 2);
+        byte[] expected = withThumbnail.toByteArray();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(expected);
+        stream.write(jpeg(30));
+        //a tiny read-ahead buffer makes every segment straddle refills
+        try (FrameSource source = new MjpegFrameSource(Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())), 7, 1 << 20)) {
+            assertArrayEquals(expected, source.nextFrame());
+            assertEquals(30, ImageIO.read(new ByteArrayInputStream(source.nextFrame())).getWidth());
+            assertNull(source.nextFrame());
+        }
+    }
+
+    @Test
+    public void mjpeg_oversizedFrameRejected() throws IOException {
+        byte[] frame = jpeg(200);
+        try (FrameSource source = new MjpegFrameSource(Channels.newChannel(new ByteArrayInputStream(frame)), 1024, frame.length / 2)) {
+            assertThrows(IOException.class, source::nextFrame);
+        }
+    }
+
+    @Test
+    public void noDecodeThreadsOrFramesInFlight_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new FrameReplay(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new FrameReplay(2, 0));
+    }
+
+    @Test
+    public void directory_sortedByNameAndUndecodableSkipped() throws IOException {
+        Files.write(tempDir.resolve("frame-2.jpg"), jpeg(22));
+        Files.write(tempDir.resolve("frame-1.jpg"), jpeg(11));
+        Files.write(tempDir.resolve("frame-3.jpg"), "not an image".getBytes(StandardCharsets.US_ASCII));
+        Files.write(tempDir.resolve("notes.txt"), "ignored".getBytes(StandardCharsets.US_ASCII));
+
+        List<Integer> widths = new ArrayList<>();
+        FrameReplay.Result result;
+        try (FrameSource source = FrameReplay.open(tempDir)) {
+            result = new FrameReplay(2, 2).replay(source, image -> widths.add(image.getWidth()));
+        }
+
+        assertEquals(List.of(11, 22), widths);
+        assertEquals(1, result.getSkipped());
+    }
+
+    private static byte[] jpeg(int width) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, 16, BufferedImage.TYPE_3BYTE_BGR), "jpg", out);
+        return out.toByteArray();
+    }
+}
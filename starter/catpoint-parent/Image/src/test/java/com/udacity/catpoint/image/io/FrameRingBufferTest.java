@@ -0,0 +1,79 @@
+package com.udacity.catpoint.image.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameRingBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void writeTo_keepsNewestFramesOldestFirst() throws IOException {
+        FrameRingBuffer ring = new FrameRingBuffer(4, 64);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ring.offer(fakeJpeg(i), 1000 + i));
+        }
+        Path file = tempDir.resolve("incident.mjpeg");
+
+        assertEquals(4, ring.writeTo(file));
+
+        assertEquals(0, ring.size());
+        List<byte[]> frames = new ArrayList<>();
+        try (FrameSource source = new MjpegFrameSource(file)) {
+            byte[] frame;
+            while ((frame = source.nextFrame()) != null) {
+                frames.add(frame);
+            }
+        }
+        assertEquals(4, frames.size());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(fakeJpeg(6 + i), frames.get(i));
+        }
+        assertTrue(Files.readString(file, java.nio.charset.StandardCharsets.ISO_8859_1).contains("X-Timestamp: 1006"));
+    }
+
+    @Test
+    public void offer_oversizedFrameDropped() {
+        FrameRingBuffer ring = new FrameRingBuffer(2, 8);
+
+        assertFalse(ring.offer(new byte[9], 0));
+        assertEquals(1, ring.getFramesDropped());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void forDuration_sizesSlotsFromFrameRate() {
+        assertEquals(150, FrameRingBuffer.forDuration(Duration.ofSeconds(10), 15, 1024).capacity());
+    }
+
+    @Test
+    public void writeTo_existingFileRefusedAndBufferUsableAfterwards() throws IOException {
+        FrameRingBuffer ring = new FrameRingBuffer(2, 64);
+        ring.offer(fakeJpeg(1), 0);
+        Path file = Files.write(tempDir.resolve("taken.mjpeg"), new byte[0], StandardOpenOption.CREATE);
+
+        assertThrows(IOException.class, () -> ring.writeTo(file));
+        assertTrue(ring.offer(fakeJpeg(2), 1));
+    }
+
+    /**
+     * Smallest byte sequence the MJPEG reader accepts as a frame: SOI, a comment segment holding
+     * the id, EOI.
+     */
+    private static byte[] fakeJpeg(int id) {
+        byte[] frame = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xFE, 0, 3, (byte) id, (byte) 0xFF, (byte) 0xD9};
+        return Arrays.copyOf(frame, frame.length);
+    }
+}
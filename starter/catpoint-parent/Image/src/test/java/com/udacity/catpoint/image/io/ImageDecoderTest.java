@@ -0,0 +1,85 @@
+package com.udacity.catpoint.image.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageDecoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File still;
+    private ImageDecoder decoder;
+
+    @BeforeEach
+    public void init() throws IOException {
+        still = tempDir.resolve("still.jpg").toFile();
+        ImageIO.write(new BufferedImage(2400, 1800, BufferedImage.TYPE_3BYTE_BGR), "jpg", still);
+        decoder = new ImageDecoder();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        decoder.shutdown();
+    }
+
+    @Test
+    public void readInfo_returnsHeaderDimensions() throws IOException {
+        ImageDecoder.ImageInfo info = decoder.readInfo(still);
+
+        assertEquals(2400, info.getWidth());
+        assertEquals(1800, info.getHeight());
+    }
+
+    @Test
+    public void decodePreview_subsamplesButStaysAtLeastRequestedSize() {
+        BufferedImage preview = decoder.decodePreview(still, 300, 225).join();
+
+        assertEquals(300, preview.getWidth());
+        assertEquals(225, preview.getHeight());
+    }
+
+    @Test
+    public void decodeFull_returnsFullResolution() {
+        BufferedImage full = decoder.decodeFull(still).join();
+
+        assertEquals(2400, full.getWidth());
+        assertEquals(1800, full.getHeight());
+    }
+
+    @Test
+    public void decodeRegion_returnsOnlyRegion() {
+        BufferedImage region = decoder.decodeRegion(still, new Rectangle(100, 200, 640, 480)).join();
+
+        assertEquals(640, region.getWidth());
+        assertEquals(480, region.getHeight());
+    }
+
+    @Test
+    public void decode_sameRequestTwice_servedFromCache() {
+        BufferedImage first = decoder.decodePreview(still, 300, 225).join();
+        assertSame(first, decoder.decodePreview(still, 300, 225).join());
+    }
+
+    @Test
+    public void decode_notAnImage_failsAndIsNotCached() throws IOException {
+        File text = tempDir.resolve("notes.jpg").toFile();
+        Files.writeString(text.toPath(), "not an image");
+
+        assertThrows(CompletionException.class, () -> decoder.decodePreview(text, 300, 225).join());
+        assertThrows(CompletionException.class, () -> decoder.decodePreview(text, 300, 225).join());
+    }
+}
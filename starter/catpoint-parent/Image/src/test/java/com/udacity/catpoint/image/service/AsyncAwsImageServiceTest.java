@@ -0,0 +1,124 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.Duration;
+
+import static com.udacity.catpoint.image.service.StubRekognitionServer.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncAwsImageServiceTest {
+
+    private final BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+
+    private StubRekognitionServer server;
+    private AsyncAwsImageService service;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (service != null) {
+            service.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private AsyncAwsImageService.Builder builderFor(StubRekognitionServer server) {
+        return AsyncAwsImageService.builder()
+                .credentials("stub-id", "stub-secret")
+                .region("us-east-1")
+                .endpointOverride(server.endpoint())
+                .callTimeout(Duration.ofSeconds(2))
+                .minHedgeDelay(Duration.ofMillis(200))
+                .retries(3, Duration.ofMillis(10));
+    }
+
+    @Test
+    public void imageContainsCat_catLabelReturned_true() throws IOException {
+        server = new StubRekognitionServer(n -> Response.ok(CAT_LABELS));
+        service = builderFor(server).build();
+
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    public void imageContainsCat_noCatLabel_false() throws IOException {
+        server = new StubRekognitionServer(n -> Response.ok(DOG_LABELS));
+        service = builderFor(server).build();
+
+        assertFalse(service.imageContainsCat(image, 50.0f));
+    }
+
+    @Test
+    public void imageContainsCat_serverErrorThenSuccess_retries() throws IOException {
+        server = new StubRekognitionServer(n -> n == 1 ? Response.serverError() : Response.ok(CAT_LABELS));
+        service = builderFor(server).build();
+
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(1, service.getRetries());
+        assertEquals(0, service.getFallbacks());
+    }
+
+    @Test
+    public void imageContainsCat_slowFirstResponse_hedgeAnswers() throws IOException {
+        server = new StubRekognitionServer(n -> n == 1 ? Response.slow(DOG_LABELS, 1500) : Response.ok(CAT_LABELS));
+        service = builderFor(server).build();
+
+        long start = System.nanoTime();
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(1500).toNanos());
+        assertEquals(1, service.getHedgesSent());
+    }
+
+    @Test
+    public void imageContainsCat_deadlineExceeded_usesFallback() throws IOException {
+        server = new StubRekognitionServer(n -> Response.slow(DOG_LABELS, 3000));
+        service = builderFor(server)
+                .callTimeout(Duration.ofMillis(500))
+                .fallback((img, threshold) -> true)
+                .build();
+
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(1, service.getFallbacks());
+    }
+
+    @Test
+    public void imageContainsCat_repeatedFailures_opensCircuitAndStopsCallingRekognition() throws IOException {
+        server = new StubRekognitionServer(n -> Response.serverError());
+        service = builderFor(server)
+                .retries(1, Duration.ZERO)
+                .circuitBreaker(2, Duration.ofMinutes(1))
+                .fallback((img, threshold) -> true)
+                .build();
+
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(CircuitBreaker.State.OPEN, service.getCircuitState());
+        int requestsWhenOpened = server.requestCount();
+
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(requestsWhenOpened, server.requestCount());
+        assertEquals(3, service.getFallbacks());
+    }
+
+    @Test
+    public void imageContainsCat_rejectedRequests_doNotOpenCircuit() throws IOException {
+        server = new StubRekognitionServer(n -> Response.badRequest());
+        service = builderFor(server)
+                .circuitBreaker(2, Duration.ofMinutes(1))
+                .fallback((img, threshold) -> true)
+                .build();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(service.imageContainsCat(image, 50.0f));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, service.getCircuitState());
+        assertEquals(4, server.requestCount());
+    }
+}
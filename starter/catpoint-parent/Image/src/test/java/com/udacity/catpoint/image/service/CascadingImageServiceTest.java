@@ -0,0 +1,148 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CascadingImageServiceTest {
+
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+    private final ImageService remoteSaysCat = (image, threshold) -> {
+        remoteCalls.incrementAndGet();
+        return true;
+    };
+
+    @Test
+    public void confidentScores_answeredLocally() {
+        BufferedImage image = scene(Color.GRAY);
+        CascadingImageService reject = new CascadingImageService(img -> 0.05f, remoteSaysCat);
+        CascadingImageService accept = new CascadingImageService(img -> 0.95f, remoteSaysCat);
+
+        assertFalse(reject.imageContainsCat(image, 50f));
+        assertTrue(accept.imageContainsCat(image, 50f));
+        assertEquals(0, remoteCalls.get());
+        assertEquals(1, reject.getLocalRejects());
+        assertEquals(1, accept.getLocalAccepts());
+    }
+
+    @Test
+    public void ambiguousScore_escalatesToRemote() {
+        CascadingImageService service = new CascadingImageService(img -> 0.5f, remoteSaysCat);
+
+        assertTrue(service.imageContainsCat(scene(Color.GRAY), 50f));
+        assertEquals(1, remoteCalls.get());
+        assertEquals(1.0, service.getEscalationRate());
+    }
+
+    @Test
+    public void sceneMemory_reusesVerdictForSameScene() {
+        CascadingImageService service = new CascadingImageService(new SceneMemoryScorer(), remoteSaysCat);
+        BufferedImage first = scene(Color.GRAY);
+        BufferedImage sameSceneWithNoise = scene(Color.GRAY);
+        sameSceneWithNoise.setRGB(10, 10, Color.WHITE.getRGB());
+
+        assertTrue(service.imageContainsCat(first, 50f));
+        assertTrue(service.imageContainsCat(sameSceneWithNoise, 50f));
+        assertTrue(service.imageContainsCat(first, 50f));
+
+        assertEquals(1, remoteCalls.get());
+        assertEquals(2, service.getLocalRecalls());
+        assertEquals(1.0 / 3, service.getEscalationRate(), 1e-9);
+    }
+
+    @Test
+    public void sceneMemory_recallsRemoteResultForAnyThreshold() {
+        DetectionResult tabby = DetectionResult.of(List.of(new DetectionResult.Label("Cat", 70.0f)));
+        ImageService remote = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+                throw new AssertionError("expected detect");
+            }
+
+            @Override
+            public DetectionResult detect(BufferedImage image) {
+                remoteCalls.incrementAndGet();
+                return tabby;
+            }
+        };
+        CascadingImageService service = new CascadingImageService(new SceneMemoryScorer(), remote);
+
+        assertTrue(service.imageContainsCat(scene(Color.GRAY), 60f));
+        assertFalse(service.imageContainsCat(scene(Color.GRAY), 80f));
+        assertEquals(tabby, service.detect(scene(Color.GRAY)));
+        assertEquals(1, remoteCalls.get());
+    }
+
+    @Test
+    public void sceneMemory_newSceneIsEscalated() {
+        SceneMemoryScorer scorer = new SceneMemoryScorer();
+        scorer.learn(scene(Color.GRAY), DetectionResult.empty());
+
+        assertEquals(0f, scorer.score(scene(Color.GRAY)));
+        assertEquals(DetectionResult.empty(), scorer.recall(scene(Color.GRAY)));
+        assertNull(scorer.recall(scene(Color.ORANGE)));
+        assertEquals(0.5f, scorer.score(scene(Color.ORANGE)));
+    }
+
+    @Test
+    public void sceneMemory_smallHighContrastPatchIsEscalated() {
+        CascadingImageService service = new CascadingImageService(new SceneMemoryScorer(), remoteSaysCat);
+        service.imageContainsCat(scene(Color.GRAY), 50f);
+        BufferedImage intruder = scene(Color.GRAY);
+        Graphics2D g = intruder.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(200, 150, 20, 15);
+        g.dispose();
+
+        assertTrue(service.imageContainsCat(intruder, 50f));
+        assertEquals(2, remoteCalls.get());
+        assertEquals(0, service.getLocalRecalls());
+    }
+
+    @Test
+    public void screen_recallsOncePerImage() {
+        AtomicInteger recalls = new AtomicInteger();
+        ImageScorer scorer = new SceneMemoryScorer() {
+            @Override
+            public DetectionResult recall(BufferedImage image) {
+                recalls.incrementAndGet();
+                return super.recall(image);
+            }
+        };
+        CascadingImageService service = new CascadingImageService(scorer, remoteSaysCat);
+
+        service.imageContainsCat(scene(Color.GRAY), 50f);
+        service.imageContainsCat(scene(Color.GRAY), 50f);
+
+        assertEquals(2, recalls.get());
+        assertEquals(1, remoteCalls.get());
+    }
+
+    @Test
+    public void nullImage_rejected() {
+        CascadingImageService service = new CascadingImageService(new SceneMemoryScorer(), remoteSaysCat);
+        assertThrows(IllegalArgumentException.class, () -> service.detect(null));
+        assertThrows(IllegalArgumentException.class, () -> service.imageContainsCat(null, 50.0f));
+    }
+
+    @Test
+    public void bandsOutOfOrder_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CascadingImageService(img -> 0f, remoteSaysCat, 0.9f, 0.1f));
+    }
+
+    private static BufferedImage scene(Color background) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, 320, 240);
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(40, 60, 100, 80);
+        g.dispose();
+        return image;
+    }
+}
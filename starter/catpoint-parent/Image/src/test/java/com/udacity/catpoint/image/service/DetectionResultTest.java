@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DetectionResultTest {
+
+    private final DetectionResult result = DetectionResult.of(List.of(
+            new DetectionResult.Label("Cat", 72.5f),
+            new DetectionResult.Label("Dog", 40.0f),
+            new DetectionResult.Label("Pet", 91.0f)));
+
+    @Test
+    public void sameResult_answersAnyThreshold() {
+        assertTrue(result.containsCat(50.0f));
+        assertTrue(result.containsCat(72.5f));
+        assertFalse(result.containsCat(80.0f));
+        assertTrue(result.contains("dog", 30.0f));
+        assertFalse(result.contains("Dog", 50.0f));
+        assertEquals(0f, result.confidence("Horse"));
+    }
+
+    @Test
+    public void defaultDetect_wrapsYesNoService() {
+        ImageService yes = (image, threshold) -> true;
+        ImageService no = (image, threshold) -> false;
+
+        assertTrue(yes.detect(null).containsCat(99.0f));
+        assertEquals(DetectionResult.empty(), no.detect(null));
+    }
+
+    @Test
+    public void serializationRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(result, in.readObject());
+        }
+    }
+}
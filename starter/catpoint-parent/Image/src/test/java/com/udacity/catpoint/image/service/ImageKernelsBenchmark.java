@@ -0,0 +1,114 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Rough benchmark comparing {@link ImageKernels} with the AWT way of doing the same thing, on a
+ * camera-sized frame. Not run as part of the test suite; launch the main method directly with
+ * an optional frame size, for example {@code ImageKernelsBenchmark 1920 1080}. Add
+ * {@code -XX:-UseSuperWord} to the JVM options to see what auto-vectorization contributes.
+ */
+public class ImageKernelsBenchmark {
+
+    private static final int ITERATIONS = 200;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int width = args.length > 1 ? Integer.parseInt(args[0]) : 1280;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 720;
+        BufferedImage frame = noise(width, height, 1);
+        BufferedImage next = noise(width, height, 2);
+        int count = width * height;
+        int[] rgb = ImageKernels.pixels(frame);
+        byte[] gray = new byte[count];
+        byte[] previousGray = new byte[count];
+        ImageKernels.grayscale(ImageKernels.pixels(next), previousGray, count);
+
+        run("grayscale awt", () -> {
+            BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = target.createGraphics();
+            g.drawImage(frame, 0, 0, null);
+            g.dispose();
+        });
+        run("grayscale kernel", () -> ImageKernels.grayscale(rgb, gray, count));
+
+        int[] half = new int[(width / 2) * (height / 2)];
+        int[] quarter = new int[(width / 4) * (height / 4)];
+        run("downscale 4x awt area", () -> {
+            Image scaled = frame.getScaledInstance(width / 4, height / 4, Image.SCALE_AREA_AVERAGING);
+            BufferedImage target = new BufferedImage(width / 4, height / 4, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = target.createGraphics();
+            g.drawImage(scaled, 0, 0, null);
+            g.dispose();
+        });
+        run("downscale 4x awt bilinear", () -> redraw(frame, width / 4, height / 4));
+        run("downscale 4x kernel box", () -> {
+            ImageKernels.halve(rgb, width, height, half);
+            ImageKernels.halve(half, width / 2, height / 2, quarter);
+        });
+
+        int[] resized = new int[(width * 3 / 4) * (height * 3 / 4)];
+        run("resize 3/4 awt bilinear", () -> redraw(frame, width * 3 / 4, height * 3 / 4));
+        run("resize 3/4 kernel bilinear", () -> ImageKernels.bilinear(rgb, width, height, resized, width * 3 / 4, height * 3 / 4));
+
+        run("difference getRGB", () -> {
+            int changed = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int delta = ImageKernels.luma(frame.getRGB(x, y)) - ImageKernels.luma(next.getRGB(x, y));
+                    changed += Math.abs(delta) > 25 ? 1 : 0;
+                }
+            }
+            sink += changed;
+        });
+        byte[] mask = new byte[count];
+        run("difference kernel", () -> sink += ImageKernels.difference(previousGray, gray, 25, mask, count));
+
+        int[] bins = new int[256];
+        run("histogram getRGB", () -> {
+            int[] counts = new int[256];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    counts[ImageKernels.luma(frame.getRGB(x, y))]++;
+                }
+            }
+            sink += counts[128];
+        });
+        run("histogram kernel", () -> ImageKernels.histogram(gray, count, bins));
+
+        System.out.println("(ignore) " + sink);
+    }
+
+    private static void redraw(BufferedImage image, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        int[] pixels = ImageKernels.pixels(image);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() & 0xFFFFFF;
+        }
+        return image;
+    }
+
+    private static void run(String name, Runnable task) {
+        for (int i = 0; i < ITERATIONS / 2; i++) {
+            task.run(); //warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-28s %8.3f ms/op%n", name, elapsed / 1e6 / ITERATIONS);
+    }
+}
@@ -0,0 +1,183 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageKernelsTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private final Random random = new Random(46);
+
+    @Test
+    public void pixels_sharesArrayOfIntImagesAndConvertsOthers() {
+        BufferedImage rgb = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        ImageKernels.pixels(rgb)[5] = 0x123456;
+        assertEquals(0x123456, rgb.getRGB(1, 1) & 0xFFFFFF);
+
+        BufferedImage bgr = new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR);
+        bgr.setRGB(2, 1, 0xABCDEF);
+        assertEquals(0xABCDEF, ImageKernels.pixels(bgr)[6] & 0xFFFFFF);
+    }
+
+    @Test
+    public void grayscale_matchesLumaOfEachPixel() {
+        int[] rgb = randomRgb(WIDTH * HEIGHT);
+        byte[] gray = new byte[rgb.length];
+
+        ImageKernels.grayscale(rgb, gray, rgb.length);
+
+        for (int i = 0; i < rgb.length; i++) {
+            int p = rgb[i];
+            double luma = 0.299 * ((p >> 16) & 0xFF) + 0.587 * ((p >> 8) & 0xFF) + 0.114 * (p & 0xFF);
+            assertEquals(luma, gray[i] & 0xFF, 2.0);
+            assertEquals(ImageKernels.luma(p), gray[i] & 0xFF);
+        }
+    }
+
+    @Test
+    public void halve_averagesEachTwoByTwoBlock() {
+        int[] rgb = randomRgb(WIDTH * HEIGHT);
+        int[] half = new int[(WIDTH / 2) * (HEIGHT / 2)];
+
+        ImageKernels.halve(rgb, WIDTH, HEIGHT, half);
+
+        for (int y = 0; y < HEIGHT / 2; y++) {
+            for (int x = 0; x < WIDTH / 2; x++) {
+                int[] block = {rgb[2 * y * WIDTH + 2 * x], rgb[2 * y * WIDTH + 2 * x + 1],
+                        rgb[(2 * y + 1) * WIDTH + 2 * x], rgb[(2 * y + 1) * WIDTH + 2 * x + 1]};
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int sum = 0;
+                    for (int p : block) {
+                        sum += (p >> shift) & 0xFF;
+                    }
+                    assertEquals((sum + 2) / 4, (half[y * (WIDTH / 2) + x] >> shift) & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void boxDownscale_averagesEachBlock() {
+        byte[] gray = randomGray(WIDTH * HEIGHT);
+        int factor = 3;
+        byte[] small = new byte[(WIDTH / factor) * (HEIGHT / factor)];
+
+        ImageKernels.boxDownscale(gray, WIDTH, HEIGHT, factor, small);
+
+        for (int y = 0; y < HEIGHT / factor; y++) {
+            for (int x = 0; x < WIDTH / factor; x++) {
+                int sum = 0;
+                for (int sy = 0; sy < factor; sy++) {
+                    for (int sx = 0; sx < factor; sx++) {
+                        sum += gray[(y * factor + sy) * WIDTH + x * factor + sx] & 0xFF;
+                    }
+                }
+                assertEquals((sum + 4) / 9, small[y * (WIDTH / factor) + x] & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void bilinear_sameSizeIsIdentityAndMatchesReferenceWhenResizing() {
+        int[] rgb = randomRgb(WIDTH * HEIGHT);
+        int[] copy = new int[rgb.length];
+        ImageKernels.bilinear(rgb, WIDTH, HEIGHT, copy, WIDTH, HEIGHT);
+        assertArrayEquals(rgb, copy);
+
+        int dstWidth = 25;
+        int dstHeight = 30;
+        int[] resized = new int[dstWidth * dstHeight];
+        ImageKernels.bilinear(rgb, WIDTH, HEIGHT, resized, dstWidth, dstHeight);
+        for (int y = 0; y < dstHeight; y++) {
+            for (int x = 0; x < dstWidth; x++) {
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    double expected = referenceBilinear(rgb, x, y, dstWidth, dstHeight, shift);
+                    assertEquals(expected, (resized[y * dstWidth + x] >> shift) & 0xFF, 3.0, "at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void difference_countsAndMasksPixelsOverThreshold() {
+        byte[] previous = randomGray(1001);
+        byte[] current = randomGray(1001);
+        byte[] mask = new byte[1001];
+
+        int changed = ImageKernels.difference(previous, current, 40, mask, previous.length);
+
+        int expected = 0;
+        for (int i = 0; i < previous.length; i++) {
+            boolean moved = Math.abs((previous[i] & 0xFF) - (current[i] & 0xFF)) > 40;
+            expected += moved ? 1 : 0;
+            assertEquals(moved ? (byte) 0xFF : 0, mask[i]);
+        }
+        assertEquals(expected, changed);
+        assertEquals(expected, ImageKernels.difference(previous, current, 40, null, previous.length));
+        assertEquals(0, ImageKernels.difference(previous, previous, 0, null, previous.length));
+    }
+
+    @Test
+    public void sumOfAbsoluteDifferences_matchesReference() {
+        byte[] a = randomGray(999);
+        byte[] b = randomGray(999);
+        long expected = 0;
+        for (int i = 0; i < a.length; i++) {
+            expected += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        assertEquals(expected, ImageKernels.sumOfAbsoluteDifferences(a, b, a.length));
+    }
+
+    @Test
+    public void histogram_countsEveryLevel() {
+        byte[] gray = randomGray(1003);
+        int[] bins = new int[256];
+        bins[7] = 99;
+
+        ImageKernels.histogram(gray, gray.length, bins);
+
+        int[] expected = new int[256];
+        for (byte value : gray) {
+            expected[value & 0xFF]++;
+        }
+        assertArrayEquals(expected, bins);
+    }
+
+    private double referenceBilinear(int[] rgb, int x, int y, int dstWidth, int dstHeight, int shift) {
+        double sx = Math.max(0, (x + 0.5) * WIDTH / dstWidth - 0.5);
+        double sy = Math.max(0, (y + 0.5) * HEIGHT / dstHeight - 0.5);
+        int x0 = Math.min((int) sx, WIDTH - 1);
+        int y0 = Math.min((int) sy, HEIGHT - 1);
+        int x1 = Math.min(x0 + 1, WIDTH - 1);
+        int y1 = Math.min(y0 + 1, HEIGHT - 1);
+        double fx = sx - x0;
+        double fy = sy - y0;
+        double top = channel(rgb, x0, y0, shift) * (1 - fx) + channel(rgb, x1, y0, shift) * fx;
+        double bottom = channel(rgb, x0, y1, shift) * (1 - fx) + channel(rgb, x1, y1, shift) * fx;
+        return top * (1 - fy) + bottom * fy;
+    }
+
+    private static int channel(int[] rgb, int x, int y, int shift) {
+        return (rgb[y * WIDTH + x] >> shift) & 0xFF;
+    }
+
+    private int[] randomRgb(int count) {
+        int[] rgb = new int[count];
+        for (int i = 0; i < count; i++) {
+            rgb[i] = random.nextInt() & 0xFFFFFF;
+        }
+        return rgb;
+    }
+
+    private byte[] randomGray(int count) {
+        byte[] gray = new byte[count];
+        random.nextBytes(gray);
+        return gray;
+    }
+}
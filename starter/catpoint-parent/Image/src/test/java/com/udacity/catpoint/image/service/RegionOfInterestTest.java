@@ -0,0 +1,92 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegionOfInterestTest {
+
+    @Test
+    public void singleRegion_sharesPixelsWithFrame() {
+        BufferedImage frame = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        RegionOfInterest bottomHalf = RegionOfInterest.parse("0,0.5,1,0.5");
+
+        BufferedImage crop = bottomHalf.apply(frame);
+        frame.setRGB(10, 150, 0xFF0000);
+
+        assertEquals(400, crop.getWidth());
+        assertEquals(100, crop.getHeight());
+        assertSame(frame.getRaster().getDataBuffer(), crop.getRaster().getDataBuffer());
+        assertEquals(0xFF0000, crop.getRGB(10, 50) & 0xFFFFFF);
+    }
+
+    @Test
+    public void severalRegions_masksOutsideRegions() {
+        BufferedImage frame = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 100, 100);
+        g.dispose();
+        RegionOfInterest corners = RegionOfInterest.of(
+                new Rectangle2D.Double(0, 0, 0.2, 0.2), new Rectangle2D.Double(0.8, 0.8, 0.2, 0.2));
+
+        BufferedImage masked = corners.apply(frame);
+
+        assertEquals(100, masked.getWidth());
+        assertEquals(0xFFFFFF, masked.getRGB(5, 5) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, masked.getRGB(95, 95) & 0xFFFFFF);
+        assertEquals(0, masked.getRGB(50, 50) & 0xFFFFFF);
+    }
+
+    @Test
+    public void fullFrame_returnsSameImage() {
+        BufferedImage frame = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        assertSame(frame, RegionOfInterest.parse(" ").apply(frame));
+    }
+
+    @Test
+    public void outOfRangeRegion_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> RegionOfInterest.parse("0.5,0,0.6,1"));
+        assertThrows(IllegalArgumentException.class, () -> RegionOfInterest.parse("0,0,1"));
+    }
+
+    @Test
+    public void fromProperties_keyedByCamera() {
+        Properties properties = new Properties();
+        properties.setProperty("camera.front.roi", "0,0.5,1,0.5");
+        properties.setProperty("camera.back.roi", "");
+        properties.setProperty("aws.region", "us-east-2");
+
+        Map<String, RegionOfInterest> cameras = RegionOfInterest.fromProperties(properties);
+
+        assertEquals(2, cameras.size());
+        assertEquals(RegionOfInterest.parse("0,0.5,1,0.5"), cameras.get("front"));
+        assertTrue(cameras.get("back").isFullFrame());
+    }
+
+    @Test
+    public void service_passesOnlyRegionToDelegate() throws IOException {
+        AtomicReference<BufferedImage> seen = new AtomicReference<>();
+        RegionOfInterestImageService service = new RegionOfInterestImageService((image, threshold) -> {
+            seen.set(image);
+            return false;
+        }, RegionOfInterest.parse("0.25,0.25,0.5,0.5"));
+        BufferedImage frame = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+
+        service.imageContainsCat(frame, 50f);
+
+        assertEquals(400, seen.get().getWidth());
+        assertEquals(300, seen.get().getHeight());
+        assertEquals(4, service.getPixelsReceived() / service.getPixelsAnalyzed());
+        //cropped frames still go through upload preprocessing
+        assertTrue(new UploadPreprocessor().encode(seen.get()).length > 0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.catpoint.image.service;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Minimal HTTP/1.1 server standing in for the Rekognition endpoint. Every request is answered by
+ * the responder, which receives the 1-based number of the request so tests can script failures,
+ * slow answers and successes.
+ */
+class StubRekognitionServer implements AutoCloseable {
+
+    static final String CAT_LABELS = "{\"Labels\":[{\"Name\":\"Cat\",\"Confidence\":97.5},{\"Name\":\"Pet\",\"Confidence\":96.1}]}";
+    static final String DOG_LABELS = "{\"Labels\":[{\"Name\":\"Dog\",\"Confidence\":95.0}]}";
+
+    /**
+     * Scripted answer: HTTP status, JSON body and how long to wait before sending it.
+     */
+    static class Response {
+        final int status;
+        final String body;
+        final long delayMillis;
+
+        Response(int status, String body, long delayMillis) {
+            this.status = status;
+            this.body = body;
+            this.delayMillis = delayMillis;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body, 0);
+        }
+
+        static Response slow(String body, long delayMillis) {
+            return new Response(200, body, delayMillis);
+        }
+
+        static Response badRequest() {
+            return new Response(400, "{\"__type\":\"InvalidImageFormatException\",\"message\":\"stub rejection\"}", 0);
+        }
+
+        static Response serverError() {
+            return new Response(500, "{\"__type\":\"InternalServerError\",\"message\":\"stub failure\"}", 0);
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final IntFunction<Response> responder;
+
+    StubRekognitionServer(IntFunction<Response> responder) throws IOException {
+        this.responder = responder;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::acceptLoop);
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + serverSocket.getLocalPort());
+    }
+
+    int requestCount() {
+        return requests.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException closed) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = socket.getOutputStream()) {
+            while (true) {
+                int contentLength = readHeaders(in);
+                if (contentLength < 0) {
+                    return;
+                }
+                in.readNBytes(contentLength);
+                Response response = responder.apply(requests.incrementAndGet());
+                Thread.sleep(response.delayMillis);
+                byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+                String head = "HTTP/1.1 " + response.status + " Stub\r\n"
+                        + "Content-Type: application/x-amz-json-1.1\r\n"
+                        + "x-amzn-RequestId: stub-" + requests.get() + "\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n";
+                out.write(head.getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            //client went away or server closed
+        }
+    }
+
+    /**
+     * Reads request headers and returns the content length, or -1 at end of stream.
+     */
+    private static int readHeaders(InputStream in) throws IOException {
+        int contentLength = 0;
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                String header = line.toString().trim();
+                if (header.isEmpty()) {
+                    return contentLength;
+                }
+                if (header.toLowerCase().startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) c);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
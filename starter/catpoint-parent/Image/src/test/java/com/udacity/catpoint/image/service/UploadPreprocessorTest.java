@@ -0,0 +1,70 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadPreprocessorTest {
+
+    private static BufferedImage noise(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void downscale_largeImage_fitsMaxDimensionAndKeepsAspectRatio() {
+        BufferedImage scaled = UploadPreprocessor.downscale(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), 640);
+
+        assertEquals(640, scaled.getWidth());
+        assertEquals(480, scaled.getHeight());
+    }
+
+    @Test
+    public void downscale_smallImage_notResized() {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        assertSame(image, UploadPreprocessor.downscale(image, 640));
+    }
+
+    @Test
+    public void downscale_boxFilterAveragesEachBlock() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xff0000);
+        image.setRGB(1, 0, 0x00ff00);
+        image.setRGB(0, 1, 0x0000ff);
+        image.setRGB(1, 1, 0xffffff);
+
+        BufferedImage scaled = UploadPreprocessor.downscale(image, 2);
+
+        assertEquals(0x808080, scaled.getRGB(0, 0) & 0xffffff);
+        assertEquals(0, scaled.getRGB(1, 0) & 0xffffff);
+    }
+
+    @Test
+    public void encode_noisyImage_staysWithinBudget() throws IOException {
+        UploadPreprocessor preprocessor = new UploadPreprocessor(640, 60_000);
+        byte[] jpeg = preprocessor.encode(noise(1600, 1200, BufferedImage.TYPE_INT_RGB));
+
+        assertTrue(jpeg.length <= 60_000, "encoded " + jpeg.length + " bytes");
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertEquals(640, decoded.getWidth());
+        assertTrue(preprocessor.getEstimatedBytesSaved() > 0);
+    }
+
+    @Test
+    public void encode_imageWithAlpha_encodesAsJpeg() throws IOException {
+        byte[] jpeg = new UploadPreprocessor().encode(noise(100, 80, BufferedImage.TYPE_INT_ARGB));
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(jpeg)));
+    }
+}
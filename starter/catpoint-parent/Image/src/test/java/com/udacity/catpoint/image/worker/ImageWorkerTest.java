@@ -0,0 +1,156 @@
+package com.udacity.catpoint.image.worker;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.ImageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageWorkerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ring_pixelsWrittenByOneMappingAreReadByAnother() throws Exception {
+        Path file = directory.resolve("frames.ring");
+        try (SharedFrameRing client = SharedFrameRing.create(file, 2, 64 * 48);
+             SharedFrameRing worker = SharedFrameRing.open(file)) {
+            assertEquals(2, worker.getSlots());
+            assertEquals(64 * 48, worker.getSlotPixels());
+
+            BufferedImage intImage = image(BufferedImage.TYPE_INT_RGB, 64, 48, Color.ORANGE);
+            BufferedImage byteImage = image(BufferedImage.TYPE_3BYTE_BGR, 32, 20, Color.BLUE);
+            client.write(0, intImage);
+            client.write(1, byteImage);
+
+            assertSamePixels(intImage, worker.read(0, 64, 48));
+            assertSamePixels(byteImage, worker.read(1, 32, 20));
+        }
+    }
+
+    @Test
+    public void ring_frameLargerThanSlot_rejected() throws Exception {
+        try (SharedFrameRing ring = SharedFrameRing.create(directory.resolve("frames.ring"), 1, 100)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> ring.write(0, image(BufferedImage.TYPE_INT_RGB, 20, 10, Color.WHITE)));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> ring.write(1, image(BufferedImage.TYPE_INT_RGB, 10, 10, Color.WHITE)));
+        }
+    }
+
+    @Test
+    public void builder_rejectsNoWorkersOrThreads() {
+        assertThrows(IllegalArgumentException.class, () -> WorkerImageService.builder().processes(0));
+        assertThrows(IllegalArgumentException.class, () -> WorkerImageService.builder().processes(-2));
+        assertThrows(IllegalArgumentException.class, () -> WorkerImageService.builder().threads(0));
+    }
+
+    @Test
+    public void serve_answersEachRequestFromTheFrameInItsSlot() throws Exception {
+        Path file = directory.resolve("frames.ring");
+        try (SharedFrameRing client = SharedFrameRing.create(file, 2, 100);
+             SharedFrameRing worker = SharedFrameRing.open(file)) {
+            client.write(0, image(BufferedImage.TYPE_INT_RGB, 10, 10, Color.WHITE));
+            client.write(1, image(BufferedImage.TYPE_INT_RGB, 10, 10, Color.BLACK));
+            String requests = "DETECT\t1\t0\t10\t10\nDETECT\t2\t1\t10\t10\nDETECT\t3\t5\t10\t10\n";
+            ByteArrayOutputStream verdicts = new ByteArrayOutputStream();
+
+            ImageWorker.serve(worker, new WhiteIsCatService(), 2,
+                    new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), verdicts);
+
+            List<String> lines = List.of(verdicts.toString(StandardCharsets.UTF_8).split("\n"));
+            assertEquals(3, lines.size());
+            assertTrue(lines.contains("OK\t1\tCat\t99.0"), lines.toString());
+            assertTrue(lines.contains("OK\t2"), lines.toString());
+            assertTrue(lines.stream().anyMatch(line -> line.startsWith("ERR\t3\t")), lines.toString());
+        }
+    }
+
+    @Test
+    public void workerProcesses_answerConcurrentScansAndAreRestartedWhenKilled() throws Exception {
+        try (WorkerImageService service = WorkerImageService.builder()
+                .processes(2)
+                .threads(2)
+                .slots(4, 320 * 240)
+                .ringDirectory(directory)
+                .timeout(Duration.ofSeconds(30))
+                .fallback((image, threshold) -> {
+                    throw new AssertionError("fallback used");
+                })
+                .build()) {
+            assertEquals(2, service.getWorkerPids().size());
+            BufferedImage frame = image(BufferedImage.TYPE_INT_RGB, 320, 240, Color.GRAY);
+
+            ExecutorService callers = Executors.newFixedThreadPool(6);
+            try {
+                List<Future<DetectionResult>> results = new ArrayList<>();
+                for (int i = 0; i < 60; i++) {
+                    results.add(callers.submit(() -> service.detect(frame)));
+                }
+                for (Future<DetectionResult> result : results) {
+                    assertNotNull(result.get());
+                }
+            } finally {
+                callers.shutdownNow();
+            }
+            assertEquals(60, service.getScans());
+            assertEquals(0, service.getFallbacks());
+
+            for (long pid : service.getWorkerPids()) {
+                ProcessHandle.of(pid).ifPresent(process -> {
+                    process.destroyForcibly();
+                    process.onExit().join();
+                });
+            }
+            assertNotNull(service.detect(frame));
+            assertNotNull(service.detect(frame));
+            assertTrue(service.getRestarts() >= 1);
+        }
+    }
+
+    private static BufferedImage image(int type, int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 2, 2);
+        graphics.dispose();
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y) & 0xFFFFFF, actual.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    private static class WhiteIsCatService implements ImageService {
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            return false;
+        }
+
+        @Override
+        public DetectionResult detect(BufferedImage image) {
+            boolean white = (image.getRGB(5, 5) & 0xFFFFFF) == 0xFFFFFF;
+            return white ? DetectionResult.of(List.of(new DetectionResult.Label("Cat", 99.0f))) : DetectionResult.empty();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.security.application;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Component that displays camera frames, from a single still up to a live feed. Frames may be
+ * submitted from any thread. They are scaled on a dedicated background thread into reused
+ * buffers, so neither the EDT nor the garbage collector does per-frame work.
+ *
+ * Only the newest frame matters: if frames arrive faster than they can be scaled and painted,
+ * the ones in between are dropped rather than queued.
+ *
+ * The buffers are compatible BufferedImages rather than VolatileImages: their contents change
+ * on every frame from the CPU, so they could not stay in video memory anyway, and Swing already
+ * paints through its own accelerated back buffer.
+ */
+public class CameraView extends JComponent {
+
+    private final int viewWidth;
+    private final int viewHeight;
+
+    //newest frame waiting to be scaled, or null
+    private final AtomicReference<BufferedImage> pending = new AtomicReference<>();
+    private final Object bufferLock = new Object();
+    private Thread scaler;
+
+    //scaler-thread only
+    private BufferedImage intermediate;
+    private BufferedImage back;
+
+    //guarded by bufferLock
+    private BufferedImage front;
+    private boolean frontPainted = true;
+
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder framesPainted = new LongAdder();
+
+    public CameraView(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        setPreferredSize(new Dimension(viewWidth, viewHeight));
+        setOpaque(true);
+        setBackground(Color.WHITE);
+    }
+
+    /**
+     * Submits a frame for display. Safe to call from any thread, and does not block.
+     * The caller must not modify the frame afterwards.
+     */
+    public void submitFrame(BufferedImage frame) {
+        Objects.requireNonNull(frame, "frame");
+        framesReceived.increment();
+        if (pending.getAndSet(frame) != null) {
+            framesDropped.increment(); //replaced before it was scaled
+        }
+        LockSupport.unpark(scalerThread());
+    }
+
+    private synchronized Thread scalerThread() {
+        if (scaler == null) {
+            scaler = new Thread(this::scaleLoop, "camera-view-scaler");
+            scaler.setDaemon(true);
+            scaler.start();
+        }
+        return scaler;
+    }
+
+    private void scaleLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            BufferedImage frame = pending.getAndSet(null);
+            if (frame == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            scale(frame);
+            synchronized (bufferLock) {
+                if (!frontPainted) {
+                    framesDropped.increment(); //painting fell behind, skip the unseen frame
+                }
+                BufferedImage previous = front;
+                front = back;
+                back = previous;
+                frontPainted = false;
+            }
+            repaint(0, 0, viewWidth, viewHeight);
+        }
+    }
+
+    /**
+     * Scales the frame into the back buffer. Large frames are first drawn into an intermediate
+     * buffer at twice the view size, so that no single bilinear step skips too many source pixels.
+     */
+    private void scale(BufferedImage frame) {
+        if (back == null) {
+            back = createBuffer(viewWidth, viewHeight);
+        }
+        BufferedImage source = frame;
+        if (frame.getWidth() > viewWidth * 4 || frame.getHeight() > viewHeight * 4) {
+            if (intermediate == null) {
+                intermediate = createBuffer(viewWidth * 2, viewHeight * 2);
+            }
+            draw(frame, intermediate);
+            source = intermediate;
+        }
+        draw(source, back);
+    }
+
+    private static void draw(BufferedImage source, BufferedImage target) {
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, target.getWidth(), target.getHeight(), null);
+        g.dispose();
+    }
+
+    private BufferedImage createBuffer(int width, int height) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null && !GraphicsEnvironment.isHeadless()) {
+            configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        if (configuration == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        return configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        synchronized (bufferLock) {
+            if (front == null) {
+                g.setColor(getBackground());
+                g.fillRect(0, 0, getWidth(), getHeight());
+                return;
+            }
+            g.drawImage(front, 0, 0, null);
+            if (!frontPainted) {
+                frontPainted = true;
+                framesPainted.increment();
+            }
+        }
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    public long getFramesPainted() {
+        return framesPainted.sum();
+    }
+}
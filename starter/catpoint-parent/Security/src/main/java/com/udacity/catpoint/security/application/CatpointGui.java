@@ -2,14 +2,38 @@ package com.udacity.catpoint.security.application;
 
 
 
+import com.udacity.catpoint.image.io.ImageDecoder;
+import com.udacity.catpoint.image.service.CascadingImageService;
 import com.udacity.catpoint.image.service.FakeImageService;
 import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.RegionOfInterest;
+import com.udacity.catpoint.image.service.RegionOfInterestImageService;
+import com.udacity.catpoint.image.service.SceneMemoryScorer;
+import com.udacity.catpoint.image.worker.WorkerImageService;
+import com.udacity.catpoint.security.data.EventHistoryStore;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.RecordingSecurityRepository;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.notification.NotificationDispatcher;
+import com.udacity.catpoint.security.notification.NotificationSink;
+import com.udacity.catpoint.security.replication.ReplicatedSecurityRepository;
+import com.udacity.catpoint.security.service.AlarmRules;
+import com.udacity.catpoint.security.service.SecurityLanes;
 import com.udacity.catpoint.security.service.SecurityService;
+import com.udacity.catpoint.security.service.SensorHeartbeats;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
@@ -18,19 +42,27 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private ImageService imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
+    //the id of the app's one camera in the -Dcatpoint.cameras file
+    private static final String CAMERA_ID = "main";
+
+    private SecurityRepository securityRepository = createRepository();
+    private ImageService imageService = createImageService();
+    private SecurityService securityService = new SecurityService(securityRepository, imageService, loadAlarmRules());
+    //sensor changes and scans run off the event thread, and scans give way to sensor changes
+    private SecurityLanes lanes = SecurityLanes.builder(securityService).build();
     private DisplayPanel displayPanel = new DisplayPanel(securityService);
-    private ControlPanel controlPanel = new ControlPanel(securityService);
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-    private ImagePanel imagePanel = new ImagePanel(securityService);
+    private ControlPanel controlPanel = new ControlPanel(securityService, lanes);
+    private SensorPanel sensorPanel = new SensorPanel(securityService, lanes);
+    private ImageDecoder imageDecoder = new ImageDecoder();
+    private ImagePanel imagePanel = new ImagePanel(securityService, imageDecoder, lanes);
 
     public CatpointGui() {
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addNotificationSinks();
+        trackSensorHealth();
 
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
@@ -42,4 +74,147 @@ public class CatpointGui extends JFrame {
         getContentPane().add(mainPanel);
 
     }
+
+    /**
+     * Sends status changes to the sinks listed in {@code -Dcatpoint.notify}, separated by commas,
+     * for example {@code webhook:http://localhost:8080/alarm,mqtt:localhost:1883/catpoint}.
+     */
+    private void addNotificationSinks() {
+        String sinks = System.getProperty("catpoint.notify");
+        if (sinks == null) {
+            return;
+        }
+        NotificationDispatcher dispatcher = NotificationDispatcher.builder().build();
+        for (String spec : sinks.split(",")) {
+            try {
+                dispatcher.subscribe(NotificationSink.parse(spec.trim()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring notification sink: " + e.getMessage());
+            }
+        }
+        securityService.addStatusListener(dispatcher);
+    }
+
+    /**
+     * When started with {@code -Dcatpoint.sensorTimeout=PT30S} (any ISO-8601 duration), sensors
+     * that go that long without a report or change are shown as not reporting.
+     */
+    private void trackSensorHealth() {
+        String timeout = System.getProperty("catpoint.sensorTimeout");
+        if (timeout == null) {
+            return;
+        }
+        try {
+            SensorHeartbeats heartbeats = SensorHeartbeats.builder()
+                    .timeout(Duration.parse(timeout))
+                    .listener(securityService::sensorHealthChanged)
+                    .build();
+            securityService.trackHealth(heartbeats.start());
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            System.err.println("Not tracking sensor health: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps the repository so every transition is kept in the event history. The app still
+     * works without history if the history directory can't be opened. When started with
+     * {@code -Dcatpoint.standby=host:port}, changes are also replicated to a standby process.
+     */
+    private static SecurityRepository createRepository() {
+        SecurityRepository repository = new PretendDatabaseSecurityRepositoryImpl();
+        String standby = System.getProperty("catpoint.standby");
+        if (standby != null) {
+            try {
+                repository = new ReplicatedSecurityRepository(repository, parseAddress(standby));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Not replicating to a standby: " + e.getMessage());
+            }
+        }
+        try {
+            EventHistoryStore history = new EventHistoryStore(Paths.get(System.getProperty("user.home"), ".catpoint", "history"));
+            return new RecordingSecurityRepository(repository, history);
+        } catch (IOException e) {
+            System.err.println("Event history disabled: " + e);
+            return repository;
+        }
+    }
+
+    /**
+     * Parses {@code host:port}.
+     */
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected host:port but got '" + address + "'");
+        }
+        try {
+            //also rejects ports out of range
+            return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad port in '" + address + "'", e);
+        }
+    }
+
+    /**
+     * The image service for the camera. Only scenes the camera hasn't shown before reach the
+     * (fake) recognition service, and only the part of the frame configured as
+     * {@code camera.main.roi} in the properties file given with {@code -Dcatpoint.cameras=path}
+     * is analyzed.
+     */
+    private static ImageService createImageService() {
+        ImageService service = new CascadingImageService(new SceneMemoryScorer(), createRecognitionService());
+        RegionOfInterest region = loadCameraRegions().getOrDefault(CAMERA_ID, RegionOfInterest.FULL_FRAME);
+        return region.isFullFrame() ? service : new RegionOfInterestImageService(service, region);
+    }
+
+    private static Map<String, RegionOfInterest> loadCameraRegions() {
+        String file = System.getProperty("catpoint.cameras");
+        if (file == null) {
+            return Collections.emptyMap();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Paths.get(file))) {
+            properties.load(reader);
+            return RegionOfInterest.fromProperties(properties);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Analyzing whole camera frames, could not load " + file + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * The (fake) recognition service, run in separate worker processes when started with
+     * {@code -Dcatpoint.imageWorkers=N}.
+     */
+    private static ImageService createRecognitionService() {
+        String workers = System.getProperty("catpoint.imageWorkers");
+        if (workers == null) {
+            return new FakeImageService();
+        }
+        try {
+            return WorkerImageService.builder()
+                    .processes(Integer.parseInt(workers))
+                    .fallback(new FakeImageService())
+                    .build();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Recognizing images in this process, could not start image workers: " + e);
+            return new FakeImageService();
+        }
+    }
+
+    /**
+     * Uses the alarm policy file given with {@code -Dcatpoint.rules=path}, or the default policy.
+     */
+    private static AlarmRules loadAlarmRules() {
+        String file = System.getProperty("catpoint.rules");
+        if (file == null) {
+            return AlarmRules.defaults();
+        }
+        try {
+            return AlarmRules.load(Paths.get(file));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Using default alarm rules, could not load " + file + ": " + e.getMessage());
+            return AlarmRules.defaults();
+        }
+    }
 }
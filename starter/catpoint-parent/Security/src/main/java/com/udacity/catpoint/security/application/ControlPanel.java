@@ -2,6 +2,7 @@ package com.udacity.catpoint.security.application;
 
 import com.udacity.catpoint.security.service.StyleService;
 import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.service.SecurityLanes;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
@@ -16,11 +17,21 @@ import java.util.stream.Collectors;
 public class ControlPanel extends JPanel {
 
     private SecurityService securityService;
+    private SecurityLanes lanes;
     private Map<ArmingStatus, JButton> buttonMap;
 
 
     public ControlPanel(SecurityService securityService) {
+        this(securityService, null);
+    }
+
+    /**
+     * @param lanes changes the arming status on the sensor lane, or null to change it on the event
+     *              thread
+     */
+    public ControlPanel(SecurityService securityService, SecurityLanes lanes) {
         super();
+        this.lanes = lanes;
         setLayout(new MigLayout());
         this.securityService = securityService;
 
@@ -36,8 +47,18 @@ public class ControlPanel extends JPanel {
         //add an action listener to each button that applies its arming status and recolors all the buttons
         buttonMap.forEach((k, v) -> {
             v.addActionListener(e -> {
-                securityService.setArmingStatus(k);
-                buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
+                if (lanes == null) {
+                    securityService.setArmingStatus(k);
+                    showArmingStatus(k);
+                    return;
+                }
+                lanes.setArmingStatus(k).whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(null, "Could not change arming status: " + error.getMessage());
+                    } else {
+                        showArmingStatus(k);
+                    }
+                }));
             });
         });
 
@@ -49,4 +70,8 @@ public class ControlPanel extends JPanel {
 
 
     }
+
+    private void showArmingStatus(ArmingStatus armingStatus) {
+        buttonMap.forEach((status, button) -> button.setBackground(status == armingStatus ? status.getColor() : null));
+    }
 }
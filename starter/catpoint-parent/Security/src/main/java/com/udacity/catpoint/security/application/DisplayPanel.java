@@ -19,7 +19,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, StatusTopic.ALARM);
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -27,7 +27,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
         panelLabel.setFont(StyleService.HEADING_FONT);
 
-        notify(securityService.getAlarmStatus());
+        showStatus(securityService.getAlarmStatus());
 
         add(panelLabel, "span 2, wrap");
         add(systemStatusLabel);
@@ -37,6 +37,11 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     @Override
     public void notify(AlarmStatus status) {
+        //changes may come from the sensor and image lanes
+        SwingUtilities.invokeLater(() -> showStatus(status));
+    }
+
+    private void showStatus(AlarmStatus status) {
         currentStatusLabel.setText(status.getDescription());
         currentStatusLabel.setBackground(status.getColor());
         currentStatusLabel.setOpaque(true);
@@ -1,17 +1,18 @@
 package com.udacity.catpoint.security.application;
 
 
+import com.udacity.catpoint.image.io.ImageDecoder;
 import com.udacity.catpoint.security.service.StyleService;
 import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.SecurityLanes;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
@@ -20,25 +21,35 @@ public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
 
     private JLabel cameraHeader;
-    private JLabel cameraLabel;
-    private BufferedImage currentCameraImage;
+    private CameraView cameraView;
+    private ImageDecoder imageDecoder;
+    private SecurityLanes lanes;
+    private volatile BufferedImage currentCameraImage;
+    private volatile File currentCameraFile;
 
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
-    public ImagePanel(SecurityService securityService) {
+    public ImagePanel(SecurityService securityService, ImageDecoder imageDecoder) {
+        this(securityService, imageDecoder, null);
+    }
+
+    /**
+     * @param lanes scans pictures on the image lane, or null to scan them on the event thread
+     */
+    public ImagePanel(SecurityService securityService, ImageDecoder imageDecoder, SecurityLanes lanes) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        this.imageDecoder = imageDecoder;
+        this.lanes = lanes;
+        securityService.addStatusListener(this, StatusTopic.CAT_DETECTION);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
 
-        cameraLabel = new JLabel();
-        cameraLabel.setBackground(Color.WHITE);
-        cameraLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
-        cameraLabel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
+        cameraView = new CameraView(IMAGE_WIDTH, IMAGE_HEIGHT);
+        cameraView.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
 
         //button allowing users to select a file to be the current camera image
         JButton addPictureButton = new JButton("Refresh Camera");
@@ -50,28 +61,74 @@ public class ImagePanel extends JPanel implements StatusListener {
             if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
                 return;
             }
-            try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
-            } catch (IOException |NullPointerException ioe) {
-                JOptionPane.showMessageDialog(null, "Invalid image selected.");
-            }
-            repaint();
+            //only decode what the preview needs; the full image is decoded when it is scanned
+            File selected = chooser.getSelectedFile();
+            imageDecoder.decodePreview(selected, IMAGE_WIDTH, IMAGE_HEIGHT).whenComplete((preview, error) -> {
+                if (error != null) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Invalid image selected."));
+                    return;
+                }
+                currentCameraFile = selected;
+                currentCameraImage = null;
+                cameraView.submitFrame(preview);
+            });
         });
 
         //button that sends the image to the image com.udacity.catpoint.security.service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            File file = currentCameraFile;
+            BufferedImage frame = currentCameraImage;
+            if (file == null && frame == null) {
+                JOptionPane.showMessageDialog(null, "No picture to scan. Refresh the camera first.");
+                return;
+            }
+            if (file == null) {
+                scan(frame);
+                return;
+            }
+            imageDecoder.decodeFull(file).whenComplete((image, error) -> {
+                if (error != null) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Invalid image selected."));
+                } else {
+                    scan(image);
+                }
+            });
         });
 
         add(cameraHeader, "span 3, wrap");
-        add(cameraLabel, "span 3, wrap");
+        add(cameraView, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
     }
 
+    /**
+     * Sends the picture for analysis without waiting for it. The verdict reaches the panel, like
+     * any other, through {@link #catDetected}.
+     */
+    private void scan(BufferedImage image) {
+        if (lanes == null) {
+            SwingUtilities.invokeLater(() -> securityService.analyzeImage(image));
+            return;
+        }
+        lanes.analyzeImage(image).whenComplete((result, error) -> {
+            //a scan dropped for a newer picture is not a failure
+            if (error != null && !(error instanceof CancellationException)) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Could not scan picture: " + error.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Shows a frame from a live camera feed. May be called from any thread; frames that arrive
+     * faster than they can be displayed are dropped.
+     */
+    public void showFrame(BufferedImage frame) {
+        currentCameraFile = null;
+        currentCameraImage = frame;
+        cameraView.submitFrame(frame);
+    }
+
     @Override
     public void notify(AlarmStatus status) {
         //no behavior necessary
@@ -79,11 +136,14 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     @Override
     public void catDetected(boolean catDetected) {
-        if(catDetected) {
-            cameraHeader.setText("DANGER - CAT DETECTED");
-        } else {
-            cameraHeader.setText("Camera Feed - No Cats Detected");
-        }
+        //scans finish on the image lane
+        SwingUtilities.invokeLater(() -> {
+            if(catDetected) {
+                cameraHeader.setText("DANGER - CAT DETECTED");
+            } else {
+                cameraHeader.setText("Camera Feed - No Cats Detected");
+            }
+        });
     }
 
     @Override
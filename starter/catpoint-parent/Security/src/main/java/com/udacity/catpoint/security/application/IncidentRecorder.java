@@ -0,0 +1,88 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.io.FrameRingBuffer;
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Saves what a camera saw before an alarm; use one recorder, with its own buffer, per camera.
+ * Encoded frames from the camera are kept in a {@link FrameRingBuffer}; when the alarm goes off,
+ * the buffered frames are written to an incident file named after the camera in the background,
+ * so the status change itself is not held up by disk I/O.
+ */
+public class IncidentRecorder implements StatusListener {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final String camera;
+    private final FrameRingBuffer frames;
+    private final Path directory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "incident-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private AlarmStatus lastStatus = AlarmStatus.NO_ALARM;
+    private volatile CompletableFuture<Path> lastIncident = CompletableFuture.completedFuture(null);
+
+    public IncidentRecorder(String camera, FrameRingBuffer frames, Path directory) {
+        this.camera = camera;
+        this.frames = frames;
+        this.directory = directory;
+    }
+
+    /**
+     * Adds an encoded (JPEG) camera frame. Safe to call from the camera thread at frame rate.
+     */
+    public void recordFrame(byte[] jpeg) {
+        frames.offer(jpeg, System.currentTimeMillis());
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        if (status == AlarmStatus.ALARM && lastStatus != AlarmStatus.ALARM) {
+            Path file = directory.resolve("incident-" + camera + "-" + LocalDateTime.now().format(FILE_TIME) + ".mjpeg");
+            lastIncident = CompletableFuture.supplyAsync(() -> save(file), writer);
+        }
+        lastStatus = status;
+    }
+
+    private Path save(Path file) {
+        try {
+            if (frames.size() == 0) {
+                return null; //no camera feed, nothing to keep
+            }
+            Files.createDirectories(directory);
+            frames.writeTo(file);
+            return file;
+        } catch (IOException e) {
+            System.err.println("Could not save incident frames to " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Completes with the file written for the most recent alarm, or null if there were no frames
+     * to save or they could not be written.
+     */
+    public CompletableFuture<Path> getLastIncident() {
+        return lastIncident;
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+    }
+}
@@ -3,7 +3,9 @@ package com.udacity.catpoint.security.application;
 import com.udacity.catpoint.security.service.StyleService;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorHealth;
 import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityLanes;
 import com.udacity.catpoint.security.service.SecurityService;
 
 import net.miginfocom.swing.MigLayout;
@@ -17,6 +19,7 @@ import javax.swing.*;
 public class SensorPanel extends JPanel implements StatusListener{
 
     private SecurityService securityService;
+    private SecurityLanes lanes;
 
     private JLabel panelLabel = new JLabel("Sensor Management");
     private JLabel newSensorName = new JLabel("Name:");
@@ -29,10 +32,18 @@ public class SensorPanel extends JPanel implements StatusListener{
     private JPanel newSensorPanel;
 
     public SensorPanel(SecurityService securityService) {
+        this(securityService, null);
+    }
+
+    /**
+     * @param lanes changes sensors on the sensor lane, or null to change them on the event thread
+     */
+    public SensorPanel(SecurityService securityService, SecurityLanes lanes) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        this.lanes = lanes;
+        securityService.addStatusListener(this, StatusTopic.SENSORS);
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
                 addSensor(new Sensor(newSensorNameField.getText(),
@@ -42,7 +53,8 @@ public class SensorPanel extends JPanel implements StatusListener{
         sensorListPanel = new JPanel();
         sensorListPanel.setLayout(new MigLayout());
 
-        updateSensorList(sensorListPanel);
+        //sensors may still be loading, so fill in the list once they are available
+        securityService.ready().thenRun(() -> SwingUtilities.invokeLater(() -> updateSensorList(sensorListPanel)));
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
@@ -65,18 +77,25 @@ public class SensorPanel extends JPanel implements StatusListener{
 
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        //changes may come from the sensor lane
+        SwingUtilities.invokeLater(() -> updateSensorList(sensorListPanel));
     }
 
     /**
      * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
+     * will display in the order that they are created, with whether they are still reporting if
+     * that is tracked.
      * @param p The Panel to populate with the current list of sensors
      */
     private void updateSensorList(JPanel p) {
         p.removeAll();
         securityService.getSensors().stream().sorted().forEach(s -> {
             JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
+            SensorHealth health = securityService.getSensorHealth(s);
+            if (health != SensorHealth.UNKNOWN) {
+                sensorLabel.setText(sensorLabel.getText() + " - " + health.getDescription());
+                sensorLabel.setForeground(health.getColor());
+            }
             JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
             JButton sensorRemoveButton = new JButton("Remove Sensor");
 
@@ -99,8 +118,17 @@ public class SensorPanel extends JPanel implements StatusListener{
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        if (lanes == null) {
+            securityService.changeSensorActivationStatus(sensor, isActive);
+            updateSensorList(sensorListPanel);
+            return;
+        }
+        lanes.changeSensorActivationStatus(sensor, isActive).whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(null, "Could not change sensor: " + error.getMessage());
+            }
+            updateSensorList(sensorListPanel);
+        }));
     }
 
     /**
@@ -0,0 +1,13 @@
+package com.udacity.catpoint.security.application;
+
+/**
+ * The kinds of change a {@link StatusListener} can subscribe to, one per callback.
+ */
+public enum StatusTopic {
+    /** {@link StatusListener#notify}: the alarm status changed. */
+    ALARM,
+    /** {@link StatusListener#catDetected}: an image was scanned. */
+    CAT_DETECTION,
+    /** {@link StatusListener#sensorStatusChanged}: sensors were reset or changed. */
+    SENSORS
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary format for {@link SecurityState}. The stream starts with a magic number and a
+ * format version so that the layout can evolve without breaking stored data:
+ *
+ * <pre>
+ *   int    magic ('CATP')
+ *   byte   version
+ *   byte   alarm status ordinal
+ *   byte   arming status ordinal
+ *   byte   zone count                         (version 2)
+ *   zone count times, in zone order:          (version 2)
+ *     byte   alarm status ordinal
+ *     byte   arming status ordinal
+ *   int    sensor count
+ *   sensor count times:
+ *     long   sensor id (most significant bits)
+ *     long   sensor id (least significant bits)
+ *     byte   sensor type ordinal, or -1 if unknown
+ *     byte   flags (bit 0: active, bit 1: name present)
+ *     utf    name, if present
+ *     byte   zone ordinal                     (version 2)
+ * </pre>
+ *
+ * Version 1 streams are still read; their zones are disarmed and sensors in their default zone.
+ */
+public class BinarySecurityStateCodec implements SecurityStateCodec {
+
+    static final int MAGIC = 0x43415450;
+    static final byte VERSION = 2;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_NAME = 1 << 1;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final Zone[] ZONES = Zone.values();
+
+    @Override
+    public void write(SecurityState state, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(state.getAlarmStatus().ordinal());
+        data.writeByte(state.getArmingStatus().ordinal());
+        data.writeByte(ZONES.length);
+        for (Zone zone : ZONES) {
+            data.writeByte(state.getZoneAlarmStatus(zone).ordinal());
+            data.writeByte(state.getZoneArmingStatus(zone).ordinal());
+        }
+
+        Set<Sensor> sensors = state.getSensors();
+        data.writeInt(sensors.size());
+        for (Sensor sensor : sensors) {
+            writeSensor(sensor, data);
+        }
+        data.flush();
+    }
+
+    @Override
+    public SecurityState read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a security state stream");
+        }
+        byte version = data.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported security state version " + version);
+        }
+        AlarmStatus alarmStatus = lookUp(ALARM_STATUSES, data.readUnsignedByte(), "alarm status");
+        ArmingStatus armingStatus = lookUp(ARMING_STATUSES, data.readUnsignedByte(), "arming status");
+
+        Map<Zone, AlarmStatus> zoneAlarmStatuses = new EnumMap<>(Zone.class);
+        Map<Zone, ArmingStatus> zoneArmingStatuses = new EnumMap<>(Zone.class);
+        int zones = version >= 2 ? data.readUnsignedByte() : 0;
+        if (zones > ZONES.length) {
+            throw new IOException("Unknown zone count " + zones);
+        }
+        for (int i = 0; i < zones; i++) {
+            zoneAlarmStatuses.put(ZONES[i], lookUp(ALARM_STATUSES, data.readUnsignedByte(), "alarm status"));
+            zoneArmingStatuses.put(ZONES[i], lookUp(ARMING_STATUSES, data.readUnsignedByte(), "arming status"));
+        }
+
+        int count = data.readInt();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sensors.add(readSensor(data, version));
+        }
+        //written in sort order, so sorting the snapshot is a single linear pass
+        return new SecurityState(alarmStatus, armingStatus, zoneAlarmStatuses, zoneArmingStatuses,
+                ImmutableSortedSet.copyOf(sensors));
+    }
+
+    /**
+     * Writes one sensor in the layout used inside a state stream, for callers that send sensors
+     * individually.
+     */
+    public static void writeSensor(Sensor sensor, DataOutput data) throws IOException {
+        UUID id = sensor.getSensorId();
+        data.writeLong(id.getMostSignificantBits());
+        data.writeLong(id.getLeastSignificantBits());
+        data.writeByte(sensor.getSensorType() == null ? -1 : sensor.getSensorType().ordinal());
+
+        int flags = 0;
+        if (Boolean.TRUE.equals(sensor.getActive())) {
+            flags |= FLAG_ACTIVE;
+        }
+        if (sensor.getName() != null) {
+            flags |= FLAG_NAME;
+        }
+        data.writeByte(flags);
+        if (sensor.getName() != null) {
+            data.writeUTF(sensor.getName());
+        }
+        data.writeByte(sensor.getZone().ordinal());
+    }
+
+    public static Sensor readSensor(DataInput data) throws IOException {
+        return readSensor(data, VERSION);
+    }
+
+    private static Sensor readSensor(DataInput data, byte version) throws IOException {
+        Sensor sensor = new Sensor();
+        sensor.setSensorId(new UUID(data.readLong(), data.readLong()));
+        byte type = data.readByte();
+        sensor.setSensorType(type < 0 ? null : lookUp(SENSOR_TYPES, type, "sensor type"));
+
+        int flags = data.readUnsignedByte();
+        sensor.setActive((flags & FLAG_ACTIVE) != 0);
+        if ((flags & FLAG_NAME) != 0) {
+            sensor.setName(data.readUTF());
+        }
+        if (version >= 2) {
+            sensor.setZone(lookUp(ZONES, data.readUnsignedByte(), "zone"));
+        }
+        return sensor;
+    }
+
+    /**
+     * The constant with the given ordinal, failing like any other corrupt stream if there is none.
+     */
+    private static <E> E lookUp(E[] values, int ordinal, String what) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException("Unknown " + what + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
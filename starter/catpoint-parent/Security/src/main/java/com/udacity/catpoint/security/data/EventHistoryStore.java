@@ -0,0 +1,643 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Embedded, append-only history of {@link SecurityEvent}s.
+ *
+ * Appending only copies the event into in-memory arrays. Full blocks are compressed and written
+ * by a background thread, and a partial block is written at least once per flush interval, so
+ * a crash loses at most that much history. Within a block, timestamps are stored as varint
+ * deltas from the previous event and the whole block is deflated.
+ *
+ * Blocks are stored in segment files of bounded size. Each block has an uncompressed header
+ * with its time range, the event types it contains and a small bit filter of its sensor ids.
+ * The headers are kept in memory as a sparse index, so a range query only reads and inflates
+ * the blocks that can contain matching events. Retention deletes whole segments once their
+ * newest event is older than the retention period.
+ *
+ * Block layout:
+ * <pre>
+ *   int    magic ('EVBK')
+ *   long   first timestamp
+ *   long   last timestamp
+ *   int    event count
+ *   int    event type mask (bit n: type ordinal n present)
+ *   long   sensor filter (bit n: a sensor id hashing to n present)
+ *   int    uncompressed length
+ *   int    compressed length
+ *   int    crc32 of the compressed bytes
+ *   compressed bytes, deflating per event:
+ *     varlong timestamp delta from the previous event (the first timestamp for the first)
+ *     byte    type ordinal
+ *     byte    status ordinal
+ *     long    sensor id (most, then least significant bits), for sensor events only
+ * </pre>
+ */
+public class EventHistoryStore implements Closeable {
+
+    static final int BLOCK_MAGIC = 0x4556424B;
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int MAX_EVENT_BYTES = 10 + 1 + 1 + 16;
+    private static final String SEGMENT_GLOB = "segment-*.events";
+
+    private static final SecurityEvent.Type[] TYPES = SecurityEvent.Type.values();
+
+    private final Path directory;
+    private final int eventsPerBlock;
+    private final long segmentBytes;
+    private final ScheduledExecutorService writer;
+
+    //appended events not yet handed to the writer, guarded by this
+    private final long[] timestamps;
+    private final byte[] types;
+    private final byte[] statuses;
+    private final UUID[] sensorIds;
+    private int buffered;
+    private long lastTimestamp;
+    private boolean closed;
+
+    //sparse index of written blocks, oldest first, guarded by itself
+    private final List<Segment> segments = new ArrayList<>();
+
+    //writer thread only
+    private FileChannel current;
+    private int nextSegmentNumber;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] scratch = new byte[0];
+
+    private final LongAdder eventsAppended = new LongAdder();
+    private final LongAdder blocksWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder eventsDropped = new LongAdder();
+
+    /**
+     * Opens the store with 1024 events per block, 8MB segments, 30 days of retention and a
+     * one second flush interval.
+     */
+    public EventHistoryStore(Path directory) throws IOException {
+        this(directory, 1024, 8L * 1024 * 1024, Duration.ofDays(30), Duration.ofSeconds(1));
+    }
+
+    /**
+     * Opens the store in the directory, creating it if needed. A block left incomplete or
+     * half-written by a crash is truncated away.
+     *
+     * @param retention how long to keep events, or null to keep them forever
+     */
+    public EventHistoryStore(Path directory, int eventsPerBlock, long segmentBytes, Duration retention, Duration flushInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.eventsPerBlock = eventsPerBlock;
+        this.segmentBytes = segmentBytes;
+        this.timestamps = new long[eventsPerBlock];
+        this.types = new byte[eventsPerBlock];
+        this.statuses = new byte[eventsPerBlock];
+        this.sensorIds = new UUID[eventsPerBlock];
+        loadIndex();
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushMillis = flushInterval.toMillis();
+        writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        if (retention != null) {
+            writer.scheduleWithFixedDelay(() -> deleteBefore(System.currentTimeMillis() - retention.toMillis()),
+                    0, Math.max(1, Math.min(retention.toMinutes(), 60)), TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Appends an event. Does no I/O, so it is safe to call while handling a state change.
+     * Timestamps earlier than the last appended one are moved up to it, keeping the history
+     * ordered if the clock steps back. Events appended after {@link #close()} are dropped.
+     */
+    public void append(SecurityEvent event) {
+        synchronized (this) {
+            if (closed) {
+                eventsDropped.increment();
+                return;
+            }
+            lastTimestamp = Math.max(lastTimestamp, event.getTimestamp());
+            timestamps[buffered] = lastTimestamp;
+            types[buffered] = (byte) event.getType().ordinal();
+            statuses[buffered] = (byte) event.getStatus();
+            sensorIds[buffered] = event.getSensorId();
+            if (++buffered == eventsPerBlock) {
+                //handed over while still holding the lock, so blocks reach the writer in order
+                Block block = drain();
+                writer.execute(() -> writeQuietly(block));
+            }
+        }
+        eventsAppended.increment();
+    }
+
+    /**
+     * Writes any buffered events. The returned future completes once they, and every block
+     * handed to the writer before them, are on disk. Once closed, there is nothing left to write.
+     */
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Block block = buffered == 0 ? null : drain();
+            writer.execute(() -> {
+                try {
+                    if (block != null) {
+                        write(block);
+                    }
+                    written.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    writeFailures.increment();
+                    written.completeExceptionally(e);
+                }
+            });
+        }
+        return written;
+    }
+
+    private Block drain() {
+        Block block = new Block(Arrays.copyOf(timestamps, buffered), Arrays.copyOf(types, buffered),
+                Arrays.copyOf(statuses, buffered), Arrays.copyOf(sensorIds, buffered));
+        Arrays.fill(sensorIds, 0, buffered, null);
+        buffered = 0;
+        return block;
+    }
+
+    /**
+     * Events of the given types with timestamps in {@code [from, to)}, oldest first.
+     * Buffered events are flushed first, so the result includes everything appended so far.
+     */
+    public List<SecurityEvent> query(long from, long to, Set<SecurityEvent.Type> eventTypes) throws IOException {
+        return query(from, to, eventTypes, null);
+    }
+
+    /**
+     * Events concerning one sensor with timestamps in {@code [from, to)}, oldest first.
+     */
+    public List<SecurityEvent> sensorHistory(UUID sensorId, long from, long to) throws IOException {
+        return query(from, to, EnumSet.allOf(SecurityEvent.Type.class), sensorId);
+    }
+
+    private List<SecurityEvent> query(long from, long to, Set<SecurityEvent.Type> eventTypes, UUID sensorId) throws IOException {
+        flush().join();
+        int typeMask = 0;
+        for (SecurityEvent.Type type : eventTypes) {
+            typeMask |= 1 << type.ordinal();
+        }
+        long sensorMask = sensorId == null ? 0 : sensorBit(sensorId);
+
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                if (segment.lastTimestamp() >= from && segment.firstTimestamp() < to) {
+                    candidates.add(segment.copy());
+                }
+            }
+        }
+
+        List<SecurityEvent> result = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        try {
+            for (Segment segment : candidates) {
+                try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                    for (BlockRef ref : segment.blocks) {
+                        if (ref.lastTimestamp < from || ref.firstTimestamp >= to
+                                || (ref.typeMask & typeMask) == 0 || (sensorMask != 0 && (ref.sensorFilter & sensorMask) == 0)) {
+                            continue;
+                        }
+                        readBlock(channel, ref, inflater, from, to, typeMask, sensorId, result);
+                    }
+                } catch (NoSuchFileException expired) {
+                    //deleted by retention since we looked at the index
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return result;
+    }
+
+    private void readBlock(FileChannel channel, BlockRef ref, Inflater inflater, long from, long to, int typeMask,
+                           UUID sensorId, List<SecurityEvent> result) throws IOException {
+        ByteBuffer compressed = readCompressed(channel, ref);
+        if (!ref.matches(compressed)) {
+            throw new IOException("Corrupt event block in " + ref.path);
+        }
+        byte[] raw = new byte[ref.rawLength];
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        try {
+            if (inflater.inflate(raw) != raw.length) {
+                throw new IOException("Corrupt event block in " + ref.path);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt event block in " + ref.path, e);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        long timestamp = 0;
+        for (int i = 0; i < ref.count; i++) {
+            timestamp += readVarLong(in);
+            SecurityEvent.Type type = TYPES[in.get()];
+            int status = in.get();
+            UUID id = type.isSensorEvent() ? new UUID(in.getLong(), in.getLong()) : null;
+            if (timestamp >= from && timestamp < to && (typeMask & (1 << type.ordinal())) != 0
+                    && (sensorId == null || sensorId.equals(id))) {
+                result.add(new SecurityEvent(timestamp, type, status, id));
+            }
+        }
+    }
+
+    /**
+     * Deletes every segment whose newest event is older than the cutoff. The segment being
+     * written to is kept.
+     */
+    public void deleteBefore(long cutoff) {
+        List<Segment> expired = new ArrayList<>();
+        synchronized (segments) {
+            Iterator<Segment> it = segments.iterator();
+            while (it.hasNext()) {
+                Segment segment = it.next();
+                if (segment.lastTimestamp() < cutoff && it.hasNext()) {
+                    expired.add(segment);
+                    it.remove();
+                }
+            }
+        }
+        for (Segment segment : expired) {
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                writeFailures.increment();
+            }
+        }
+    }
+
+    private void writeQuietly(Block block) {
+        try {
+            write(block);
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+        }
+    }
+
+    private void write(Block block) throws IOException {
+        int count = block.timestamps.length;
+        if (scratch.length < count * MAX_EVENT_BYTES) {
+            scratch = new byte[count * MAX_EVENT_BYTES];
+        }
+        ByteBuffer raw = ByteBuffer.wrap(scratch);
+        int typeMask = 0;
+        long sensorFilter = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarLong(raw, block.timestamps[i] - previous);
+            previous = block.timestamps[i];
+            raw.put(block.types[i]);
+            raw.put(block.statuses[i]);
+            typeMask |= 1 << block.types[i];
+            UUID id = block.sensorIds[i];
+            if (id != null) {
+                raw.putLong(id.getMostSignificantBits());
+                raw.putLong(id.getLeastSignificantBits());
+                sensorFilter |= sensorBit(id);
+            }
+        }
+        int rawLength = raw.position();
+
+        byte[] compressed = new byte[rawLength + 64];
+        deflater.reset();
+        deflater.setInput(scratch, 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(compressed, 0, compressedLength);
+
+        BlockRef ref = new BlockRef(null, 0, block.timestamps[0], block.timestamps[count - 1], count,
+                typeMask, sensorFilter, rawLength, compressedLength, (int) crc.getValue());
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + compressedLength);
+        writeHeader(out, ref);
+        out.put(compressed, 0, compressedLength).flip();
+
+        Segment segment = segmentFor(out.remaining());
+        long offset = current.size();
+        while (out.hasRemaining()) {
+            current.write(out);
+        }
+        synchronized (segments) {
+            segment.blocks.add(ref.at(segment.path, offset));
+        }
+        blocksWritten.increment();
+        bytesWritten.add(HEADER_BYTES + compressedLength);
+    }
+
+    /**
+     * Returns the segment to append to, starting a new one when the current one is full.
+     */
+    private Segment segmentFor(int bytes) throws IOException {
+        Segment last;
+        synchronized (segments) {
+            last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        }
+        if (last != null && current == null) {
+            current = FileChannel.open(last.path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        if (last == null || current.size() + bytes > segmentBytes && !last.blocks.isEmpty()) {
+            if (current != null) {
+                current.close();
+            }
+            Path path = directory.resolve(String.format("segment-%010d.events", nextSegmentNumber++));
+            current = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            last = new Segment(path);
+            synchronized (segments) {
+                segments.add(last);
+            }
+        }
+        return last;
+    }
+
+    private static void writeHeader(ByteBuffer out, BlockRef ref) {
+        out.putInt(BLOCK_MAGIC);
+        out.putLong(ref.firstTimestamp);
+        out.putLong(ref.lastTimestamp);
+        out.putInt(ref.count);
+        out.putInt(ref.typeMask);
+        out.putLong(ref.sensorFilter);
+        out.putInt(ref.rawLength);
+        out.putInt(ref.compressedLength);
+        out.putInt(ref.crc);
+    }
+
+    /**
+     * Rebuilds the index from the block headers of the existing segments. Only the last block
+     * of each segment can have been cut short by a crash, so only its checksum is verified here;
+     * the others are verified when a query reads them.
+     */
+    private void loadIndex() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_GLOB)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            nextSegmentNumber = Math.max(nextSegmentNumber, Integer.parseInt(name.substring(8, name.length() - 7)) + 1);
+            Segment segment = new Segment(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long offset = 0;
+                long size = channel.size();
+                while (offset + HEADER_BYTES <= size) {
+                    header.clear();
+                    readFully(channel, header, offset);
+                    header.flip();
+                    if (header.getInt() != BLOCK_MAGIC) {
+                        break;
+                    }
+                    BlockRef ref = new BlockRef(path, offset, header.getLong(), header.getLong(), header.getInt(),
+                            header.getInt(), header.getLong(), header.getInt(), header.getInt(), header.getInt());
+                    if (offset + HEADER_BYTES + ref.compressedLength > size) {
+                        break;
+                    }
+                    segment.blocks.add(ref);
+                    offset += HEADER_BYTES + ref.compressedLength;
+                }
+                if (!segment.blocks.isEmpty()) {
+                    BlockRef tail = segment.blocks.get(segment.blocks.size() - 1);
+                    if (!tail.matches(readCompressed(channel, tail))) {
+                        segment.blocks.remove(segment.blocks.size() - 1);
+                        offset = tail.offset;
+                    }
+                }
+                if (offset < size) {
+                    channel.truncate(offset); //incomplete block from a crash mid-write
+                }
+            }
+            if (segment.blocks.isEmpty()) {
+                Files.delete(path);
+            } else {
+                segments.add(segment);
+                lastTimestamp = Math.max(lastTimestamp, segment.lastTimestamp());
+            }
+        }
+    }
+
+    private static ByteBuffer readCompressed(FileChannel channel, BlockRef ref) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(ref.compressedLength);
+        readFully(channel, compressed, ref.offset + HEADER_BYTES);
+        return compressed;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of event segment");
+            }
+        }
+    }
+
+    private static long sensorBit(UUID sensorId) {
+        return 1L << (sensorId.hashCode() & 63);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Writes buffered events and stops the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            written = flush();
+            closed = true;
+        }
+        try {
+            written.join();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deflater.end();
+            if (current != null) {
+                current.force(false);
+                current.close();
+            }
+        }
+    }
+
+    public long getEventsAppended() {
+        return eventsAppended.sum();
+    }
+
+    public long getBlocksWritten() {
+        return blocksWritten.sum();
+    }
+
+    /**
+     * Bytes written to disk, headers included.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+
+    /**
+     * Events appended after the store was closed.
+     */
+    public long getEventsDropped() {
+        return eventsDropped.sum();
+    }
+
+    int getSegmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Events handed from the append buffer to the writer.
+     */
+    private static final class Block {
+        private final long[] timestamps;
+        private final byte[] types;
+        private final byte[] statuses;
+        private final UUID[] sensorIds;
+
+        Block(long[] timestamps, byte[] types, byte[] statuses, UUID[] sensorIds) {
+            this.timestamps = timestamps;
+            this.types = types;
+            this.statuses = statuses;
+            this.sensorIds = sensorIds;
+        }
+    }
+
+    /**
+     * Index entry for a block on disk: its header and where it is.
+     */
+    private static final class BlockRef {
+        private final Path path;
+        private final long offset;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final int count;
+        private final int typeMask;
+        private final long sensorFilter;
+        private final int rawLength;
+        private final int compressedLength;
+        private final int crc;
+
+        BlockRef(Path path, long offset, long firstTimestamp, long lastTimestamp, int count, int typeMask,
+                 long sensorFilter, int rawLength, int compressedLength, int crc) {
+            this.path = path;
+            this.offset = offset;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.count = count;
+            this.typeMask = typeMask;
+            this.sensorFilter = sensorFilter;
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+            this.crc = crc;
+        }
+
+        BlockRef at(Path path, long offset) {
+            return new BlockRef(path, offset, firstTimestamp, lastTimestamp, count, typeMask, sensorFilter, rawLength,
+                    compressedLength, crc);
+        }
+
+        boolean matches(ByteBuffer compressed) {
+            CRC32 actual = new CRC32();
+            actual.update(compressed.array(), 0, compressedLength);
+            return (int) actual.getValue() == crc;
+        }
+    }
+
+    /**
+     * A segment file and the index of its blocks, oldest first.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final List<BlockRef> blocks;
+
+        Segment(Path path) {
+            this(path, new ArrayList<>());
+        }
+
+        private Segment(Path path, List<BlockRef> blocks) {
+            this.path = path;
+            this.blocks = blocks;
+        }
+
+        long firstTimestamp() {
+            return blocks.isEmpty() ? Long.MAX_VALUE : blocks.get(0).firstTimestamp;
+        }
+
+        long lastTimestamp() {
+            return blocks.isEmpty() ? Long.MIN_VALUE : blocks.get(blocks.size() - 1).lastTimestamp;
+        }
+
+        Segment copy() {
+            return new Segment(path, new ArrayList<>(blocks));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Repository that keeps state in memory only. Used where persisting every change would distort
+ * the result or leak into the user's saved state, such as load tests. Thread-safe.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private final Set<Sensor> sensors = new TreeSet<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private final Map<Zone, AlarmStatus> zoneAlarmStatuses = new EnumMap<>(Zone.class);
+    private final Map<Zone, ArmingStatus> zoneArmingStatuses = new EnumMap<>(Zone.class);
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensors.add(sensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return new TreeSet<>(sensors);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized AlarmStatus getZoneAlarmStatus(Zone zone) {
+        return zoneAlarmStatuses.getOrDefault(zone, AlarmStatus.NO_ALARM);
+    }
+
+    @Override
+    public synchronized void setZoneAlarmStatus(Zone zone, AlarmStatus alarmStatus) {
+        zoneAlarmStatuses.put(zone, alarmStatus);
+    }
+
+    @Override
+    public synchronized ArmingStatus getZoneArmingStatus(Zone zone) {
+        return zoneArmingStatuses.getOrDefault(zone, ArmingStatus.DISARMED);
+    }
+
+    @Override
+    public synchronized void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus) {
+        zoneArmingStatuses.put(zone, armingStatus);
+    }
+
+    @Override
+    public synchronized boolean hasZoneStatuses() {
+        return !zoneAlarmStatuses.isEmpty() || !zoneArmingStatuses.isEmpty();
+    }
+}
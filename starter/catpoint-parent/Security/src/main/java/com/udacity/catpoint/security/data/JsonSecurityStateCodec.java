@@ -0,0 +1,211 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Streaming JSON format for {@link SecurityState}, written directly with {@link JsonWriter} and
+ * read with {@link JsonReader} instead of reflective Gson binding. Sensors are written with the
+ * same field names reflective Gson used, so sensor lists stored by earlier versions still load.
+ */
+public class JsonSecurityStateCodec implements SecurityStateCodec {
+
+    private static final String ALARM_STATUS = "alarmStatus";
+    private static final String ARMING_STATUS = "armingStatus";
+    private static final String ZONES = "zones";
+    private static final String SENSORS = "sensors";
+
+    private static final String SENSOR_ID = "sensorId";
+    private static final String NAME = "name";
+    private static final String ACTIVE = "active";
+    private static final String SENSOR_TYPE = "sensorType";
+    private static final String ZONE = "zone";
+
+    @Override
+    public void write(SecurityState state, OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        writer.beginObject();
+        writer.name(ALARM_STATUS).value(state.getAlarmStatus().name());
+        writer.name(ARMING_STATUS).value(state.getArmingStatus().name());
+        writer.name(ZONES).beginObject();
+        for (Zone zone : Zone.values()) {
+            writer.name(zone.name()).beginObject();
+            writer.name(ALARM_STATUS).value(state.getZoneAlarmStatus(zone).name());
+            writer.name(ARMING_STATUS).value(state.getZoneArmingStatus(zone).name());
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.name(SENSORS);
+        writeSensors(state.getSensors(), writer);
+        writer.endObject();
+        writer.flush();
+    }
+
+    @Override
+    public SecurityState read(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+        ArmingStatus armingStatus = ArmingStatus.DISARMED;
+        Map<Zone, AlarmStatus> zoneAlarmStatuses = new EnumMap<>(Zone.class);
+        Map<Zone, ArmingStatus> zoneArmingStatuses = new EnumMap<>(Zone.class);
+        Collection<Sensor> sensors = ImmutableSortedSet.of();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case ALARM_STATUS -> alarmStatus = AlarmStatus.valueOf(reader.nextString());
+                case ARMING_STATUS -> armingStatus = ArmingStatus.valueOf(reader.nextString());
+                case ZONES -> readZones(reader, zoneAlarmStatuses, zoneArmingStatuses);
+                case SENSORS -> sensors = readSortedSensors(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new SecurityState(alarmStatus, armingStatus, zoneAlarmStatuses, zoneArmingStatuses, sensors);
+    }
+
+    private void readZones(JsonReader reader, Map<Zone, AlarmStatus> alarmStatuses, Map<Zone, ArmingStatus> armingStatuses)
+            throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Zone zone = Zone.valueOf(reader.nextName());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case ALARM_STATUS -> alarmStatuses.put(zone, AlarmStatus.valueOf(reader.nextString()));
+                    case ARMING_STATUS -> armingStatuses.put(zone, ArmingStatus.valueOf(reader.nextString()));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Serializes a collection of sensors to a JSON array string.
+     */
+    public String writeSensors(Collection<Sensor> sensors) {
+        StringBuilderWriter out = new StringBuilderWriter(sensors.size() * 112);
+        try {
+            writeSensors(sensors, new JsonWriter(out));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe); //StringWriter never throws
+        }
+        return out.toString();
+    }
+
+    /**
+     * Parses a JSON array string produced by {@link #writeSensors(Collection)} or by reflective Gson.
+     */
+    public Set<Sensor> readSensors(String json) {
+        try {
+            //the sorted snapshot lets TreeSet build its tree without comparing every insertion
+            return new TreeSet<>(readSortedSensors(new JsonReader(new StringReader(json))));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private void writeSensors(Collection<Sensor> sensors, JsonWriter writer) throws IOException {
+        writer.beginArray();
+        for (Sensor sensor : sensors) {
+            writer.beginObject();
+            writer.name(SENSOR_ID).value(sensor.getSensorId().toString());
+            if (sensor.getName() != null) {
+                writer.name(NAME).value(sensor.getName());
+            }
+            if (sensor.getActive() != null) {
+                writer.name(ACTIVE).value(sensor.getActive());
+            }
+            if (sensor.getSensorType() != null) {
+                writer.name(SENSOR_TYPE).value(sensor.getSensorType().name());
+            }
+            writer.name(ZONE).value(sensor.getZone().name());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    private ImmutableSortedSet<Sensor> readSortedSensors(JsonReader reader) throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Sensor sensor = new Sensor();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case SENSOR_ID -> sensor.setSensorId(UUID.fromString(reader.nextString()));
+                    case NAME -> sensor.setName(reader.nextString());
+                    case ACTIVE -> sensor.setActive(reader.nextBoolean());
+                    case SENSOR_TYPE -> sensor.setSensorType(SensorType.valueOf(reader.nextString()));
+                    case ZONE -> sensor.setZone(Zone.valueOf(reader.nextString()));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            sensors.add(sensor);
+        }
+        reader.endArray();
+        //sensors are stored in sort order, so sorting them is a single linear pass
+        return ImmutableSortedSet.copyOf(sensors);
+    }
+
+    /**
+     * Unsynchronized replacement for StringWriter, which locks its StringBuffer on every char.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder;
+
+        StringBuilderWriter(int capacity) {
+            builder = new StringBuilder(capacity);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
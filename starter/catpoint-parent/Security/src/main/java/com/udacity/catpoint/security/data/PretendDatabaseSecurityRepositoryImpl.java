@@ -1,23 +1,28 @@
 package com.udacity.catpoint.security.data;
 
-import com.google.common.reflect.TypeToken;
-import com.google.gson.Gson;
-
-import java.lang.reflect.Type;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * Thread-safe: every method holds the repository's lock, and {@link #getSensors()} returns a
+ * copy, so callers can iterate it while other threads change the sensors.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
+    private final CompletableFuture<Set<Sensor>> sensors;
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
+    private final Map<Zone, AlarmStatus> zoneAlarmStatuses = new EnumMap<>(Zone.class);
+    private final Map<Zone, ArmingStatus> zoneArmingStatuses = new EnumMap<>(Zone.class);
+    private boolean zoneStatusesStored;
 
     //preference keys
     private static final String SENSORS = "SENSORS";
@@ -25,68 +30,125 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
     private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final JsonSecurityStateCodec codec = new JsonSecurityStateCodec(); //used to serialize sensors into JSON
 
     public PretendDatabaseSecurityRepositoryImpl() {
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+        for (Zone zone : Zone.values()) {
+            zoneStatusesStored |= prefs.get(zoneKey(ALARM_STATUS, zone), null) != null
+                    || prefs.get(zoneKey(ARMING_STATUS, zone), null) != null;
+            zoneAlarmStatuses.put(zone, AlarmStatus.valueOf(prefs.get(zoneKey(ALARM_STATUS, zone), AlarmStatus.NO_ALARM.toString())));
+            zoneArmingStatuses.put(zone, ArmingStatus.valueOf(prefs.get(zoneKey(ARMING_STATUS, zone), ArmingStatus.DISARMED.toString())));
+        }
+
+        //parsing the sensors is the slow part, so do it in the background and let the UI come up
+        sensors = CompletableFuture.supplyAsync(PretendDatabaseSecurityRepositoryImpl::loadSensors, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-load");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
 
+    private static String zoneKey(String key, Zone zone) {
+        return key + "_" + zone.name();
+    }
+
+    private static Set<Sensor> loadSensors() {
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
         String sensorString = prefs.get(SENSORS, null);
         if(sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            return new TreeSet<>();
         }
+        return codec.readSensors(sensorString);
+    }
+
+    /**
+     * Returns the loaded sensors, waiting for the background load to finish if necessary.
+     */
+    private Set<Sensor> sensors() {
+        return sensors.join();
+    }
+
+    @Override
+    public CompletableFuture<Void> ready() {
+        return sensors.thenApply(loaded -> null);
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void addSensor(Sensor sensor) {
+        sensors().add(sensor);
+        prefs.put(SENSORS, codec.writeSensors(sensors()));
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors().remove(sensor);
+        prefs.put(SENSORS, codec.writeSensors(sensors()));
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors().remove(sensor);
+        sensors().add(sensor);
+        prefs.put(SENSORS, codec.writeSensors(sensors()));
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
     }
 
     @Override
-    public Set<Sensor> getSensors() {
-        return sensors;
+    public synchronized Set<Sensor> getSensors() {
+        return new TreeSet<>(sensors());
     }
 
     @Override
-    public AlarmStatus getAlarmStatus() {
+    public synchronized AlarmStatus getAlarmStatus() {
         return alarmStatus;
     }
 
     @Override
-    public ArmingStatus getArmingStatus() {
+    public synchronized ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    @Override
+    public synchronized AlarmStatus getZoneAlarmStatus(Zone zone) {
+        return zoneAlarmStatuses.get(zone);
+    }
+
+    @Override
+    public synchronized void setZoneAlarmStatus(Zone zone, AlarmStatus alarmStatus) {
+        zoneAlarmStatuses.put(zone, alarmStatus);
+        zoneStatusesStored = true;
+        prefs.put(zoneKey(ALARM_STATUS, zone), alarmStatus.toString());
+    }
+
+    @Override
+    public synchronized ArmingStatus getZoneArmingStatus(Zone zone) {
+        return zoneArmingStatuses.get(zone);
+    }
+
+    @Override
+    public synchronized void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus) {
+        zoneArmingStatuses.put(zone, armingStatus);
+        zoneStatusesStored = true;
+        prefs.put(zoneKey(ARMING_STATUS, zone), armingStatus.toString());
+    }
+
+    @Override
+    public synchronized boolean hasZoneStatuses() {
+        return zoneStatusesStored;
+    }
 }
@@ -0,0 +1,132 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Repository decorator that records every state transition in an {@link EventHistoryStore}
+ * before passing it on. Status and sensor changes are only recorded when something actually
+ * changes; sensors are compared with the last state recorded for them, since the sensor passed to
+ * {@link #updateSensor} is usually the stored one, already changed. Zone
+ * statuses are passed on without being recorded; the house status they roll up to is recorded.
+ */
+public class RecordingSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final EventHistoryStore history;
+    private final LongSupplier clock;
+    private final Map<UUID, Boolean> lastActive = new ConcurrentHashMap<>();
+
+    public RecordingSecurityRepository(SecurityRepository delegate, EventHistoryStore history) {
+        this(delegate, history, System::currentTimeMillis);
+    }
+
+    RecordingSecurityRepository(SecurityRepository delegate, EventHistoryStore history, LongSupplier clock) {
+        this.delegate = delegate;
+        this.history = history;
+        this.clock = clock;
+        //sensors loaded from storage start out in their stored state
+        delegate.ready().thenRun(() -> delegate.getSensors()
+                .forEach(sensor -> lastActive.putIfAbsent(sensor.getSensorId(), isActive(sensor))));
+    }
+
+    public EventHistoryStore getHistory() {
+        return history;
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        delegate.addSensor(sensor);
+        lastActive.put(sensor.getSensorId(), isActive(sensor));
+        history.append(SecurityEvent.sensor(clock.getAsLong(), SecurityEvent.Type.SENSOR_ADDED, sensor.getSensorId()));
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        delegate.removeSensor(sensor);
+        lastActive.remove(sensor.getSensorId());
+        history.append(SecurityEvent.sensor(clock.getAsLong(), SecurityEvent.Type.SENSOR_REMOVED, sensor.getSensorId()));
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        delegate.updateSensor(sensor);
+        boolean active = isActive(sensor);
+        Boolean previous = lastActive.put(sensor.getSensorId(), active);
+        if (previous == null || previous != active) {
+            SecurityEvent.Type type = active ? SecurityEvent.Type.SENSOR_ACTIVATED : SecurityEvent.Type.SENSOR_DEACTIVATED;
+            history.append(SecurityEvent.sensor(clock.getAsLong(), type, sensor.getSensorId()));
+        }
+    }
+
+    private static boolean isActive(Sensor sensor) {
+        return Boolean.TRUE.equals(sensor.getActive());
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        boolean changed = delegate.getAlarmStatus() != alarmStatus;
+        delegate.setAlarmStatus(alarmStatus);
+        if (changed) {
+            history.append(SecurityEvent.alarm(clock.getAsLong(), alarmStatus));
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        boolean changed = delegate.getArmingStatus() != armingStatus;
+        delegate.setArmingStatus(armingStatus);
+        if (changed) {
+            history.append(SecurityEvent.arming(clock.getAsLong(), armingStatus));
+        }
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public AlarmStatus getZoneAlarmStatus(Zone zone) {
+        return delegate.getZoneAlarmStatus(zone);
+    }
+
+    @Override
+    public void setZoneAlarmStatus(Zone zone, AlarmStatus alarmStatus) {
+        delegate.setZoneAlarmStatus(zone, alarmStatus);
+    }
+
+    @Override
+    public ArmingStatus getZoneArmingStatus(Zone zone) {
+        return delegate.getZoneArmingStatus(zone);
+    }
+
+    @Override
+    public void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus) {
+        delegate.setZoneArmingStatus(zone, armingStatus);
+    }
+
+    @Override
+    public boolean hasZoneStatuses() {
+        return delegate.hasZoneStatuses();
+    }
+
+    @Override
+    public CompletableFuture<Void> ready() {
+        return delegate.ready();
+    }
+}
@@ -0,0 +1,108 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A single state transition recorded in the {@link EventHistoryStore}.
+ */
+public class SecurityEvent {
+
+    public enum Type {
+        ALARM_STATUS,
+        ARMING_STATUS,
+        SENSOR_ADDED,
+        SENSOR_REMOVED,
+        SENSOR_ACTIVATED,
+        SENSOR_DEACTIVATED;
+
+        public boolean isSensorEvent() {
+            return this != ALARM_STATUS && this != ARMING_STATUS;
+        }
+    }
+
+    private final long timestamp;
+    private final Type type;
+    private final int status; //status ordinal for alarm and arming events, otherwise 0
+    private final UUID sensorId;
+
+    SecurityEvent(long timestamp, Type type, int status, UUID sensorId) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.status = status;
+        this.sensorId = sensorId;
+    }
+
+    public static SecurityEvent alarm(long timestamp, AlarmStatus alarmStatus) {
+        return new SecurityEvent(timestamp, Type.ALARM_STATUS, alarmStatus.ordinal(), null);
+    }
+
+    public static SecurityEvent arming(long timestamp, ArmingStatus armingStatus) {
+        return new SecurityEvent(timestamp, Type.ARMING_STATUS, armingStatus.ordinal(), null);
+    }
+
+    public static SecurityEvent sensor(long timestamp, Type type, UUID sensorId) {
+        if (!type.isSensorEvent()) {
+            throw new IllegalArgumentException(type + " is not a sensor event");
+        }
+        return new SecurityEvent(timestamp, type, 0, Objects.requireNonNull(sensorId, "sensorId"));
+    }
+
+    /**
+     * Milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The new alarm status, or null if this is not an alarm event.
+     */
+    public AlarmStatus getAlarmStatus() {
+        return type == Type.ALARM_STATUS ? AlarmStatus.values()[status] : null;
+    }
+
+    /**
+     * The new arming status, or null if this is not an arming event.
+     */
+    public ArmingStatus getArmingStatus() {
+        return type == Type.ARMING_STATUS ? ArmingStatus.values()[status] : null;
+    }
+
+    /**
+     * The sensor concerned, or null if this is not a sensor event.
+     */
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SecurityEvent that = (SecurityEvent) o;
+        return timestamp == that.timestamp && status == that.status && type == that.type
+                && Objects.equals(sensorId, that.sensorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, type, status, sensorId);
+    }
+
+    @Override
+    public String toString() {
+        String subject = type == Type.ALARM_STATUS ? getAlarmStatus().toString()
+                : type == Type.ARMING_STATUS ? getArmingStatus().toString()
+                : sensorId.toString();
+        return timestamp + " " + type + " " + subject;
+    }
+}
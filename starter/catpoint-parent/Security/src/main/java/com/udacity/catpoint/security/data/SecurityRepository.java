@@ -1,6 +1,7 @@
 package com.udacity.catpoint.security.data;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -15,5 +16,28 @@ public interface SecurityRepository {
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    /**
+     * Status of a single zone. Zones that were never set are disarmed and without alarm.
+     */
+    AlarmStatus getZoneAlarmStatus(Zone zone);
+    void setZoneAlarmStatus(Zone zone, AlarmStatus alarmStatus);
+    ArmingStatus getZoneArmingStatus(Zone zone);
+    void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus);
+
+    /**
+     * True if any zone status was ever set. State saved before zones existed only has the house
+     * status, which the zones should then start from.
+     */
+    default boolean hasZoneStatuses() {
+        return false;
+    }
+
+    /**
+     * Completes once any persisted state has been loaded. Repositories that load eagerly are
+     * always ready; the getters of those that load in the background wait for the load.
+     */
+    default CompletableFuture<Void> ready() {
+        return CompletableFuture.completedFuture(null);
+    }
 
 }
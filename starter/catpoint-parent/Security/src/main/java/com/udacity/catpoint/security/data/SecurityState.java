@@ -0,0 +1,65 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of everything the repository persists: the alarm status, the arming status,
+ * the status of each zone and the set of sensors. Used as the unit of work for the state codecs.
+ */
+public class SecurityState {
+
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final Map<Zone, AlarmStatus> zoneAlarmStatuses;
+    private final Map<Zone, ArmingStatus> zoneArmingStatuses;
+    private final ImmutableSortedSet<Sensor> sensors;
+
+    /**
+     * State with every zone disarmed and without alarm.
+     */
+    public SecurityState(AlarmStatus alarmStatus, ArmingStatus armingStatus, Collection<Sensor> sensors) {
+        this(alarmStatus, armingStatus, Map.of(), Map.of(), sensors);
+    }
+
+    public SecurityState(AlarmStatus alarmStatus, ArmingStatus armingStatus, Map<Zone, AlarmStatus> zoneAlarmStatuses,
+                         Map<Zone, ArmingStatus> zoneArmingStatuses, Collection<Sensor> sensors) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.zoneAlarmStatuses = Collections.unmodifiableMap(copyOf(zoneAlarmStatuses));
+        this.zoneArmingStatuses = Collections.unmodifiableMap(copyOf(zoneArmingStatuses));
+        //no copy when already immutable, linear copy when already sorted
+        this.sensors = ImmutableSortedSet.copyOf(sensors);
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public AlarmStatus getZoneAlarmStatus(Zone zone) {
+        return zoneAlarmStatuses.getOrDefault(zone, AlarmStatus.NO_ALARM);
+    }
+
+    public ArmingStatus getZoneArmingStatus(Zone zone) {
+        return zoneArmingStatuses.getOrDefault(zone, ArmingStatus.DISARMED);
+    }
+
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    private static <V> Map<Zone, V> copyOf(Map<Zone, V> statuses) {
+        Map<Zone, V> copy = new EnumMap<>(Zone.class);
+        copy.putAll(statuses);
+        return copy;
+    }
+}
@@ -0,0 +1,14 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Hand-written serializer for {@link SecurityState}. Implementations never use reflection, so the
+ * data package does not have to be opened to a serialization library.
+ */
+public interface SecurityStateCodec {
+    void write(SecurityState state, OutputStream out) throws IOException;
+    SecurityState read(InputStream in) throws IOException;
+}
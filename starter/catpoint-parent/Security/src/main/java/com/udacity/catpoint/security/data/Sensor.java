@@ -14,6 +14,7 @@ public class Sensor implements Comparable<Sensor> {
     private String name;
     private Boolean active;
     private SensorType sensorType;
+    private Zone zone;
 
     public Sensor(String name, SensorType sensorType) {
         this.name = name;
@@ -22,6 +23,11 @@ public class Sensor implements Comparable<Sensor> {
         this.active = Boolean.FALSE;
     }
 
+    public Sensor(String name, SensorType sensorType, Zone zone) {
+        this(name, sensorType);
+        this.zone = zone;
+    }
+
     public Sensor(){}
 
     @Override
@@ -61,6 +67,17 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorType = sensorType;
     }
 
+    /**
+     * The zone the sensor was placed in, or the default zone for its type if it never was.
+     */
+    public Zone getZone() {
+        return zone != null ? zone : Zone.defaultFor(sensorType);
+    }
+
+    public void setZone(Zone zone) {
+        this.zone = zone;
+    }
+
     public UUID getSensorId() {
         return sensorId;
     }
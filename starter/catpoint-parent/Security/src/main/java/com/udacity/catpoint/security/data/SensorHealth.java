@@ -0,0 +1,29 @@
+package com.udacity.catpoint.security.data;
+
+import java.awt.*;
+
+/**
+ * Whether a sensor is still reporting. A sensor that has gone quiet for too long is stale: it
+ * may be broken or out of battery, so its inactive state cannot be trusted.
+ */
+public enum SensorHealth {
+    UNKNOWN("Not Tracked", new Color(150,150,150)),
+    HEALTHY("Reporting", new Color(120,200,30)),
+    STALE("Not Reporting", new Color(250,80,50));
+
+    private final String description;
+    private final Color color;
+
+    SensorHealth(String description, Color color) {
+        this.description = description;
+        this.color = color;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+}
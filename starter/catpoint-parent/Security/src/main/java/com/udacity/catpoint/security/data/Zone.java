@@ -0,0 +1,31 @@
+package com.udacity.catpoint.security.data;
+
+/**
+ * Areas of the property that are armed and alarmed independently of each other.
+ */
+public enum Zone {
+    PERIMETER("Perimeter"),
+    INTERIOR("Interior"),
+    GARAGE("Garage");
+
+    private final String description;
+
+    Zone(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * The zone a sensor of the given type belongs to unless placed elsewhere: doors and windows
+     * guard the perimeter, everything else the interior.
+     */
+    public static Zone defaultFor(SensorType sensorType) {
+        if (sensorType == SensorType.DOOR || sensorType == SensorType.WINDOW) {
+            return PERIMETER;
+        }
+        return INTERIOR;
+    }
+}
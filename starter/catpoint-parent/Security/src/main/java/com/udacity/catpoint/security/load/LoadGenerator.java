@@ -0,0 +1,431 @@
+package com.udacity.catpoint.security.load;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Drives a {@link SecurityService} with a simulated installation, for soak testing and capacity
+ * planning.
+ *
+ * Sensors of each type are activated by a Poisson process at the target rate, weighted by type:
+ * motion sensors fire most often, windows least. Each activation is held for a log-normally
+ * distributed time before the sensor deactivates, so short holds are common and long ones
+ * occasional. A synthetic camera feeds frames at a fixed rate, with a configurable chance of the
+ * image service seeing a cat, and the arming status cycles periodically.
+ *
+ * The service is called from a single thread, as the UI does. The schedule is open-loop: if the
+ * service falls behind, calls are made late rather than skipped, and the delay shows up in the
+ * latencies.
+ */
+public class LoadGenerator {
+
+    private static final double HOLD_SIGMA = 1.0;
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+
+    private final EnumMap<SensorType, Integer> fleet;
+    private final double activationsPerSecond;
+    private final double framesPerSecond;
+    private final double catProbability;
+    private final Duration duration;
+    private final Duration reportInterval;
+    private final Duration armingCycle;
+    private final Consumer<LoadReport> reporter;
+    private final Random random;
+
+    private LoadGenerator(Builder builder) {
+        this.fleet = new EnumMap<>(builder.fleet);
+        this.activationsPerSecond = builder.activationsPerSecond;
+        this.framesPerSecond = builder.framesPerSecond;
+        this.catProbability = builder.catProbability;
+        this.duration = builder.duration;
+        this.reportInterval = builder.reportInterval;
+        this.armingCycle = builder.armingCycle;
+        this.reporter = builder.reporter;
+        this.random = new Random(builder.seed);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final EnumMap<SensorType, Integer> fleet = new EnumMap<>(SensorType.class);
+        private double activationsPerSecond = 200;
+        private double framesPerSecond = 5;
+        private double catProbability = 0.05;
+        private Duration duration = Duration.ofMinutes(1);
+        private Duration reportInterval = Duration.ofSeconds(10);
+        private Duration armingCycle = Duration.ofSeconds(30);
+        private Consumer<LoadReport> reporter = report -> System.out.println(report);
+        private long seed = 1;
+
+        private Builder() {
+            fleet.put(SensorType.DOOR, 20);
+            fleet.put(SensorType.WINDOW, 40);
+            fleet.put(SensorType.MOTION, 10);
+        }
+
+        public Builder sensors(SensorType type, int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("sensor count must not be negative: " + count);
+            }
+            fleet.put(type, count);
+            return this;
+        }
+
+        /**
+         * Sensor activations per second across the fleet; zero leaves the sensors alone.
+         */
+        public Builder activationsPerSecond(double activationsPerSecond) {
+            if (!(activationsPerSecond >= 0)) {
+                throw new IllegalArgumentException("rate must not be negative: " + activationsPerSecond);
+            }
+            this.activationsPerSecond = activationsPerSecond;
+            return this;
+        }
+
+        /**
+         * Camera frame rate; zero disables the camera.
+         */
+        public Builder framesPerSecond(double framesPerSecond) {
+            if (!(framesPerSecond >= 0)) {
+                throw new IllegalArgumentException("frame rate must not be negative: " + framesPerSecond);
+            }
+            this.framesPerSecond = framesPerSecond;
+            return this;
+        }
+
+        public Builder catProbability(double catProbability) {
+            if (!(catProbability >= 0 && catProbability <= 1)) {
+                throw new IllegalArgumentException("cat probability must be between 0 and 1: " + catProbability);
+            }
+            this.catProbability = catProbability;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            this.duration = positive("duration", duration);
+            return this;
+        }
+
+        /**
+         * How often the reporter receives a report covering the interval just ended.
+         */
+        public Builder reportInterval(Duration reportInterval) {
+            this.reportInterval = positive("report interval", reportInterval);
+            return this;
+        }
+
+        /**
+         * How often the arming status moves on to the next one.
+         */
+        public Builder armingCycle(Duration armingCycle) {
+            this.armingCycle = positive("arming cycle", armingCycle);
+            return this;
+        }
+
+        public Builder reporter(Consumer<LoadReport> reporter) {
+            this.reporter = reporter;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+
+        /**
+         * Rejects intervals that would schedule the same event at the same time forever.
+         */
+        private static Duration positive(String name, Duration interval) {
+            if (interval.isZero() || interval.isNegative()) {
+                throw new IllegalArgumentException(name + " must be positive: " + interval);
+            }
+            return interval;
+        }
+    }
+
+    /**
+     * How often sensors of the type fire, relative to a door.
+     */
+    private static double activationWeight(SensorType type) {
+        return switch (type) {
+            case MOTION -> 4.0;
+            case WINDOW -> 0.3;
+            default -> 1.0;
+        };
+    }
+
+    /**
+     * Median time a sensor of the type stays active once triggered.
+     */
+    private static double medianHoldMillis(SensorType type) {
+        return switch (type) {
+            case MOTION -> 1_500;
+            case WINDOW -> 60_000;
+            default -> 4_000;
+        };
+    }
+
+    private enum Kind {ACTIVATION, DEACTIVATION, FRAME, ARMING, REPORT}
+
+    private static final class Scheduled implements Comparable<Scheduled> {
+        private final long due;
+        private final Kind kind;
+        private final Sensor sensor;
+
+        Scheduled(long due, Kind kind, Sensor sensor) {
+            this.due = due;
+            this.kind = kind;
+            this.sensor = sensor;
+        }
+
+        @Override
+        public int compareTo(Scheduled o) {
+            return Long.compare(due, o.due);
+        }
+    }
+
+    /**
+     * Runs for the configured duration on the calling thread and returns the report for the
+     * whole run.
+     */
+    public LoadReport run() {
+        ImageService camera = (image, threshold) -> random.nextDouble() < catProbability;
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), camera);
+        EnumMap<AlarmStatus, Long> transitions = new EnumMap<>(AlarmStatus.class);
+        EnumMap<AlarmStatus, Long> intervalTransitions = new EnumMap<>(AlarmStatus.class);
+        service.addStatusListener(new TransitionCounter(service.getAlarmStatus(), transitions, intervalTransitions),
+                StatusTopic.ALARM);
+
+        List<Sensor> sensors = new ArrayList<>();
+        for (Map.Entry<SensorType, Integer> entry : fleet.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                Sensor sensor = new Sensor(entry.getKey() + " " + i, entry.getKey());
+                service.addSensor(sensor);
+                sensors.add(sensor);
+            }
+        }
+        double[] cumulativeWeights = new double[sensors.size()];
+        double totalWeight = 0;
+        for (int i = 0; i < sensors.size(); i++) {
+            totalWeight += activationWeight(sensors.get(i).getSensorType());
+            cumulativeWeights[i] = totalWeight;
+        }
+        BufferedImage[] frames = syntheticFrames(4);
+        ArmingStatus[] armingStatuses = ArmingStatus.values();
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        LatencyHistogram intervalLatencies = new LatencyHistogram();
+        long[] calls = new long[2]; //total, interval
+        long[] frameCounts = new long[2];
+        long[] gcAtIntervalStart = gcTotals();
+        long[] gcAtStart = gcAtIntervalStart;
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intervalStart = start;
+        PriorityQueue<Scheduled> timeline = new PriorityQueue<>();
+        if (!sensors.isEmpty() && activationsPerSecond > 0) {
+            timeline.add(new Scheduled(start, Kind.ACTIVATION, null));
+        }
+        if (framesPerSecond > 0) {
+            timeline.add(new Scheduled(start, Kind.FRAME, null));
+        }
+        timeline.add(new Scheduled(start + armingCycle.toNanos(), Kind.ARMING, null));
+        timeline.add(new Scheduled(start + reportInterval.toNanos(), Kind.REPORT, null));
+
+        int frameIndex = 0;
+        int armingIndex = 0;
+        while (!timeline.isEmpty() && timeline.peek().due < end) {
+            Scheduled next = timeline.poll();
+            long wait;
+            while ((wait = next.due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean called = true;
+            switch (next.kind) {
+                case ACTIVATION -> {
+                    Sensor sensor = sensors.get(pick(cumulativeWeights, random.nextDouble() * totalWeight));
+                    if (Boolean.TRUE.equals(sensor.getActive())) {
+                        called = false; //already triggered; the hold in progress covers it
+                    } else {
+                        service.changeSensorActivationStatus(sensor, true);
+                        timeline.add(new Scheduled(next.due + holdNanos(sensor.getSensorType()), Kind.DEACTIVATION, sensor));
+                    }
+                    timeline.add(new Scheduled(next.due + exponentialNanos(activationsPerSecond), Kind.ACTIVATION, null));
+                }
+                case DEACTIVATION -> {
+                    if (Boolean.TRUE.equals(next.sensor.getActive())) {
+                        service.changeSensorActivationStatus(next.sensor, false);
+                    } else {
+                        called = false; //already reset by arming
+                    }
+                }
+                case FRAME -> {
+                    service.processImage(frames[frameIndex++ % frames.length]);
+                    frameCounts[0]++;
+                    frameCounts[1]++;
+                    timeline.add(new Scheduled(next.due + (long) (1e9 / framesPerSecond), Kind.FRAME, null));
+                }
+                case ARMING -> {
+                    armingIndex = (armingIndex + 1) % armingStatuses.length;
+                    service.setArmingStatus(armingStatuses[armingIndex]);
+                    timeline.add(new Scheduled(next.due + armingCycle.toNanos(), Kind.ARMING, null));
+                }
+                case REPORT -> {
+                    called = false;
+                    long now = System.nanoTime();
+                    long[] gc = gcTotals();
+                    reporter.accept(new LoadReport(now - intervalStart, calls[1], frameCounts[1], intervalLatencies,
+                            intervalTransitions, heapUsed(), gc[0] - gcAtIntervalStart[0], gc[1] - gcAtIntervalStart[1]));
+                    intervalLatencies.reset();
+                    intervalTransitions.clear();
+                    calls[1] = 0;
+                    frameCounts[1] = 0;
+                    gcAtIntervalStart = gc;
+                    intervalStart = now;
+                    timeline.add(new Scheduled(next.due + reportInterval.toNanos(), Kind.REPORT, null));
+                }
+            }
+            if (called) {
+                long latency = System.nanoTime() - next.due;
+                latencies.record(latency);
+                intervalLatencies.record(latency);
+                calls[0]++;
+                calls[1]++;
+            }
+        }
+
+        long[] gc = gcTotals();
+        return new LoadReport(System.nanoTime() - start, calls[0], frameCounts[0], latencies, transitions,
+                heapUsed(), gc[0] - gcAtStart[0], gc[1] - gcAtStart[1]);
+    }
+
+    /**
+     * Counts the alarm status changes the service announces. Listeners are also told about
+     * repeated statuses, so only actual changes are counted.
+     */
+    private static final class TransitionCounter implements StatusListener {
+        private final Map<AlarmStatus, Long> total;
+        private final Map<AlarmStatus, Long> interval;
+        private AlarmStatus last;
+
+        TransitionCounter(AlarmStatus initial, Map<AlarmStatus, Long> total, Map<AlarmStatus, Long> interval) {
+            this.last = initial;
+            this.total = total;
+            this.interval = interval;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            if (status != last) {
+                total.merge(status, 1L, Long::sum);
+                interval.merge(status, 1L, Long::sum);
+                last = status;
+            }
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+
+    private static int pick(double[] cumulativeWeights, double target) {
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+        return Math.min(index >= 0 ? index : -index - 1, cumulativeWeights.length - 1);
+    }
+
+    private long exponentialNanos(double perSecond) {
+        return (long) (-Math.log(1 - random.nextDouble()) / perSecond * 1e9);
+    }
+
+    private long holdNanos(SensorType type) {
+        return (long) (medianHoldMillis(type) * Math.exp(HOLD_SIGMA * random.nextGaussian()) * 1e6);
+    }
+
+    /**
+     * Noise frames, so images are not trivially compressible or identical.
+     */
+    private BufferedImage[] syntheticFrames(int count) {
+        BufferedImage[] frames = new BufferedImage[count];
+        int[] pixels = new int[FRAME_WIDTH * FRAME_HEIGHT];
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = random.nextInt();
+            }
+            frames[i] = new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+            frames[i].setRGB(0, 0, FRAME_WIDTH, FRAME_HEIGHT, pixels, 0, FRAME_WIDTH);
+        }
+        return frames;
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Collection count and time in milliseconds, summed over all collectors.
+     */
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    /**
+     * Runs a soak test from the command line. Options, all optional:
+     * {@code --door=20 --window=40 --motion=10 --rate=200 --fps=5 --cat=0.05 --duration=PT1M
+     * --report=PT10S --arming=PT30S --seed=1}
+     */
+    public static void main(String[] args) {
+        Builder builder = builder();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "door" -> builder.sensors(SensorType.DOOR, Integer.parseInt(value));
+                case "window" -> builder.sensors(SensorType.WINDOW, Integer.parseInt(value));
+                case "motion" -> builder.sensors(SensorType.MOTION, Integer.parseInt(value));
+                case "rate" -> builder.activationsPerSecond(Double.parseDouble(value));
+                case "fps" -> builder.framesPerSecond(Double.parseDouble(value));
+                case "cat" -> builder.catProbability(Double.parseDouble(value));
+                case "duration" -> builder.duration(Duration.parse(value));
+                case "report" -> builder.reportInterval(Duration.parse(value));
+                case "arming" -> builder.armingCycle(Duration.parse(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        LoadReport report = builder.build().run();
+        System.out.println("total " + report);
+    }
+}
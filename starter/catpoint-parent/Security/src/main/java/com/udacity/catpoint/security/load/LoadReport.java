@@ -0,0 +1,118 @@
+package com.udacity.catpoint.security.load;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Measurements from a load run, either for one reporting interval or for the whole run.
+ * Latencies are measured from when a call was scheduled, not from when it started, so they
+ * include any time the generator spent falling behind.
+ */
+public class LoadReport {
+
+    private final long elapsedNanos;
+    private final long calls;
+    private final long frames;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+    private final Map<AlarmStatus, Long> alarmTransitions;
+    private final long heapUsedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+
+    LoadReport(long elapsedNanos, long calls, long frames, LatencyHistogram latencies, Map<AlarmStatus, Long> alarmTransitions,
+               long heapUsedBytes, long gcCount, long gcMillis) {
+        this.elapsedNanos = elapsedNanos;
+        this.calls = calls;
+        this.frames = frames;
+        this.p50Nanos = latencies.percentile(0.5);
+        this.p99Nanos = latencies.percentile(0.99);
+        this.p999Nanos = latencies.percentile(0.999);
+        this.maxNanos = latencies.getMax();
+        this.alarmTransitions = Collections.unmodifiableMap(new EnumMap<>(alarmTransitions));
+        this.heapUsedBytes = heapUsedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calls made into the security service, camera frames included.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public double getCallsPerSecond() {
+        return elapsedNanos == 0 ? 0 : calls * 1e9 / elapsedNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Number of times the alarm moved into each status.
+     */
+    public Map<AlarmStatus, Long> getAlarmTransitions() {
+        return alarmTransitions;
+    }
+
+    /**
+     * Heap in use when the report was taken.
+     */
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1fs: %d calls (%.0f/s), %d frames, latency p50 %s p99 %s p99.9 %s max %s, "
+                        + "alarm transitions %s, heap %d MB, gc %d (%d ms)",
+                elapsedNanos / 1e9, calls, getCallsPerSecond(), frames,
+                format(p50Nanos), format(p99Nanos), format(p999Nanos), format(maxNanos),
+                alarmTransitions, heapUsedBytes >> 20, gcCount, gcMillis);
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return nanos / 1000 + "us";
+        }
+        return nanos / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,50 @@
+package com.udacity.catpoint.security.notification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends notifications to a local file as JSON lines, one write per batch.
+ */
+public class FileSink implements NotificationSink {
+
+    private final Path file;
+    private FileChannel channel;
+
+    public FileSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        StringBuilder lines = new StringBuilder(batch.size() * 64);
+        for (Notification notification : batch) {
+            lines.append(notification.toJson()).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "file:" + file;
+    }
+}
@@ -0,0 +1,118 @@
+package com.udacity.catpoint.security.notification;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Publishes each batch as one MQTT 3.1.1 message, a JSON array, with QoS 1, and waits for the
+ * broker's acknowledgement. Only the handful of packets needed to publish are implemented, which
+ * keeps an MQTT client library out of the app. Keep-alive is off, so an idle connection is only
+ * noticed when the next publish fails, and then retried on a new connection.
+ */
+public class MqttSink implements NotificationSink {
+
+    private static final int CONNECT = 0x10;
+    private static final int CONNACK = 0x20;
+    private static final int PUBLISH_QOS1 = 0x32;
+    private static final int PUBACK = 0x40;
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private final InetSocketAddress broker;
+    private final String clientId;
+    private final byte[] topic;
+    private Socket socket;
+    private DataInputStream in;
+    private OutputStream out;
+    private int packetId;
+
+    public MqttSink(InetSocketAddress broker, String clientId, String topic) {
+        this.broker = broker;
+        this.clientId = clientId;
+        this.topic = topic.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws IOException {
+        try {
+            if (socket == null) {
+                connect();
+            }
+            packetId = packetId % 0xFFFF + 1;
+            byte[] payload = Notification.toJson(batch);
+            ByteArrayOutputStream packet = new ByteArrayOutputStream(payload.length + topic.length + 8);
+            writeString(packet, topic);
+            packet.write(packetId >> 8);
+            packet.write(packetId);
+            packet.write(payload);
+            send(PUBLISH_QOS1, packet);
+
+            if (in.readUnsignedByte() != PUBACK || in.readUnsignedByte() != 2 || in.readUnsignedShort() != packetId) {
+                throw new IOException("Expected PUBACK for packet " + packetId);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        socket = new Socket();
+        socket.connect(broker, TIMEOUT_MILLIS);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new BufferedOutputStream(socket.getOutputStream());
+
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        writeString(packet, "MQTT".getBytes(StandardCharsets.US_ASCII));
+        packet.write(4); //protocol level 3.1.1
+        packet.write(0x02); //clean session
+        packet.write(0); //keep-alive off
+        packet.write(0);
+        writeString(packet, clientId.getBytes(StandardCharsets.UTF_8));
+        send(CONNECT, packet);
+
+        if (in.readUnsignedByte() != CONNACK || in.readUnsignedByte() != 2) {
+            throw new IOException("Expected CONNACK from " + broker);
+        }
+        in.readUnsignedByte(); //session present
+        int returnCode = in.readUnsignedByte();
+        if (returnCode != 0) {
+            throw new IOException("Broker " + broker + " refused connection, code " + returnCode);
+        }
+    }
+
+    private void send(int type, ByteArrayOutputStream body) throws IOException {
+        out.write(type);
+        int length = body.size();
+        do {
+            int digit = length & 0x7F;
+            length >>>= 7;
+            out.write(length > 0 ? digit | 0x80 : digit);
+        } while (length > 0);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeString(ByteArrayOutputStream packet, byte[] utf8) {
+        packet.write(utf8.length >> 8);
+        packet.write(utf8.length);
+        packet.write(utf8, 0, utf8.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Socket current = socket;
+        socket = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "mqtt:" + broker + "/" + new String(topic, StandardCharsets.UTF_8);
+    }
+}
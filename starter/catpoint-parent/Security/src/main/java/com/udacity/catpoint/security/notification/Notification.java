@@ -0,0 +1,83 @@
+package com.udacity.catpoint.security.notification;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Something the system tells the outside world about. Immutable, so one instance is shared by
+ * every subscriber's queue.
+ */
+public final class Notification {
+
+    public enum Type {
+        ALARM_STATUS,
+        CAT_DETECTED,
+        SENSORS_CHANGED
+    }
+
+    private final long timestampMillis;
+    private final Type type;
+    private final String value;
+
+    private Notification(long timestampMillis, Type type, String value) {
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.value = value;
+    }
+
+    public static Notification alarm(long timestampMillis, AlarmStatus status) {
+        return new Notification(timestampMillis, Type.ALARM_STATUS, status.name());
+    }
+
+    public static Notification cat(long timestampMillis, boolean catDetected) {
+        return new Notification(timestampMillis, Type.CAT_DETECTED, Boolean.toString(catDetected));
+    }
+
+    public static Notification sensorsChanged(long timestampMillis) {
+        return new Notification(timestampMillis, Type.SENSORS_CHANGED, "");
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The new alarm status name, or "true"/"false" for cat detection.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * {@code {"time":...,"type":"...","value":"..."}}. Values are enum names and booleans, so
+     * nothing needs escaping.
+     */
+    public String toJson() {
+        return "{\"time\":" + timestampMillis + ",\"type\":\"" + type + "\",\"value\":\"" + value + "\"}";
+    }
+
+    /**
+     * A batch as a JSON array, the payload most sinks send.
+     */
+    public static byte[] toJson(List<Notification> batch) {
+        StringBuilder json = new StringBuilder(batch.size() * 64).append('[');
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(batch.get(i).toJson());
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,329 @@
+package com.udacity.catpoint.security.notification;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends alarm, cat and sensor notifications to any number of {@link NotificationSink}s outside
+ * the process.
+ *
+ * Listener callbacks only hand the notification to a fan-out thread, so the security service is
+ * never held up by subscribers, however many there are or however slow. The fan-out thread adds
+ * it to each subscription's bounded queue; when a queue is full its oldest notification is
+ * dropped. Subscriptions are drained by a small shared pool, one batch at a time per sink, so
+ * whatever queued up during a delivery goes out together in the next batch.
+ *
+ * A failed batch is retried with exponential backoff and jitter, and handed to the dead-letter
+ * handler after the last attempt. Other sinks are unaffected while one is retrying.
+ */
+public class NotificationDispatcher implements StatusListener, Closeable {
+
+    /**
+     * Receives batches that could not be delivered.
+     */
+    public interface DeadLetterHandler {
+        void deadLetter(NotificationSink sink, List<Notification> batch, Exception cause);
+    }
+
+    private final int queueCapacity;
+    private final int maxBatch;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final DeadLetterHandler deadLetterHandler;
+    private final ExecutorService fanOut;
+    private final ScheduledExecutorService delivery;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final LongAdder published = new LongAdder();
+
+    private NotificationDispatcher(Builder builder) {
+        this.queueCapacity = builder.queueCapacity;
+        this.maxBatch = builder.maxBatch;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+        this.deadLetterHandler = builder.deadLetterHandler;
+        this.fanOut = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.delivery = Executors.newScheduledThreadPool(builder.threads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-delivery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int threads = 4;
+        private int queueCapacity = 1000;
+        private int maxBatch = 100;
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        private DeadLetterHandler deadLetterHandler = (sink, batch, cause) ->
+                System.err.println("Gave up delivering " + batch.size() + " notifications to " + sink + ": " + cause);
+
+        private Builder() {
+        }
+
+        /**
+         * Threads delivering to sinks. Sinks block while delivering, so this bounds how many
+         * slow sinks can be waited on at once, not how many sinks there can be.
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder maxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * Deliveries of a batch, the first included, before it is dead-lettered.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder backoff(Duration initial, Duration max) {
+            this.initialBackoff = initial;
+            this.maxBackoff = max;
+            return this;
+        }
+
+        public Builder deadLetterHandler(DeadLetterHandler deadLetterHandler) {
+            this.deadLetterHandler = deadLetterHandler;
+            return this;
+        }
+
+        public NotificationDispatcher build() {
+            return new NotificationDispatcher(this);
+        }
+    }
+
+    public Subscription subscribe(NotificationSink sink) {
+        Subscription subscription = new Subscription(sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Queues a notification for every subscriber. Never blocks.
+     */
+    public void publish(Notification notification) {
+        published.increment();
+        try {
+            fanOut.execute(() -> {
+                for (Subscription subscription : subscriptions) {
+                    subscription.offer(notification);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //closed
+        }
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        publish(Notification.alarm(System.currentTimeMillis(), status));
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        publish(Notification.cat(System.currentTimeMillis(), catDetected));
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        publish(Notification.sensorsChanged(System.currentTimeMillis()));
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    /**
+     * Stops delivering and closes every sink. Notifications still queued are discarded.
+     */
+    @Override
+    public void close() {
+        fanOut.shutdownNow();
+        delivery.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * One sink's queue and delivery state. Its fields are guarded by the subscription itself;
+     * the scheduled flag makes sure at most one delivery task per sink is queued or running.
+     */
+    public class Subscription {
+        private final NotificationSink sink;
+        private final ArrayDeque<Notification> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean cancelled;
+        private List<Notification> inFlight;
+        private int attempts;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder deadLettered = new LongAdder();
+
+        private Subscription(NotificationSink sink) {
+            this.sink = sink;
+        }
+
+        private void offer(Notification notification) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (queue.size() == queueCapacity) {
+                    queue.pollFirst();
+                    dropped.increment();
+                }
+                queue.addLast(notification);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            submit(this::drain, 0);
+        }
+
+        private void drain() {
+            List<Notification> batch;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (inFlight == null) {
+                    inFlight = new ArrayList<>(Math.min(queue.size(), maxBatch));
+                    while (!queue.isEmpty() && inFlight.size() < maxBatch) {
+                        inFlight.add(queue.pollFirst());
+                    }
+                    attempts = 0;
+                }
+                batch = inFlight;
+            }
+            try {
+                sink.deliver(batch);
+                delivered.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                int attempt;
+                synchronized (this) {
+                    attempt = ++attempts;
+                }
+                if (attempt < maxAttempts) {
+                    retries.increment();
+                    submit(this::drain, backoffNanos(attempt));
+                    return;
+                }
+                deadLettered.add(batch.size());
+                deadLetterHandler.deadLetter(sink, batch, e);
+            }
+            synchronized (this) {
+                inFlight = null;
+                if (queue.isEmpty() || cancelled) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            //resubmit rather than loop, so a busy sink takes turns with the others
+            submit(this::drain, 0);
+        }
+
+        private long backoffNanos(int attempt) {
+            long backoff = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+            //between half and all of the backoff, so sinks that failed together don't retry together
+            return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
+
+        private void submit(Runnable task, long delayNanos) {
+            try {
+                if (delayNanos == 0) {
+                    delivery.execute(task);
+                } else {
+                    delivery.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                //closed
+            }
+        }
+
+        /**
+         * Stops delivering to this sink and closes it.
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+            synchronized (this) {
+                cancelled = true;
+                queue.clear();
+            }
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("Could not close " + sink + ": " + e);
+            }
+        }
+
+        public NotificationSink getSink() {
+            return sink;
+        }
+
+        public synchronized int getQueued() {
+            return queue.size() + (inFlight == null ? 0 : inFlight.size());
+        }
+
+        public long getDelivered() {
+            return delivered.sum();
+        }
+
+        /**
+         * Notifications discarded because the queue was full.
+         */
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getDeadLettered() {
+            return deadLettered.sum();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.security.notification;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Destination for notifications outside the process. {@link NotificationDispatcher} calls
+ * {@link #deliver} from one thread at a time per sink, so implementations need not be
+ * thread-safe, and may block for as long as their own timeouts allow.
+ */
+public interface NotificationSink extends Closeable {
+
+    /**
+     * Delivers a batch, oldest first. Throwing makes the dispatcher retry the same batch later.
+     */
+    void deliver(List<Notification> batch) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Creates a sink from a short description:
+     * <pre>
+     *   webhook:http://host:port/path
+     *   mqtt:host:port/topic
+     *   socket:host:port
+     *   file:/path/to/file
+     * </pre>
+     *
+     * @throws IllegalArgumentException if the description is malformed
+     */
+    static NotificationSink parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected kind:target but was " + spec);
+        }
+        String target = spec.substring(colon + 1);
+        return switch (spec.substring(0, colon)) {
+            case "webhook" -> new WebhookSink(URI.create(target), Duration.ofSeconds(5));
+            case "mqtt" -> {
+                int slash = target.indexOf('/');
+                if (slash < 0) {
+                    throw new IllegalArgumentException("Expected mqtt:host:port/topic but got '" + spec + "'");
+                }
+                yield new MqttSink(address(target.substring(0, slash), spec), "catpoint", target.substring(slash + 1));
+            }
+            case "socket" -> new SocketSink(address(target, spec));
+            case "file" -> new FileSink(Paths.get(target));
+            default -> throw new IllegalArgumentException("Unknown sink kind in " + spec);
+        };
+    }
+
+    private static InetSocketAddress address(String hostAndPort, String spec) {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected host:port in '" + spec + "'");
+        }
+        try {
+            //also rejects ports out of range
+            return new InetSocketAddress(hostAndPort.substring(0, colon), Integer.parseInt(hostAndPort.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad port in '" + spec + "'", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.security.notification;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes notifications as JSON lines to a TCP connection, reconnecting after a failure. There is
+ * no acknowledgement, so a batch counts as delivered once the kernel has accepted it.
+ */
+public class SocketSink implements NotificationSink {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+    private final InetSocketAddress address;
+    private Socket socket;
+    private OutputStream out;
+
+    public SocketSink(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws IOException {
+        if (socket == null) {
+            socket = new Socket();
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+        try {
+            for (Notification notification : batch) {
+                out.write(notification.toJson().getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Socket current = socket;
+        socket = null;
+        out = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "socket:" + address;
+    }
+}
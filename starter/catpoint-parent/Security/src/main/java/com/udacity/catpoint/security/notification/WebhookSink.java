@@ -0,0 +1,49 @@
+package com.udacity.catpoint.security.notification;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch to a URL as a JSON array. Any response other than 2xx counts as a failure.
+ */
+public class WebhookSink implements NotificationSink {
+
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public WebhookSink(URI uri, Duration timeout) {
+        this.uri = uri;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(Notification.toJson(batch)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted posting to " + uri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + uri);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "webhook:" + uri;
+    }
+}
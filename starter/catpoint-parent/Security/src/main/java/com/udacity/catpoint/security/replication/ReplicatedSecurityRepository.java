@@ -0,0 +1,374 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repository decorator that streams every change to a {@link StandbyServer} in another process,
+ * so the standby can take over if this process dies.
+ *
+ * Changes are applied locally and appended to an in-memory backlog under a short lock; a
+ * background thread sends whatever has accumulated as one batch and keeps sending without
+ * waiting for the previous batch to be acknowledged. Callers of the repository therefore never
+ * wait on the network. The standby acknowledges each batch, and acknowledged records are
+ * dropped from the backlog.
+ *
+ * When the standby (re)connects it reports the last sequence it applied. If that is still in
+ * the backlog the primary resumes from there, otherwise it sends a snapshot of the whole state
+ * first. Use {@link #awaitReplicated} where a change must be on the standby before continuing.
+ */
+public class ReplicatedSecurityRepository implements SecurityRepository, Closeable {
+
+    private static final int DEFAULT_BACKLOG = 1 << 16;
+    private static final Duration DEFAULT_HEARTBEAT = Duration.ofMillis(100);
+    private static final int MAX_BATCH = 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 250;
+
+    private final SecurityRepository local;
+    private final InetSocketAddress standby;
+    private final long heartbeatNanos;
+    //identifies this primary's sequence numbers, so a standby that followed another primary gets a snapshot
+    private final long epoch = ThreadLocalRandom.current().nextLong() | 1;
+    private final Thread sender;
+
+    //guarded by this
+    private final byte[][] backlog;
+    private long sequence;
+    private long firstRetained = 1;
+    private long acknowledged;
+    private long nextToSend;
+    private boolean snapshotNeeded;
+    private boolean connected;
+    private boolean closed;
+
+    private volatile Socket socket;
+
+    private final LongAdder recordsSent = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder snapshotsSent = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+
+    public ReplicatedSecurityRepository(SecurityRepository local, InetSocketAddress standby) {
+        this(local, standby, DEFAULT_BACKLOG, DEFAULT_HEARTBEAT);
+    }
+
+    ReplicatedSecurityRepository(SecurityRepository local, InetSocketAddress standby, int backlogRecords, Duration heartbeat) {
+        this.local = local;
+        this.standby = standby;
+        this.backlog = new byte[backlogRecords][];
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.sender = new Thread(this::run, "replication-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        byte[] record = ReplicationProtocol.addSensor(sensor);
+        synchronized (this) {
+            local.addSensor(sensor);
+            append(record);
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        byte[] record = ReplicationProtocol.removeSensor(sensor);
+        synchronized (this) {
+            local.removeSensor(sensor);
+            append(record);
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        byte[] record = ReplicationProtocol.updateSensor(sensor);
+        synchronized (this) {
+            local.updateSensor(sensor);
+            append(record);
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        local.setAlarmStatus(alarmStatus);
+        append(ReplicationProtocol.alarmStatus(alarmStatus));
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        local.setArmingStatus(armingStatus);
+        append(ReplicationProtocol.armingStatus(armingStatus));
+    }
+
+    @Override
+    public synchronized void setZoneAlarmStatus(Zone zone, AlarmStatus alarmStatus) {
+        local.setZoneAlarmStatus(zone, alarmStatus);
+        append(ReplicationProtocol.zoneAlarmStatus(zone, alarmStatus));
+    }
+
+    @Override
+    public synchronized void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus) {
+        local.setZoneArmingStatus(zone, armingStatus);
+        append(ReplicationProtocol.zoneArmingStatus(zone, armingStatus));
+    }
+
+    @Override
+    public AlarmStatus getZoneAlarmStatus(Zone zone) {
+        return local.getZoneAlarmStatus(zone);
+    }
+
+    @Override
+    public ArmingStatus getZoneArmingStatus(Zone zone) {
+        return local.getZoneArmingStatus(zone);
+    }
+
+    @Override
+    public boolean hasZoneStatuses() {
+        return local.hasZoneStatuses();
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return local.getSensors();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return local.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return local.getArmingStatus();
+    }
+
+    @Override
+    public CompletableFuture<Void> ready() {
+        return local.ready();
+    }
+
+    private void append(byte[] record) {
+        sequence++;
+        backlog[(int) (sequence % backlog.length)] = record;
+        if (sequence - firstRetained >= backlog.length) {
+            //the standby is too far behind and will need a snapshot
+            firstRetained = sequence - backlog.length + 1;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits until the standby has applied every change made so far. Returns false if that did
+     * not happen within the timeout, for example because no standby is connected.
+     */
+    public synchronized boolean awaitReplicated(long timeout, TimeUnit unit) throws InterruptedException {
+        long target = sequence;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (acknowledged < target) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (!isClosed()) {
+            try (Socket connection = new Socket()) {
+                connection.connect(standby, CONNECT_TIMEOUT_MILLIS);
+                connection.setTcpNoDelay(true);
+                socket = connection;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 1 << 16));
+                handshake(in);
+                connections.increment();
+                Thread acks = new Thread(() -> readAcks(in, connection), "replication-acks");
+                acks.setDaemon(true);
+                acks.start();
+                stream(out);
+            } catch (IOException e) {
+                //standby down or connection lost; keep the backlog and try again
+            } finally {
+                synchronized (this) {
+                    connected = false;
+                    notifyAll();
+                }
+                socket = null;
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void handshake(DataInputStream in) throws IOException {
+        if (ReplicationProtocol.readFrameType(in) != ReplicationProtocol.HELLO) {
+            throw new IOException("Expected hello from standby");
+        }
+        long standbyEpoch = in.readLong();
+        long standbySequence = in.readLong();
+        synchronized (this) {
+            if (standbyEpoch == epoch && standbySequence >= firstRetained - 1 && standbySequence <= sequence) {
+                acknowledge(standbySequence);
+                nextToSend = standbySequence + 1;
+                snapshotNeeded = false;
+            } else {
+                snapshotNeeded = true;
+            }
+            connected = true;
+        }
+    }
+
+    /**
+     * Sends batches until the connection fails or the repository is closed. The lock is only held
+     * to pick up records; the network write happens outside it.
+     */
+    private void stream(DataOutputStream out) throws IOException {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            byte[] snapshot = null;
+            long snapshotSequence = 0;
+            long first;
+            batch.clear();
+            synchronized (this) {
+                long deadline = System.nanoTime() + heartbeatNanos;
+                while (connected && !closed && !snapshotNeeded && nextToSend >= firstRetained && nextToSend > sequence) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (!connected || closed) {
+                    return;
+                }
+                if (snapshotNeeded || nextToSend < firstRetained) {
+                    snapshot = ReplicationProtocol.encodeState(ReplicationProtocol.snapshot(local));
+                    snapshotSequence = sequence;
+                    nextToSend = sequence + 1;
+                    snapshotNeeded = false;
+                }
+                first = nextToSend;
+                while (nextToSend <= sequence && batch.size() < MAX_BATCH) {
+                    batch.add(backlog[(int) (nextToSend % backlog.length)]);
+                    nextToSend++;
+                }
+            }
+            if (snapshot != null) {
+                ReplicationProtocol.writeSnapshot(out, epoch, snapshotSequence, snapshot);
+                snapshotsSent.increment();
+            }
+            //an empty batch doubles as the heartbeat
+            ReplicationProtocol.writeBatch(out, first, batch);
+            out.flush();
+            batchesSent.increment();
+            recordsSent.add(batch.size());
+        }
+    }
+
+    private void readAcks(DataInputStream in, Socket connection) {
+        try {
+            while (true) {
+                if (ReplicationProtocol.readFrameType(in) != ReplicationProtocol.ACK) {
+                    throw new IOException("Expected ack from standby");
+                }
+                long applied = in.readLong();
+                synchronized (this) {
+                    acknowledge(applied);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                connected = false;
+                notifyAll();
+            }
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void acknowledge(long applied) {
+        if (applied > acknowledged) {
+            acknowledged = applied;
+            firstRetained = Math.max(firstRetained, applied + 1);
+            notifyAll();
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Sequence number of the latest change.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sequence number of the latest change the standby has applied.
+     */
+    public synchronized long getAcknowledgedSequence() {
+        return acknowledged;
+    }
+
+    public long getRecordsSent() {
+        return recordsSent.sum();
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    public long getSnapshotsSent() {
+        return snapshotsSent.sum();
+    }
+
+    public long getConnections() {
+        return connections.sum();
+    }
+
+    /**
+     * Stops replicating. Changes not yet acknowledged may never reach the standby.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        sender.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
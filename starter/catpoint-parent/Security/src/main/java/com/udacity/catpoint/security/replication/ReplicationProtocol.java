@@ -0,0 +1,210 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire format shared by the primary and the standby. Every frame is an int length (covering the
+ * type byte and the payload), a type byte and the payload:
+ *
+ * <pre>
+ *   HELLO    standby to primary  long epoch of the primary it last followed, long last applied sequence
+ *   SNAPSHOT primary to standby  long epoch, long sequence, int length, binary state
+ *   BATCH    primary to standby  long first sequence, int count, count times (int length, record)
+ *   ACK      standby to primary  long last applied sequence
+ * </pre>
+ *
+ * A record is an operation byte followed by a sensor in {@link BinarySecurityStateCodec} layout,
+ * a status ordinal, or a zone ordinal and a status ordinal. A batch with no records is a heartbeat.
+ */
+final class ReplicationProtocol {
+
+    static final byte HELLO = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte BATCH = 3;
+    static final byte ACK = 4;
+
+    private static final byte ADD_SENSOR = 1;
+    private static final byte REMOVE_SENSOR = 2;
+    private static final byte UPDATE_SENSOR = 3;
+    private static final byte ALARM_STATUS = 4;
+    private static final byte ARMING_STATUS = 5;
+    private static final byte ZONE_ALARM_STATUS = 6;
+    private static final byte ZONE_ARMING_STATUS = 7;
+
+    private static final int MAX_FRAME_BYTES = 64 << 20;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final Zone[] ZONES = Zone.values();
+    private static final BinarySecurityStateCodec STATE_CODEC = new BinarySecurityStateCodec();
+
+    private ReplicationProtocol() {
+    }
+
+    static byte[] addSensor(Sensor sensor) {
+        return sensorRecord(ADD_SENSOR, sensor);
+    }
+
+    static byte[] removeSensor(Sensor sensor) {
+        return sensorRecord(REMOVE_SENSOR, sensor);
+    }
+
+    static byte[] updateSensor(Sensor sensor) {
+        return sensorRecord(UPDATE_SENSOR, sensor);
+    }
+
+    static byte[] alarmStatus(AlarmStatus status) {
+        return new byte[]{ALARM_STATUS, (byte) status.ordinal()};
+    }
+
+    static byte[] armingStatus(ArmingStatus status) {
+        return new byte[]{ARMING_STATUS, (byte) status.ordinal()};
+    }
+
+    static byte[] zoneAlarmStatus(Zone zone, AlarmStatus status) {
+        return new byte[]{ZONE_ALARM_STATUS, (byte) zone.ordinal(), (byte) status.ordinal()};
+    }
+
+    static byte[] zoneArmingStatus(Zone zone, ArmingStatus status) {
+        return new byte[]{ZONE_ARMING_STATUS, (byte) zone.ordinal(), (byte) status.ordinal()};
+    }
+
+    private static byte[] sensorRecord(byte operation, Sensor sensor) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeByte(operation);
+            BinarySecurityStateCodec.writeSensor(sensor, data);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //in-memory stream
+        }
+    }
+
+    /**
+     * Applies one record to the standby's repository.
+     */
+    static void apply(byte[] record, SecurityRepository target) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(record));
+        byte operation = data.readByte();
+        switch (operation) {
+            case ADD_SENSOR -> target.addSensor(BinarySecurityStateCodec.readSensor(data));
+            case REMOVE_SENSOR -> target.removeSensor(BinarySecurityStateCodec.readSensor(data));
+            case UPDATE_SENSOR -> target.updateSensor(BinarySecurityStateCodec.readSensor(data));
+            case ALARM_STATUS -> target.setAlarmStatus(ALARM_STATUSES[data.readUnsignedByte()]);
+            case ARMING_STATUS -> target.setArmingStatus(ARMING_STATUSES[data.readUnsignedByte()]);
+            case ZONE_ALARM_STATUS -> target.setZoneAlarmStatus(ZONES[data.readUnsignedByte()], ALARM_STATUSES[data.readUnsignedByte()]);
+            case ZONE_ARMING_STATUS -> target.setZoneArmingStatus(ZONES[data.readUnsignedByte()], ARMING_STATUSES[data.readUnsignedByte()]);
+            default -> throw new IOException("Unknown replication record " + operation);
+        }
+    }
+
+    /**
+     * Captures the whole state of a repository, zones included.
+     */
+    static SecurityState snapshot(SecurityRepository source) {
+        Map<Zone, AlarmStatus> zoneAlarmStatuses = new EnumMap<>(Zone.class);
+        Map<Zone, ArmingStatus> zoneArmingStatuses = new EnumMap<>(Zone.class);
+        for (Zone zone : ZONES) {
+            zoneAlarmStatuses.put(zone, source.getZoneAlarmStatus(zone));
+            zoneArmingStatuses.put(zone, source.getZoneArmingStatus(zone));
+        }
+        return new SecurityState(source.getAlarmStatus(), source.getArmingStatus(), zoneAlarmStatuses, zoneArmingStatuses,
+                source.getSensors());
+    }
+
+    static byte[] encodeState(SecurityState state) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            STATE_CODEC.write(state, bytes);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the standby's state with a snapshot from the primary.
+     */
+    static void applySnapshot(byte[] snapshot, SecurityRepository target) throws IOException {
+        SecurityState state = STATE_CODEC.read(new ByteArrayInputStream(snapshot));
+        for (Sensor sensor : new ArrayList<>(target.getSensors())) {
+            target.removeSensor(sensor);
+        }
+        for (Sensor sensor : state.getSensors()) {
+            target.addSensor(sensor);
+        }
+        target.setAlarmStatus(state.getAlarmStatus());
+        target.setArmingStatus(state.getArmingStatus());
+        for (Zone zone : ZONES) {
+            target.setZoneAlarmStatus(zone, state.getZoneAlarmStatus(zone));
+            target.setZoneArmingStatus(zone, state.getZoneArmingStatus(zone));
+        }
+    }
+
+    static void writeHello(DataOutputStream out, long epoch, long sequence) throws IOException {
+        out.writeInt(1 + 16);
+        out.writeByte(HELLO);
+        out.writeLong(epoch);
+        out.writeLong(sequence);
+        out.flush();
+    }
+
+    static void writeAck(DataOutputStream out, long sequence) throws IOException {
+        out.writeInt(1 + 8);
+        out.writeByte(ACK);
+        out.writeLong(sequence);
+        out.flush();
+    }
+
+    static void writeSnapshot(DataOutputStream out, long epoch, long sequence, byte[] snapshot) throws IOException {
+        out.writeInt(1 + 20 + snapshot.length);
+        out.writeByte(SNAPSHOT);
+        out.writeLong(epoch);
+        out.writeLong(sequence);
+        out.writeInt(snapshot.length);
+        out.write(snapshot);
+    }
+
+    static void writeBatch(DataOutputStream out, long firstSequence, List<byte[]> records) throws IOException {
+        int length = 1 + 12;
+        for (byte[] record : records) {
+            length += 4 + record.length;
+        }
+        out.writeInt(length);
+        out.writeByte(BATCH);
+        out.writeLong(firstSequence);
+        out.writeInt(records.size());
+        for (byte[] record : records) {
+            out.writeInt(record.length);
+            out.write(record);
+        }
+    }
+
+    /**
+     * Reads a frame header and returns its type, leaving the payload to be read by the caller.
+     */
+    static byte readFrameType(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Bad replication frame length " + length);
+        }
+        return in.readByte();
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Bad replication record length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
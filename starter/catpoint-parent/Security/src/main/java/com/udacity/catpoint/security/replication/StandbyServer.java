@@ -0,0 +1,202 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.SecurityRepository;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receiving end of replication. Accepts a connection from a {@link ReplicatedSecurityRepository}
+ * and applies its snapshots and changes, in order, to a local repository, acknowledging each
+ * batch once applied.
+ *
+ * If the primary's connection drops or it stays silent for longer than the timeout (it sends a
+ * heartbeat while idle), the primary-lost listener runs. Calling {@link #promote} then stops
+ * following and hands over the repository, which already holds everything acknowledged.
+ */
+public class StandbyServer implements Closeable {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(500);
+
+    private final SecurityRepository target;
+    private final ServerSocket server;
+    private final int timeoutMillis;
+    private final Thread acceptor;
+    private volatile Runnable primaryLostListener = () -> {};
+    private volatile Socket primary;
+
+    //guarded by this
+    private long primaryEpoch;
+    private long lastApplied;
+
+    private final LongAdder recordsApplied = new LongAdder();
+    private final LongAdder snapshotsApplied = new LongAdder();
+
+    public StandbyServer(SecurityRepository target, int port) throws IOException {
+        this(target, new InetSocketAddress(port), DEFAULT_TIMEOUT);
+    }
+
+    public StandbyServer(SecurityRepository target, InetSocketAddress bindAddress, Duration primaryTimeout) throws IOException {
+        this.target = target;
+        this.timeoutMillis = (int) primaryTimeout.toMillis();
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(bindAddress);
+        this.acceptor = new Thread(this::acceptLoop, "standby-" + server.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Runs on the standby's thread whenever a connected primary is lost.
+     */
+    public void setPrimaryLostListener(Runnable listener) {
+        this.primaryLostListener = listener;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            Socket connection;
+            try {
+                connection = server.accept();
+            } catch (IOException e) {
+                return; //closed
+            }
+            try (connection) {
+                connection.setTcpNoDelay(true);
+                connection.setSoTimeout(timeoutMillis);
+                primary = connection;
+                follow(new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16)),
+                        new DataOutputStream(new BufferedOutputStream(connection.getOutputStream())));
+            } catch (SocketTimeoutException e) {
+                System.err.println("Primary silent for " + timeoutMillis + " ms");
+            } catch (IOException e) {
+                //connection closed or broken
+            } finally {
+                primary = null;
+            }
+            if (!server.isClosed()) {
+                primaryLostListener.run();
+            }
+        }
+    }
+
+    private void follow(DataInputStream in, DataOutputStream out) throws IOException {
+        synchronized (this) {
+            ReplicationProtocol.writeHello(out, primaryEpoch, lastApplied);
+        }
+        while (true) {
+            byte type = ReplicationProtocol.readFrameType(in);
+            if (type == ReplicationProtocol.SNAPSHOT) {
+                long epoch = in.readLong();
+                long sequence = in.readLong();
+                byte[] snapshot = ReplicationProtocol.readBytes(in);
+                synchronized (this) {
+                    ReplicationProtocol.applySnapshot(snapshot, target);
+                    primaryEpoch = epoch;
+                    lastApplied = sequence;
+                }
+                snapshotsApplied.increment();
+                ReplicationProtocol.writeAck(out, sequence);
+            } else if (type == ReplicationProtocol.BATCH) {
+                long first = in.readLong();
+                int count = in.readInt();
+                if (count == 0) {
+                    continue; //heartbeat
+                }
+                long applied;
+                synchronized (this) {
+                    for (int i = 0; i < count; i++) {
+                        byte[] record = ReplicationProtocol.readBytes(in);
+                        long sequence = first + i;
+                        if (sequence > lastApplied + 1) {
+                            throw new IOException("Missing changes " + (lastApplied + 1) + " to " + (sequence - 1));
+                        }
+                        if (sequence == lastApplied + 1) {
+                            ReplicationProtocol.apply(record, target);
+                            lastApplied = sequence;
+                            recordsApplied.increment();
+                        }
+                    }
+                    applied = lastApplied;
+                }
+                ReplicationProtocol.writeAck(out, applied);
+            } else {
+                throw new IOException("Unexpected replication frame " + type);
+            }
+        }
+    }
+
+    public boolean isPrimaryConnected() {
+        return primary != null;
+    }
+
+    public synchronized long getLastAppliedSequence() {
+        return lastApplied;
+    }
+
+    public long getRecordsApplied() {
+        return recordsApplied.sum();
+    }
+
+    public long getSnapshotsApplied() {
+        return snapshotsApplied.sum();
+    }
+
+    /**
+     * Stops following the primary and returns the replicated repository for this process to use.
+     */
+    public synchronized SecurityRepository promote() throws IOException {
+        close();
+        return target;
+    }
+
+    /**
+     * Drops the current primary connection, as a network failure would. The primary reconnects.
+     */
+    void dropConnection() throws IOException {
+        Socket current = primary;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        dropConnection();
+    }
+
+    /**
+     * Runs a standby that takes over as soon as the primary is lost and prints what it holds.
+     * Start the app with {@code -Dcatpoint.standby=host:port} to replicate to it.
+     *
+     * Usage: {@code StandbyServer [port] [timeout millis]}
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Duration timeout = args.length > 1 ? Duration.ofMillis(Long.parseLong(args[1])) : DEFAULT_TIMEOUT;
+        StandbyServer standby = new StandbyServer(new InMemorySecurityRepository(), new InetSocketAddress(port), timeout);
+        CountDownLatch lost = new CountDownLatch(1);
+        standby.setPrimaryLostListener(lost::countDown);
+        System.out.println("Standby listening on port " + standby.getPort());
+
+        lost.await();
+        long start = System.nanoTime();
+        SecurityRepository repository = standby.promote();
+        System.out.printf("Primary lost after change %d; took over in %.1f ms with %d sensors, alarm %s, arming %s%n",
+                standby.getLastAppliedSequence(), (System.nanoTime() - start) / 1e6, repository.getSensors().size(),
+                repository.getAlarmStatus(), repository.getArmingStatus());
+    }
+}
@@ -0,0 +1,28 @@
+package com.udacity.catpoint.security.service;
+
+/**
+ * Things that happen to the security system which may change the alarm status. Which
+ * transition each one causes is decided by {@link AlarmRules}.
+ */
+public enum AlarmEvent {
+    /** A sensor was switched on, whether or not it already was. */
+    SENSOR_ACTIVATED,
+    /** An active sensor was switched off. */
+    SENSOR_DEACTIVATED,
+    /** An inactive sensor was switched off again. */
+    INACTIVE_SENSOR_DEACTIVATED,
+    /** A sensor was saved as it is, and it is active. */
+    SENSOR_REPORTED_ACTIVE,
+    /** A sensor was saved as it is, and it is inactive. */
+    SENSOR_REPORTED_INACTIVE,
+    /** The camera shows a cat. */
+    CAT_DETECTED,
+    /** The camera no longer shows a cat and no sensor is active. */
+    CAT_GONE_SENSORS_INACTIVE,
+    /** The camera no longer shows a cat but some sensor is still active. */
+    CAT_GONE_SENSORS_ACTIVE,
+    /** The arming status changed while no cat was seen. Matched against the new arming status. */
+    ARMING_CHANGED,
+    /** The arming status changed while the camera shows a cat. Matched against the new arming status. */
+    ARMING_CHANGED_CAT_PRESENT
+}
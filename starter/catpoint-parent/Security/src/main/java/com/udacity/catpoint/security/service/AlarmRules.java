@@ -0,0 +1,166 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Alarm policy: which alarm status the system moves to when an {@link AlarmEvent} happens, given
+ * the current alarm status, the arming status and the type of the sensor involved.
+ *
+ * Rules are read from text, one per line:
+ *
+ * <pre>
+ *   # event              alarm status   arming status   sensor type  -&gt; new alarm status
+ *   SENSOR_ACTIVATED     NO_ALARM       !DISARMED       *            -&gt; PENDING_ALARM
+ *   SENSOR_ACTIVATED     *              ARMED_HOME      MOTION       -&gt; UNCHANGED
+ * </pre>
+ *
+ * Each condition is {@code *}, a name, a comma-separated list of names, or {@code !name} for
+ * anything else. The first rule that matches wins, and events no rule matches leave the alarm
+ * alone. {@code UNCHANGED} lets a specific rule shadow a more general one below it. The sensor
+ * type of events without a sensor, and statuses a repository has not set, only match {@code *}
+ * and {@code !name}.
+ *
+ * Rules are compiled into one dense table covering every combination, so looking up a
+ * transition is a single array read whatever the number of rules.
+ */
+public class AlarmRules {
+
+    private static final String DEFAULT_RULES = "alarm-rules.txt";
+    private static final byte NO_CHANGE = -1;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final int ALARM_SLOTS = ALARM_STATUSES.length + 1;
+    private static final int ARMING_SLOTS = ArmingStatus.values().length + 1;
+    private static final int SENSOR_SLOTS = SensorType.values().length + 1;
+    private static final int EVENT_SLOTS = AlarmEvent.values().length;
+
+    private static AlarmRules defaults;
+
+    //indexed by event, alarm status, arming status and sensor type; the last slot of each is "none"
+    private final byte[] table;
+
+    private AlarmRules(byte[] table) {
+        this.table = table;
+    }
+
+    /**
+     * The rules the system has always used, loaded once from the bundled rules file.
+     */
+    public static synchronized AlarmRules defaults() {
+        if (defaults == null) {
+            try (InputStream in = AlarmRules.class.getResourceAsStream(DEFAULT_RULES)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing " + DEFAULT_RULES);
+                }
+                defaults = parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaults;
+    }
+
+    public static AlarmRules load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Compiles rules in the format described above.
+     * @throws IllegalArgumentException naming the line of the first malformed rule
+     */
+    public static AlarmRules parse(Reader source) throws IOException {
+        byte[] table = new byte[EVENT_SLOTS * ALARM_SLOTS * ARMING_SLOTS * SENSOR_SLOTS];
+        boolean[] decided = new boolean[table.length];
+        Arrays.fill(table, NO_CHANGE);
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String rule = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            try {
+                compile(rule, table, decided);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return new AlarmRules(table);
+    }
+
+    private static void compile(String rule, byte[] table, boolean[] decided) {
+        String[] sides = rule.split("->");
+        String[] conditions = sides[0].trim().split("\\s+");
+        if (sides.length != 2 || conditions.length != 4) {
+            throw new IllegalArgumentException("Expected 'event alarm arming sensor -> status' but was '" + rule + "'");
+        }
+        AlarmEvent event = AlarmEvent.valueOf(conditions[0]);
+        boolean[] alarms = matcher(conditions[1], AlarmStatus.class);
+        boolean[] armings = matcher(conditions[2], ArmingStatus.class);
+        boolean[] sensors = matcher(conditions[3], SensorType.class);
+        String target = sides[1].trim();
+        byte next = target.equals("UNCHANGED") ? NO_CHANGE : (byte) AlarmStatus.valueOf(target).ordinal();
+
+        for (int alarm = 0; alarm < ALARM_SLOTS; alarm++) {
+            for (int arming = 0; arming < ARMING_SLOTS; arming++) {
+                for (int sensor = 0; sensor < SENSOR_SLOTS; sensor++) {
+                    int index = index(event.ordinal(), alarm, arming, sensor);
+                    if (alarms[alarm] && armings[arming] && sensors[sensor] && !decided[index]) {
+                        table[index] = next;
+                        decided[index] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Which slots of an enum dimension a condition matches. The extra last slot stands for
+     * "none" and only matches wildcards and negations.
+     */
+    private static <E extends Enum<E>> boolean[] matcher(String condition, Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        boolean[] matches = new boolean[constants.length + 1];
+        if (condition.equals("*")) {
+            Arrays.fill(matches, true);
+        } else if (condition.startsWith("!")) {
+            Arrays.fill(matches, true);
+            matches[Enum.valueOf(type, condition.substring(1)).ordinal()] = false;
+        } else {
+            for (String name : condition.split(",")) {
+                matches[Enum.valueOf(type, name).ordinal()] = true;
+            }
+        }
+        return matches;
+    }
+
+    private static int index(int event, int alarm, int arming, int sensor) {
+        return ((event * ALARM_SLOTS + alarm) * ARMING_SLOTS + arming) * SENSOR_SLOTS + sensor;
+    }
+
+    /**
+     * The alarm status the event leads to, or null if it leaves the alarm status alone.
+     * Any argument except the event may be null.
+     */
+    public AlarmStatus next(AlarmEvent event, AlarmStatus alarmStatus, ArmingStatus armingStatus, SensorType sensorType) {
+        byte next = table[index(event.ordinal(),
+                alarmStatus == null ? ALARM_SLOTS - 1 : alarmStatus.ordinal(),
+                armingStatus == null ? ARMING_SLOTS - 1 : armingStatus.ordinal(),
+                sensorType == null ? SENSOR_SLOTS - 1 : sensorType.ordinal())];
+        return next == NO_CHANGE ? null : ALARM_STATUSES[next];
+    }
+}
@@ -0,0 +1,207 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the latest value of some state, per key, to any number of subscribers.
+ *
+ * Subscribers are sent the current value of every key when they subscribe, then each change.
+ * A subscriber that has not requested more is not queued a backlog: it is only remembered which
+ * keys changed, and when it requests more it gets their values as they are by then. So a slow
+ * subscriber skips intermediate values but always ends up with the latest, and however slow it
+ * is, it costs at most one entry per key. Values are shared between subscribers, not copied,
+ * so they must be immutable. A key that goes away is {@linkplain #retract retracted}, so it
+ * stops costing anything once the subscribers have been told.
+ *
+ * {@link #publish} never blocks; subscribers are signalled on the given executor, one signal at
+ * a time per subscriber.
+ */
+public class ConflatingPublisher<K, V> implements Flow.Publisher<V> {
+
+    private final Executor executor;
+    private final Supplier<? extends Map<K, V>> current;
+    private final Map<K, V> latest = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<ConflatingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    //held while seeding from the current state and while retracting, so a key retracted during
+    //seeding cannot come back from an older snapshot
+    private final Object seedLock = new Object();
+
+    /**
+     * @param current the state before anything was published, asked for when someone subscribes.
+     *                It must no longer contain a key by the time the key is retracted.
+     */
+    public ConflatingPublisher(Executor executor, Supplier<? extends Map<K, V>> current) {
+        this.executor = executor;
+        this.current = current;
+    }
+
+    /**
+     * Makes the value the latest for its key and tells subscribers. Does nothing if the key
+     * already has an equal value.
+     */
+    public void publish(K key, V value) {
+        V previous = latest.put(key, value);
+        if (Objects.equals(previous, value)) {
+            return;
+        }
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.changed(key);
+        }
+    }
+
+    /**
+     * Tells the current subscribers the key's final value, typically one saying it is gone, then
+     * forgets the key, so later subscribers never hear of it. A subscriber that has not yet
+     * received it still gets the final value, unless the key is published again first.
+     */
+    public void retract(K key, V removal) {
+        synchronized (seedLock) {
+            if (latest.remove(key) == null) {
+                return;
+            }
+        }
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.retracted(key, removal);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super V> subscriber) {
+        Objects.requireNonNull(subscriber);
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+        //subscribe before seeding, so nothing published meanwhile is missed
+        subscriptions.add(subscription);
+        synchronized (seedLock) {
+            current.get().forEach(latest::putIfAbsent);
+        }
+        latest.keySet().forEach(subscription::changed);
+        subscription.signal();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private class ConflatingSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super V> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        //guarded by changed; final values of retracted keys not yet delivered
+        private final LinkedHashSet<K> changed = new LinkedHashSet<>();
+        private final Map<K, V> retracted = new HashMap<>();
+        private boolean subscribed;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        private ConflatingSubscription(Flow.Subscriber<? super V> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void changed(K key) {
+            synchronized (changed) {
+                changed.add(key);
+                retracted.remove(key);
+            }
+            if (requested.get() > 0) {
+                signal();
+            }
+        }
+
+        private void retracted(K key, V removal) {
+            synchronized (changed) {
+                changed.add(key);
+                retracted.put(key, removal);
+            }
+            if (requested.get() > 0) {
+                signal();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + ", must be positive");
+            } else {
+                requested.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Runs the delivery loop on the executor unless it is already running, in which case the
+         * running loop goes round again.
+         */
+        private void signal() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = pending.get();
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                while (!cancelled) {
+                    if (error != null) {
+                        cancel();
+                        subscriber.onError(error);
+                        break;
+                    }
+                    if (requested.get() == 0) {
+                        break;
+                    }
+                    V value;
+                    synchronized (changed) {
+                        if (changed.isEmpty()) {
+                            break;
+                        }
+                        var keys = changed.iterator();
+                        K key = keys.next();
+                        keys.remove();
+                        value = retracted.containsKey(key) ? retracted.remove(key) : latest.get(key);
+                    }
+                    if (value == null) {
+                        continue; //retracted before this subscriber was told about it
+                    }
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(value);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
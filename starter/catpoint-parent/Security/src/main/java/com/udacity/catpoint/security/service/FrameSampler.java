@@ -0,0 +1,332 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Zone;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which camera frames are worth sending for recognition, so the cost of recognition
+ * stays bounded however many cameras there are.
+ *
+ * Each camera wants frames analyzed at a rate set by the arming status: rarely while the system
+ * is disarmed, often once it is armed. The rate goes up while an alarm is pending or sounding,
+ * and for a while after a sensor is activated, most for cameras in the sensor's zone. The rates
+ * of all cameras together are capped at a fixed budget: when they want more, each gets the same
+ * fraction of what it wants, so the cameras that matter keep their lead. A camera whose rate
+ * goes up gets its next frame analyzed straight away rather than waiting out its old interval.
+ */
+public class FrameSampler {
+
+    //how much more often to analyze while an alarm is pending, or after a nearby sensor fired
+    private static final double PENDING_BOOST = 4;
+    private static final double ALARM_BOOST = 2;
+    private static final double ZONE_ACTIVITY_BOOST = 4;
+    private static final double ACTIVITY_BOOST = 2;
+
+    private final double budget;
+    private final Map<ArmingStatus, Double> baseRates;
+    private final long activityWindowNanos;
+    private final LongSupplier clock;
+
+    private final List<Camera> cameras = new ArrayList<>();
+    private final Map<Zone, Long> lastActivity = new EnumMap<>(Zone.class);
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    //when the next recent activation stops counting, so rates must be worked out again
+    private long reallocateAt = Long.MAX_VALUE;
+
+    private FrameSampler(Builder builder) {
+        this.budget = builder.budget;
+        this.baseRates = new EnumMap<>(builder.baseRates);
+        this.activityWindowNanos = builder.activityWindow.toNanos();
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Adds a camera watching the given zone, or the whole property if the zone is null.
+     */
+    public synchronized Camera addCamera(String name, Zone zone) {
+        Camera camera = new Camera(name, zone, clock.getAsLong());
+        cameras.add(camera);
+        reallocate(clock.getAsLong());
+        return camera;
+    }
+
+    /**
+     * Follows the arming status, alarm status and sensor activations of the service from now on.
+     * Sensors that are already active do not count as activity.
+     */
+    public void watch(SecurityService securityService) {
+        securityService.armingStatuses().subscribe(new Watcher<>(this::armingChanged));
+        securityService.alarmStatuses().subscribe(new Watcher<>(this::alarmChanged));
+        //activations are not conflated, so a sensor that goes on and straight off again still counts
+        securityService.addActivationListener(sensor -> sensorActivated(sensor.getZone()));
+    }
+
+    public synchronized void armingChanged(ArmingStatus status) {
+        armingStatus = status;
+        reallocate(clock.getAsLong());
+    }
+
+    public synchronized void alarmChanged(AlarmStatus status) {
+        alarmStatus = status;
+        reallocate(clock.getAsLong());
+    }
+
+    /**
+     * Counts a sensor activation as activity in the sensor's zone.
+     */
+    public synchronized void sensorActivated(Zone zone) {
+        long now = clock.getAsLong();
+        lastActivity.put(zone == null ? Zone.INTERIOR : zone, now);
+        reallocate(now);
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * The frames per second all cameras are currently allowed together.
+     */
+    public synchronized double getAllocated() {
+        double total = 0;
+        for (Camera camera : cameras) {
+            total += camera.rate;
+        }
+        return total;
+    }
+
+    private synchronized boolean admit(Camera camera) {
+        long now = clock.getAsLong();
+        if (now - reallocateAt >= 0) {
+            reallocate(now);
+        }
+        camera.refill(now);
+        if (camera.tokens < 1) {
+            return false;
+        }
+        camera.tokens -= 1;
+        return true;
+    }
+
+    private synchronized void remove(Camera camera) {
+        cameras.remove(camera);
+        reallocate(clock.getAsLong());
+    }
+
+    private void reallocate(long now) {
+        reallocateAt = Long.MAX_VALUE;
+        for (long at : lastActivity.values()) {
+            long expires = at + activityWindowNanos;
+            if (expires - now > 0 && expires - reallocateAt < 0) {
+                reallocateAt = expires;
+            }
+        }
+        double[] wanted = new double[cameras.size()];
+        double total = 0;
+        for (int i = 0; i < wanted.length; i++) {
+            wanted[i] = wantedRate(cameras.get(i), now);
+            total += wanted[i];
+        }
+        double scale = total > budget ? budget / total : 1;
+        for (int i = 0; i < wanted.length; i++) {
+            cameras.get(i).setRate(wanted[i] * scale, now);
+        }
+    }
+
+    private double wantedRate(Camera camera, long now) {
+        double rate = baseRates.get(armingStatus);
+        if (alarmStatus == AlarmStatus.PENDING_ALARM) {
+            rate *= PENDING_BOOST;
+        } else if (alarmStatus == AlarmStatus.ALARM) {
+            rate *= ALARM_BOOST;
+        }
+        double activity = 1;
+        for (Map.Entry<Zone, Long> entry : lastActivity.entrySet()) {
+            if (now - entry.getValue() >= activityWindowNanos) {
+                continue;
+            }
+            boolean nearby = camera.zone == null || camera.zone == entry.getKey();
+            activity = Math.max(activity, nearby ? ZONE_ACTIVITY_BOOST : ACTIVITY_BOOST);
+        }
+        return rate * activity;
+    }
+
+    /**
+     * One camera's share of the budget. Offer it each frame; only frames it admits should be
+     * analyzed.
+     */
+    public class Camera implements AutoCloseable {
+
+        private final String name;
+        private final Zone zone;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        //guarded by the sampler
+        private double rate;
+        private double tokens = 1;
+        private long refilledAt;
+
+        private Camera(String name, Zone zone, long now) {
+            this.name = name;
+            this.zone = zone;
+            this.refilledAt = now;
+        }
+
+        /**
+         * True if this frame should be analyzed. Cheap enough to call for every frame.
+         */
+        public boolean offer() {
+            boolean admit = admit(this);
+            (admit ? admitted : skipped).increment();
+            return admit;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Zone getZone() {
+            return zone;
+        }
+
+        /**
+         * The frames per second this camera may currently have analyzed.
+         */
+        public double getRate() {
+            synchronized (FrameSampler.this) {
+                return rate;
+            }
+        }
+
+        public long getAdmitted() {
+            return admitted.sum();
+        }
+
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        /**
+         * Gives this camera's share of the budget back to the others.
+         */
+        @Override
+        public void close() {
+            remove(this);
+        }
+
+        private void setRate(double newRate, long now) {
+            refill(now);
+            if (newRate > rate) {
+                tokens = 1;
+            }
+            rate = newRate;
+        }
+
+        private void refill(long now) {
+            //at most one frame's worth is saved up, so a quiet spell never turns into a burst
+            tokens = Math.min(1, tokens + rate * (now - refilledAt) / 1e9);
+            refilledAt = now;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class Watcher<T> implements Flow.Subscriber<T> {
+        private final Consumer<T> consumer;
+
+        Watcher(Consumer<T> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+            consumer.accept(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("Frame sampler stopped following the security state: " + throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    public static class Builder {
+        private double budget = 4;
+        private final Map<ArmingStatus, Double> baseRates = new EnumMap<>(Map.of(
+                ArmingStatus.DISARMED, 0.1,
+                ArmingStatus.ARMED_HOME, 1.0,
+                ArmingStatus.ARMED_AWAY, 2.0));
+        private Duration activityWindow = Duration.ofSeconds(30);
+        private LongSupplier clock = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Frames per second to analyze across all cameras at most. Defaults to 4.
+         */
+        public Builder budget(double framesPerSecond) {
+            if (!(framesPerSecond > 0)) {
+                throw new IllegalArgumentException("budget must be positive: " + framesPerSecond);
+            }
+            this.budget = framesPerSecond;
+            return this;
+        }
+
+        /**
+         * Frames per second one camera wants analyzed in the given arming status, before any
+         * boost. Defaults to 0.1 disarmed, 1 armed at home and 2 armed away.
+         */
+        public Builder rate(ArmingStatus status, double framesPerSecond) {
+            if (framesPerSecond < 0) {
+                throw new IllegalArgumentException("rate must not be negative: " + framesPerSecond);
+            }
+            baseRates.put(status, framesPerSecond);
+            return this;
+        }
+
+        /**
+         * How long an activated sensor keeps nearby cameras boosted. Defaults to 30 seconds.
+         */
+        public Builder activityWindow(Duration activityWindow) {
+            this.activityWindow = activityWindow;
+            return this;
+        }
+
+        Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public FrameSampler build() {
+            return new FrameSampler(this);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs work for a {@link SecurityService} on two lanes of its own threads, so callers hand work
+ * off instead of doing it, and a pile of camera frames can never hold up a sensor.
+ *
+ * Sensor and arming changes go on the sensor lane: one thread, so they happen in the order they
+ * were submitted, and nothing else ever runs on it. Frames go on the image lane, which has a few
+ * threads and a short queue; when the queue is full the oldest frame is dropped, since a newer
+ * one shows the same camera more recently. Image threads only pick up a frame when the sensor
+ * lane has nothing queued or running, so under load images yield to sensors. A frame already
+ * being scanned is not interrupted, but scanning happens outside the service's lock, which is
+ * only held briefly to apply the verdict.
+ *
+ * Sensor changes are never dropped, so how long one waits is not bounded: one waiting longer than
+ * the target is only counted as late.
+ */
+public class SecurityLanes implements Closeable {
+
+    private final SecurityService securityService;
+    private final int imageQueueCapacity;
+    private final long sensorDelayTargetNanos;
+    private final Lane sensorLane = new Lane("sensor");
+    private final Lane imageLane = new Lane("image");
+    private final List<Thread> threads = new ArrayList<>();
+
+    //all below guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition sensorWork = lock.newCondition();
+    private final Condition imageWork = lock.newCondition();
+    private final ArrayDeque<Task<?>> sensorQueue = new ArrayDeque<>();
+    private final ArrayDeque<Task<?>> imageQueue = new ArrayDeque<>();
+    private boolean sensorBusy;
+    private boolean closed;
+
+    private SecurityLanes(Builder builder) {
+        this.securityService = builder.securityService;
+        this.imageQueueCapacity = builder.imageQueueCapacity;
+        this.sensorDelayTargetNanos = builder.sensorDelayTarget.toNanos();
+        threads.add(daemon("security-sensor-lane", this::runSensorLane));
+        for (int i = 1; i <= builder.imageThreads; i++) {
+            threads.add(daemon("security-image-lane-" + i, this::runImageLane));
+        }
+        threads.forEach(Thread::start);
+    }
+
+    public static Builder builder(SecurityService securityService) {
+        return new Builder(securityService);
+    }
+
+    public CompletableFuture<Void> changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        return submitSensor(() -> {
+            securityService.changeSensorActivationStatus(sensor, active);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> setArmingStatus(ArmingStatus armingStatus) {
+        return submitSensor(() -> {
+            securityService.setArmingStatus(armingStatus);
+            return null;
+        });
+    }
+
+    /**
+     * Scans the image on the image lane. The future is cancelled if the frame is dropped to make
+     * room for newer ones before it is scanned.
+     */
+    public CompletableFuture<DetectionResult> analyzeImage(BufferedImage image) {
+        Task<DetectionResult> task = new Task<>(() -> securityService.analyzeImage(image));
+        Task<?> dropped = null;
+        lock.lock();
+        try {
+            checkOpen();
+            if (imageQueue.size() >= imageQueueCapacity) {
+                dropped = imageQueue.pollFirst();
+            }
+            imageQueue.addLast(task);
+            if (!sensorBusy && sensorQueue.isEmpty()) {
+                imageWork.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (dropped != null) {
+            imageLane.dropped.increment();
+            dropped.future.cancel(false);
+        }
+        return task.future;
+    }
+
+    public Lane getSensorLane() {
+        return sensorLane;
+    }
+
+    public Lane getImageLane() {
+        return imageLane;
+    }
+
+    /**
+     * Sensor changes that waited longer than the target before running.
+     */
+    public long getLateSensorChanges() {
+        return sensorLane.late.sum();
+    }
+
+    /**
+     * Stops the lanes. Work still queued is cancelled; work already running finishes.
+     */
+    @Override
+    public void close() {
+        List<Task<?>> abandoned = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            abandoned.addAll(sensorQueue);
+            abandoned.addAll(imageQueue);
+            sensorQueue.clear();
+            imageQueue.clear();
+            sensorWork.signalAll();
+            imageWork.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        abandoned.forEach(task -> task.future.cancel(false));
+    }
+
+    private <T> CompletableFuture<T> submitSensor(Supplier<T> work) {
+        Task<T> task = new Task<>(work);
+        lock.lock();
+        try {
+            checkOpen();
+            sensorQueue.addLast(task);
+            sensorWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.future;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new RejectedExecutionException("lanes are closed");
+        }
+    }
+
+    private void runSensorLane() {
+        while (true) {
+            Task<?> task;
+            lock.lock();
+            try {
+                while (sensorQueue.isEmpty() && !closed) {
+                    sensorWork.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                task = sensorQueue.pollFirst();
+                sensorBusy = true;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                long waited = task.run(sensorLane);
+                if (waited > sensorDelayTargetNanos) {
+                    sensorLane.late.increment();
+                }
+            } finally {
+                lock.lock();
+                try {
+                    sensorBusy = false;
+                    if (sensorQueue.isEmpty()) {
+                        imageWork.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void runImageLane() {
+        while (true) {
+            Task<?> task;
+            lock.lock();
+            try {
+                while ((imageQueue.isEmpty() || sensorBusy || !sensorQueue.isEmpty()) && !closed) {
+                    imageWork.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                task = imageQueue.pollFirst();
+            } finally {
+                lock.unlock();
+            }
+            task.run(imageLane);
+        }
+    }
+
+    private int queued(ArrayDeque<Task<?>> queue) {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class Task<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        Task(Supplier<T> work) {
+            this.work = work;
+        }
+
+        /**
+         * Runs the work, completing the future, and returns how long it waited to start. Errors
+         * complete the future too, so they neither kill the lane's thread nor leave callers
+         * waiting.
+         */
+        long run(Lane lane) {
+            long waited = System.nanoTime() - queuedAt;
+            lane.waitNanos.add(waited);
+            lane.maxWaitNanos.accumulate(waited);
+            T result;
+            try {
+                result = work.get();
+            } catch (Throwable e) {
+                lane.completed.increment();
+                future.completeExceptionally(e);
+                return waited;
+            }
+            //counted first, so whoever sees the future complete also sees it counted
+            lane.completed.increment();
+            future.complete(result);
+            return waited;
+        }
+    }
+
+    /**
+     * Queue depth and waiting time of one lane.
+     */
+    public class Lane {
+        private final String name;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder late = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Work waiting to start.
+         */
+        public int getQueued() {
+            return queued(this == sensorLane ? sensorQueue : imageQueue);
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        /**
+         * Average time work waited between being submitted and starting.
+         */
+        public Duration getMeanWait() {
+            long count = completed.sum();
+            return Duration.ofNanos(count == 0 ? 0 : waitNanos.sum() / count);
+        }
+
+        public Duration getMaxWait() {
+            return Duration.ofNanos(maxWaitNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return name + " lane: " + getQueued() + " queued, " + getCompleted() + " done, " + getDropped()
+                    + " dropped, mean wait " + getMeanWait().toMillis() + " ms, max " + getMaxWait().toMillis() + " ms";
+        }
+    }
+
+    public static class Builder {
+        private final SecurityService securityService;
+        private int imageThreads = 2;
+        private int imageQueueCapacity = 4;
+        private Duration sensorDelayTarget = Duration.ofMillis(50);
+
+        private Builder(SecurityService securityService) {
+            this.securityService = securityService;
+        }
+
+        /**
+         * Frames scanned at once. Defaults to 2.
+         */
+        public Builder imageThreads(int imageThreads) {
+            if (imageThreads < 1) {
+                throw new IllegalArgumentException("need at least one image thread");
+            }
+            this.imageThreads = imageThreads;
+            return this;
+        }
+
+        /**
+         * Frames waiting to be scanned before the oldest is dropped. Defaults to 4.
+         */
+        public Builder imageQueueCapacity(int imageQueueCapacity) {
+            if (imageQueueCapacity < 1) {
+                throw new IllegalArgumentException("image queue capacity must be positive");
+            }
+            this.imageQueueCapacity = imageQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Sensor changes waiting longer than this to run are counted as late. Defaults to 50 ms.
+         */
+        public Builder sensorDelayTarget(Duration sensorDelayTarget) {
+            this.sensorDelayTarget = sensorDelayTarget;
+            return this;
+        }
+
+        public SecurityLanes build() {
+            return new SecurityLanes(this);
+        }
+    }
+}
@@ -1,40 +1,98 @@
 package com.udacity.catpoint.security.service;
 
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.ImageService;
 import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorHealth;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
-import static com.udacity.catpoint.security.data.AlarmStatus.*;
-import static com.udacity.catpoint.security.data.AlarmStatus.NO_ALARM;
-
 /**
  * Service that receives information about changes to the security system. Responsible for
  * forwarding updates to the repository and making any decisions about changing the system state.
  *
  * This is the class that should contain most of the business logic for our system, and it is the
- * class you will be writing unit tests for.
+ * class you will be writing unit tests for. Which alarm transitions happen is decided by the
+ * {@link AlarmRules} it is given; this class works out which {@link AlarmEvent} occurred.
+ *
+ * Besides {@link StatusListener}s, which are called on the thread making the change and only
+ * for the {@link StatusTopic}s, zones or sensors they were registered for, the state
+ * can be watched through {@link Flow.Publisher}s that deliver on another thread and conflate
+ * changes for subscribers that fall behind, so they cannot hold up the service.
+ *
+ * The service may be driven from several threads. Each state change is made under the service's
+ * lock, so the alarm rules always see a consistent state and listeners are told about changes
+ * in the order they happened. Image analysis happens outside the lock.
  */
 public class SecurityService {
 
+    private static final String STATE = "state";
+
     private ImageService imageService;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
-    private Boolean catDetection = false;
+    private AlarmRules alarmRules;
+    private final StatusListenerRegistry statusListeners = new StatusListenerRegistry();
+    private volatile Boolean catDetection = false;
+    private volatile float catConfidenceThreshold = 50.0f;
+    private volatile DetectionResult lastDetection;
+
+    private final ConflatingPublisher<String, AlarmStatus> alarmStatuses;
+    private final ConflatingPublisher<String, ArmingStatus> armingStatuses;
+    private final ConflatingPublisher<String, Boolean> catDetections;
+    private final ConflatingPublisher<UUID, SensorChange> sensorChanges;
+    private final CopyOnWriteArrayList<ActivationListener> activationListeners = new CopyOnWriteArrayList<>();
+    private volatile SensorHeartbeats heartbeats;
+
+    /**
+     * Hears about every sensor activation as it happens, unlike the {@link #sensorChanges()}
+     * stream, which only keeps each sensor's latest state.
+     */
+    public interface ActivationListener {
+        void sensorActivated(Sensor sensor);
+    }
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, AlarmRules.defaults());
+    }
+
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, AlarmRules alarmRules) {
+        this(securityRepository, imageService, alarmRules, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param streamExecutor runs the subscribers of the state streams
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, AlarmRules alarmRules,
+                           Executor streamExecutor) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.alarmRules = alarmRules;
+        this.alarmStatuses = new ConflatingPublisher<>(streamExecutor,
+                () -> Collections.singletonMap(STATE, getAlarmStatus()));
+        this.armingStatuses = new ConflatingPublisher<>(streamExecutor,
+                () -> Collections.singletonMap(STATE, getArmingStatus()));
+        this.catDetections = new ConflatingPublisher<>(streamExecutor,
+                () -> Collections.singletonMap(STATE, catDetection));
+        this.sensorChanges = new ConflatingPublisher<>(streamExecutor,
+                () -> getSensors().stream().collect(Collectors.toMap(Sensor::getSensorId, SensorChange::of)));
     }
 
     /**
@@ -42,19 +100,16 @@ public class SecurityService {
      * may update both the alarm status.
      * @param armingStatus
      */
-    public void setArmingStatus(ArmingStatus armingStatus) {
-        if(catDetection && armingStatus == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        }
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        applyRules(catDetection ? AlarmEvent.ARMING_CHANGED_CAT_PRESENT : AlarmEvent.ARMING_CHANGED, armingStatus, null);
 
-        if(armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        } else {
+        if(armingStatus != ArmingStatus.DISARMED) {
             ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
             sensors.forEach(sensor -> changeSensorActivationStatus(sensor, false));
         }
         securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(sl -> sl.sensorStatusChanged());
+        armingStatuses.publish(STATE, armingStatus);
+        statusListeners.sensorsChanged();
     }
 
     private boolean getAllSensorsFromState(boolean state) {
@@ -66,16 +121,27 @@ public class SecurityService {
      * the camera currently shows a cat.
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
+    private synchronized void catDetected(Boolean cat) {
         catDetection = cat;
 
-        if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        } else if(!cat && getAllSensorsFromState(false)) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+        if(cat) {
+            applyRules(AlarmEvent.CAT_DETECTED, getArmingStatus(), null);
+        } else {
+            applyRules(getAllSensorsFromState(false) ? AlarmEvent.CAT_GONE_SENSORS_INACTIVE : AlarmEvent.CAT_GONE_SENSORS_ACTIVE,
+                    getArmingStatus(), null);
         }
 
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        catDetections.publish(STATE, cat);
+        statusListeners.catDetected(cat);
+    }
+
+    /**
+     * Register a listener called each time a sensor is activated or reports being active, on the
+     * thread that made the change and while the service is locked, so it must be quick.
+     * @param activationListener
+     */
+    public void addActivationListener(ActivationListener activationListener) {
+        activationListeners.add(activationListener);
     }
 
     /**
@@ -83,58 +149,85 @@ public class SecurityService {
      * @param statusListener
      */
     public void addStatusListener(StatusListener statusListener) {
-        statusListeners.add(statusListener);
+        statusListeners.subscribe(statusListener, EnumSet.allOf(StatusTopic.class));
     }
 
+    /**
+     * Register the StatusListener for only some kinds of update; its other callbacks are never
+     * called. Registering it again adds to the topics it hears about.
+     * @param statusListener
+     * @param topic
+     * @param moreTopics
+     */
+    public void addStatusListener(StatusListener statusListener, StatusTopic topic, StatusTopic... moreTopics) {
+        statusListeners.subscribe(statusListener, EnumSet.of(topic, moreTopics));
+    }
+
+    /**
+     * Register the StatusListener to hear, through {@link StatusListener#sensorStatusChanged},
+     * about each change to a sensor in the zone, as well as about changes to all sensors.
+     * @param statusListener
+     * @param zone
+     */
+    public void addSensorListener(StatusListener statusListener, Zone zone) {
+        statusListeners.subscribe(statusListener, zone);
+    }
+
+    /**
+     * Register the StatusListener to hear about each change to one sensor, as well as about
+     * changes to all sensors.
+     * @param statusListener
+     * @param sensorId
+     */
+    public void addSensorListener(StatusListener statusListener, UUID sensorId) {
+        statusListeners.subscribe(statusListener, sensorId);
+    }
+
+    /**
+     * Stops the StatusListener hearing about anything it was registered for.
+     * @param statusListener
+     */
     public void removeStatusListener(StatusListener statusListener) {
-        statusListeners.remove(statusListener);
+        statusListeners.unsubscribe(statusListener);
     }
 
     /**
      * Change the alarm status of the system and notify all listeners.
      * @param status
      */
-    public void setAlarmStatus(AlarmStatus status) {
+    public synchronized void setAlarmStatus(AlarmStatus status) {
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        alarmStatuses.publish(STATE, status);
+        statusListeners.alarmChanged(status);
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been activated.
+     * Internal method that moves the alarm to whatever status the rules give for the event.
+     * @param armingStatus the arming status to match, which for arming changes is the new one
+     * @param sensorType the type of the sensor involved, or null
      */
-    private void handleSensorActivated() {
-        if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
-        }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+    private void applyRules(AlarmEvent event, ArmingStatus armingStatus, SensorType sensorType) {
+        AlarmStatus next = alarmRules.next(event, securityRepository.getAlarmStatus(), armingStatus, sensorType);
+        if(next != null) {
+            setAlarmStatus(next);
         }
     }
 
-    /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
-     */
-    private void handleSensorDeactivated() {
-        switch(securityRepository.getAlarmStatus()) {
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-        }
-    }
     /**
      * Change the activation status for the specified sensor when no activate status is passed and update alarm status if necessary.
      * @param sensor
      */
-    public void changeSensorActivationStatus(Sensor sensor) {
-        AlarmStatus actualAlarmStatus = this.getAlarmStatus();
-        ArmingStatus actualArmingStatus = this.getArmingStatus();
-
-        if (actualAlarmStatus == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
-            handleSensorDeactivated();
-        } else if (actualAlarmStatus == AlarmStatus.ALARM && actualArmingStatus == ArmingStatus.DISARMED) {
-            handleSensorDeactivated();
-        }
+    public synchronized void changeSensorActivationStatus(Sensor sensor) {
+        heartbeat(sensor);
+        AlarmEvent event = Boolean.TRUE.equals(sensor.getActive())
+                ? AlarmEvent.SENSOR_REPORTED_ACTIVE : AlarmEvent.SENSOR_REPORTED_INACTIVE;
+        applyRules(event, getArmingStatus(), sensor.getSensorType());
         securityRepository.updateSensor(sensor);
+        sensorChanges.publish(sensor.getSensorId(), SensorChange.of(sensor));
+        statusListeners.sensorChanged(sensor);
+        if (event == AlarmEvent.SENSOR_REPORTED_ACTIVE) {
+            activated(sensor);
+        }
     }
 
     /**
@@ -142,18 +235,37 @@ public class SecurityService {
      * @param sensor
      * @param active
      */
-    public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        AlarmStatus actualAlarmStatus = securityRepository.getAlarmStatus();
-
-        if(actualAlarmStatus != AlarmStatus.ALARM) {
-            if(active) {
-                handleSensorActivated();
-            } else if (sensor.getActive()) {
-                handleSensorDeactivated();
-            }
+    public synchronized void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        heartbeat(sensor);
+        AlarmEvent event;
+        if(active) {
+            event = AlarmEvent.SENSOR_ACTIVATED;
+        } else if(Boolean.TRUE.equals(sensor.getActive())) {
+            event = AlarmEvent.SENSOR_DEACTIVATED;
+        } else {
+            event = AlarmEvent.INACTIVE_SENSOR_DEACTIVATED;
         }
+        applyRules(event, getArmingStatus(), sensor.getSensorType());
         sensor.setActive(active);
         securityRepository.updateSensor(sensor);
+        sensorChanges.publish(sensor.getSensorId(), SensorChange.of(sensor));
+        statusListeners.sensorChanged(sensor);
+        if (active) {
+            activated(sensor);
+        }
+    }
+
+    private void heartbeat(Sensor sensor) {
+        SensorHeartbeats tracker = heartbeats;
+        if (tracker != null) {
+            tracker.heartbeat(sensor.getSensorId());
+        }
+    }
+
+    private void activated(Sensor sensor) {
+        for (ActivationListener listener : activationListeners) {
+            listener.sensorActivated(sensor);
+        }
     }
 
     /**
@@ -162,26 +274,152 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        catDetected(imageService.imageContainsCat(currentCameraImage, catConfidenceThreshold));
+    }
+
+    /**
+     * Scans the image for all labels and updates the alarm status like {@link #processImage}.
+     * The result is kept, so changing the cat confidence threshold later re-evaluates it
+     * without scanning again.
+     * @param currentCameraImage
+     * @return every label found in the image
+     */
+    public DetectionResult analyzeImage(BufferedImage currentCameraImage) {
+        DetectionResult result = imageService.detect(currentCameraImage);
+        processDetection(result);
+        return result;
+    }
+
+    /**
+     * Updates the alarm status from a detection result obtained elsewhere, for example from a
+     * cache or a stored recording.
+     * @param result
+     */
+    public synchronized void processDetection(DetectionResult result) {
+        lastDetection = result;
+        catDetected(result.containsCat(catConfidenceThreshold));
+    }
+
+    /**
+     * Sets the confidence, in percent, needed to treat an image as showing a cat, and applies it
+     * to the last analyzed image.
+     * @param threshold
+     */
+    public synchronized void setCatConfidenceThreshold(float threshold) {
+        catConfidenceThreshold = threshold;
+        if (lastDetection != null) {
+            catDetected(lastDetection.containsCat(threshold));
+        }
+    }
+
+    public float getCatConfidenceThreshold() {
+        return catConfidenceThreshold;
+    }
+
+    /**
+     * The result of the last analyzed image, or null if none has been analyzed.
+     */
+    public DetectionResult getLastDetection() {
+        return lastDetection;
     }
 
     public AlarmStatus getAlarmStatus() {
         return securityRepository.getAlarmStatus();
     }
 
+    /**
+     * Completes once the repository has finished loading the persisted system state.
+     */
+    public CompletableFuture<Void> ready() {
+        return securityRepository.ready();
+    }
+
     public Set<Sensor> getSensors() {
         return securityRepository.getSensors();
     }
 
-    public void addSensor(Sensor sensor) {
+    public synchronized void addSensor(Sensor sensor) {
+        SensorHeartbeats tracker = heartbeats;
+        if (tracker != null) {
+            tracker.register(sensor.getSensorId());
+        }
         securityRepository.addSensor(sensor);
+        sensorChanges.publish(sensor.getSensorId(), SensorChange.of(sensor));
+        statusListeners.sensorChanged(sensor);
     }
 
-    public void removeSensor(Sensor sensor) {
+    public synchronized void removeSensor(Sensor sensor) {
+        SensorHeartbeats tracker = heartbeats;
+        if (tracker != null) {
+            tracker.unregister(sensor.getSensorId());
+        }
         securityRepository.removeSensor(sensor);
+        sensorChanges.retract(sensor.getSensorId(), SensorChange.removed(sensor));
+        statusListeners.sensorChanged(sensor);
     }
 
     public ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
+
+    /**
+     * Tracks whether each sensor is still reporting. Every sensor, including those added later,
+     * is registered with the tracker, and each report or change of a sensor is a heartbeat. Build
+     * the tracker with {@link #sensorHealthChanged} as its listener so health changes are shown.
+     */
+    public void trackHealth(SensorHeartbeats heartbeats) {
+        this.heartbeats = heartbeats;
+        //sensors may still be loading
+        ready().thenRun(() -> {
+            synchronized (this) {
+                getSensors().forEach(sensor -> heartbeats.register(sensor.getSensorId()));
+            }
+        });
+    }
+
+    /**
+     * Whether the sensor is still reporting, or {@link SensorHealth#UNKNOWN} if health is not
+     * tracked.
+     */
+    public SensorHealth getSensorHealth(Sensor sensor) {
+        SensorHeartbeats tracker = heartbeats;
+        return tracker == null ? SensorHealth.UNKNOWN : tracker.getHealth(sensor.getSensorId());
+    }
+
+    /**
+     * Tells the listeners of the sensors topic that a sensor went quiet or started reporting
+     * again. Meant as the tracker's {@link SensorHeartbeats.HealthListener}, so it takes no lock.
+     */
+    public void sensorHealthChanged(UUID sensorId, SensorHealth health) {
+        statusListeners.sensorsChanged();
+    }
+
+    /**
+     * The alarm status: the current one on subscribing, then each change.
+     */
+    public Flow.Publisher<AlarmStatus> alarmStatuses() {
+        return alarmStatuses;
+    }
+
+    /**
+     * The arming status: the current one on subscribing, then each change.
+     */
+    public Flow.Publisher<ArmingStatus> armingStatuses() {
+        return armingStatuses;
+    }
+
+    /**
+     * Whether the camera shows a cat: the current answer on subscribing, then each change.
+     */
+    public Flow.Publisher<Boolean> catDetections() {
+        return catDetections;
+    }
+
+    /**
+     * Every sensor on subscribing, then each sensor that is added, removed or changes. A
+     * subscriber that falls behind gets only the latest change of each sensor.
+     */
+    public Flow.Publisher<SensorChange> sensorChanges() {
+        return sensorChanges;
+    }
 }
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable copy of a sensor as it was when it changed, published by
+ * {@link SecurityService#sensorChanges()}. {@link Sensor} itself is mutable, so it is not
+ * handed to subscribers running on other threads.
+ */
+public class SensorChange {
+
+    private final UUID sensorId;
+    private final String name;
+    private final SensorType sensorType;
+    private final Zone zone;
+    private final boolean active;
+    private final boolean removed;
+
+    private SensorChange(Sensor sensor, boolean removed) {
+        this.sensorId = sensor.getSensorId();
+        this.name = sensor.getName();
+        this.sensorType = sensor.getSensorType();
+        this.zone = sensor.getZone();
+        this.active = Boolean.TRUE.equals(sensor.getActive());
+        this.removed = removed;
+    }
+
+    public static SensorChange of(Sensor sensor) {
+        return new SensorChange(sensor, false);
+    }
+
+    public static SensorChange removed(Sensor sensor) {
+        return new SensorChange(sensor, true);
+    }
+
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    public Zone getZone() {
+        return zone;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * True if the sensor was removed from the system; its other fields are as they were last.
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SensorChange that = (SensorChange) o;
+        return active == that.active && removed == that.removed && Objects.equals(sensorId, that.sensorId)
+                && Objects.equals(name, that.name) && sensorType == that.sensorType && zone == that.zone;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sensorId, active, removed);
+    }
+
+    @Override
+    public String toString() {
+        return name + (removed ? " removed" : active ? " active" : " inactive");
+    }
+}
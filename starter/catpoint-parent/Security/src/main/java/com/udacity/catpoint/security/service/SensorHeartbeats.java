@@ -0,0 +1,337 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.SensorHealth;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks when each sensor last reported, and marks sensors stale once they have been quiet for
+ * longer than the timeout, so a dead sensor can be told apart from an inactive one.
+ *
+ * Each registered sensor gets a dense slot, and its state lives in primitive arrays indexed by
+ * that slot. A heartbeat is a single array write, so sensors can report from any thread, as
+ * often as they like, without allocating or taking a lock.
+ *
+ * Staleness is found by sweeping a timing wheel: one list of slots per tick, linked through an
+ * int array. A sensor waits in the bucket of the tick by which it must have reported again.
+ * Heartbeats do not move it; when its bucket comes round, the sweep looks at when it last
+ * reported and either marks it stale or moves it on to its new deadline. Each sensor is looked
+ * at about once per timeout, however often it reports.
+ */
+public class SensorHeartbeats implements Closeable {
+
+    /**
+     * Told when a sensor becomes stale or starts reporting again, on the thread that noticed:
+     * the sweeping thread, or the one delivering the heartbeat. Called under the tracker's
+     * lock, so it should be quick.
+     */
+    public interface HealthListener {
+        void healthChanged(UUID sensorId, SensorHealth health);
+    }
+
+    private static final int FREE = -1;
+    private static final int NONE = -1;
+    private static final SensorHealth[] HEALTH = SensorHealth.values();
+
+    private final int capacity;
+    private final long timeoutNanos;
+    private final long tickNanos;
+    private final LongSupplier clock;
+    private final long origin;
+    private final HealthListener listener;
+
+    //per slot; read and written without the lock
+    private final AtomicLongArray lastSeen;
+    private final AtomicIntegerArray health;
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+
+    //per slot and the wheel itself; guarded by this
+    private final UUID[] sensorIds;
+    private final int[] next;
+    private final boolean[] scheduled;
+    private final int[] buckets;
+    private final int[] freeSlots;
+    private int freeCount;
+    private int used;
+    private long sweptTick;
+    private int staleCount;
+
+    private ScheduledExecutorService sweeper;
+
+    private SensorHeartbeats(Builder builder) {
+        this.capacity = builder.capacity;
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.tickNanos = builder.tick.toNanos();
+        this.clock = builder.clock;
+        this.origin = clock.getAsLong();
+        this.listener = builder.listener;
+        this.lastSeen = new AtomicLongArray(capacity);
+        this.health = new AtomicIntegerArray(capacity);
+        this.sensorIds = new UUID[capacity];
+        this.next = new int[capacity];
+        this.scheduled = new boolean[capacity];
+        //enough buckets that a deadline one timeout ahead never wraps onto the current tick
+        this.buckets = new int[(int) ((timeoutNanos + tickNanos - 1) / tickNanos) + 2];
+        this.freeSlots = new int[capacity];
+        Arrays.fill(buckets, NONE);
+        for (int slot = 0; slot < capacity; slot++) {
+            health.set(slot, FREE);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts tracking a sensor, counting from now, and returns its slot. A sensor that is
+     * already tracked keeps its slot.
+     *
+     * @throws IllegalStateException if every slot is taken
+     */
+    public synchronized int register(UUID sensorId) {
+        Integer existing = slots.get(sensorId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else if (used < capacity) {
+            slot = used++;
+        } else {
+            throw new IllegalStateException("all " + capacity + " sensor slots are in use");
+        }
+        sensorIds[slot] = sensorId;
+        lastSeen.set(slot, clock.getAsLong());
+        health.set(slot, SensorHealth.HEALTHY.ordinal());
+        //a slot freed and reused before the sweep reached it is still on the wheel, and will be
+        //moved on from there
+        if (!scheduled[slot]) {
+            schedule(slot);
+        }
+        slots.put(sensorId, slot);
+        return slot;
+    }
+
+    /**
+     * Stops tracking a sensor. Its slot may be given to another sensor.
+     */
+    public synchronized void unregister(UUID sensorId) {
+        Integer slot = slots.remove(sensorId);
+        if (slot == null) {
+            return;
+        }
+        if (health.get(slot) == SensorHealth.STALE.ordinal()) {
+            staleCount--;
+        }
+        health.set(slot, FREE);
+        sensorIds[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Records that the sensor in the slot reported just now.
+     */
+    public void heartbeat(int slot) {
+        lastSeen.set(slot, clock.getAsLong());
+        if (health.get(slot) == SensorHealth.STALE.ordinal()) {
+            recovered(slot);
+        }
+    }
+
+    /**
+     * Records that the sensor reported just now. Does nothing if it is not tracked.
+     */
+    public void heartbeat(UUID sensorId) {
+        Integer slot = slots.get(sensorId);
+        if (slot != null) {
+            heartbeat(slot);
+        }
+    }
+
+    public SensorHealth getHealth(UUID sensorId) {
+        Integer slot = slots.get(sensorId);
+        return slot == null ? SensorHealth.UNKNOWN : getHealth(slot);
+    }
+
+    public SensorHealth getHealth(int slot) {
+        int state = health.get(slot);
+        return state == FREE ? SensorHealth.UNKNOWN : HEALTH[state];
+    }
+
+    /**
+     * How long ago the sensor last reported, or null if it is not tracked.
+     */
+    public Duration getSilence(UUID sensorId) {
+        Integer slot = slots.get(sensorId);
+        return slot == null ? null : Duration.ofNanos(clock.getAsLong() - lastSeen.get(slot));
+    }
+
+    public int getTracked() {
+        return slots.size();
+    }
+
+    public synchronized int getStaleCount() {
+        return staleCount;
+    }
+
+    /**
+     * Marks every sensor whose deadline has passed as stale. Called every tick once the tracker
+     * is {@link #start started}; call it directly to sweep on a thread of your own.
+     */
+    public synchronized void sweep() {
+        long now = clock.getAsLong();
+        long tick = (now - origin) / tickNanos;
+        //after a long pause every bucket is due, and one pass over all of them is enough
+        long from = Math.max(sweptTick + 1, tick - buckets.length + 1);
+        for (long t = from; t <= tick; t++) {
+            //sensors moved on while sweeping must go to a later tick than this one
+            sweptTick = t;
+            int bucket = (int) (t % buckets.length);
+            int slot = buckets[bucket];
+            buckets[bucket] = NONE;
+            while (slot != NONE) {
+                int following = next[slot];
+                expireOrReschedule(slot, now);
+                slot = following;
+            }
+        }
+        sweptTick = Math.max(sweptTick, tick);
+    }
+
+    /**
+     * Sweeps every tick on a daemon thread until closed.
+     */
+    public synchronized SensorHeartbeats start() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sensor-heartbeat-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleAtFixedRate(this::sweep, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private void expireOrReschedule(int slot, long now) {
+        scheduled[slot] = false;
+        if (health.get(slot) == FREE) {
+            return;
+        }
+        if (lastSeen.get(slot) + timeoutNanos - now >= 0) {
+            schedule(slot);
+            return;
+        }
+        health.set(slot, SensorHealth.STALE.ordinal());
+        //a heartbeat arriving meanwhile may have checked the health before it was set, so look
+        //again now that it is
+        if (lastSeen.get(slot) + timeoutNanos - now >= 0) {
+            health.set(slot, SensorHealth.HEALTHY.ordinal());
+            schedule(slot);
+            return;
+        }
+        staleCount++;
+        listener.healthChanged(sensorIds[slot], SensorHealth.STALE);
+    }
+
+    private synchronized void recovered(int slot) {
+        if (health.get(slot) != SensorHealth.STALE.ordinal()) {
+            return;
+        }
+        health.set(slot, SensorHealth.HEALTHY.ordinal());
+        staleCount--;
+        if (!scheduled[slot]) {
+            schedule(slot);
+        }
+        listener.healthChanged(sensorIds[slot], SensorHealth.HEALTHY);
+    }
+
+    private void schedule(int slot) {
+        long deadline = lastSeen.get(slot) + timeoutNanos - origin;
+        //the first tick at or after the deadline, and never one already swept
+        long tick = Math.max((deadline + tickNanos - 1) / tickNanos, sweptTick + 1);
+        int bucket = (int) (tick % buckets.length);
+        next[slot] = buckets[bucket];
+        buckets[bucket] = slot;
+        scheduled[slot] = true;
+    }
+
+    public static class Builder {
+        private int capacity = 1024;
+        private Duration timeout = Duration.ofSeconds(30);
+        private Duration tick = Duration.ofSeconds(1);
+        private LongSupplier clock = System::nanoTime;
+        private HealthListener listener = (sensorId, health) -> { };
+
+        private Builder() {
+        }
+
+        /**
+         * Most sensors tracked at once. Defaults to 1024.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * How long a sensor may go without reporting before it is stale. Defaults to 30 seconds.
+         */
+        public Builder timeout(Duration timeout) {
+            if (timeout.isZero() || timeout.isNegative()) {
+                throw new IllegalArgumentException("timeout must be positive");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * How often to sweep, and so how late a stale sensor may be noticed. Defaults to one
+         * second.
+         */
+        public Builder tick(Duration tick) {
+            if (tick.isZero() || tick.isNegative()) {
+                throw new IllegalArgumentException("tick must be positive");
+            }
+            this.tick = tick;
+            return this;
+        }
+
+        public Builder listener(HealthListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SensorHeartbeats build() {
+            return new SensorHeartbeats(this);
+        }
+    }
+}
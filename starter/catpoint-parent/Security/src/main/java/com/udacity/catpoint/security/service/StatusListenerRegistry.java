@@ -0,0 +1,179 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.Zone;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * The status listeners of a service and what each of them wants to hear about.
+ *
+ * Listeners subscribe to topics, and for sensors optionally only to some zones or sensors.
+ * Every change rebuilds, for each topic, zone and sensor, the array of listeners to call, and
+ * publishes them together, so an event only visits the listeners interested in it and never
+ * takes a lock or copies anything. Subscriptions change rarely and events are frequent, so the
+ * copying is all on the side of the subscriptions.
+ */
+final class StatusListenerRegistry {
+
+    private static final StatusListener[] NONE = new StatusListener[0];
+
+    private final Map<StatusListener, Interest> interests = new LinkedHashMap<>();
+    private volatile Routes routes = new Routes(Collections.emptyMap());
+
+    /**
+     * Adds topics to what the listener hears about.
+     */
+    synchronized void subscribe(StatusListener listener, Collection<StatusTopic> topics) {
+        interest(listener).topics.addAll(topics);
+        rebuild();
+    }
+
+    /**
+     * Makes the listener hear about changes to sensors in the zone.
+     */
+    synchronized void subscribe(StatusListener listener, Zone zone) {
+        interest(listener).zones.add(zone);
+        rebuild();
+    }
+
+    /**
+     * Makes the listener hear about changes to the sensor.
+     */
+    synchronized void subscribe(StatusListener listener, UUID sensorId) {
+        interest(listener).sensorIds.add(sensorId);
+        rebuild();
+    }
+
+    synchronized void unsubscribe(StatusListener listener) {
+        if (interests.remove(listener) != null) {
+            rebuild();
+        }
+    }
+
+    void alarmChanged(AlarmStatus status) {
+        for (StatusListener listener : routes.alarm) {
+            listener.notify(status);
+        }
+    }
+
+    void catDetected(boolean cat) {
+        for (StatusListener listener : routes.cat) {
+            listener.catDetected(cat);
+        }
+    }
+
+    /**
+     * Tells everyone interested in any sensor, for changes that may touch every sensor.
+     */
+    void sensorsChanged() {
+        for (StatusListener listener : routes.sensors) {
+            listener.sensorStatusChanged();
+        }
+    }
+
+    /**
+     * Tells everyone who may be interested in a sensor of the zone.
+     */
+    void sensorsChanged(Zone zone) {
+        for (StatusListener listener : routes.zoneWide.get(zone)) {
+            listener.sensorStatusChanged();
+        }
+    }
+
+    /**
+     * Tells the listeners that asked about this sensor or its zone. Listeners subscribed to
+     * the whole sensors topic only hear about changes to all sensors, as they always have.
+     */
+    void sensorChanged(Sensor sensor) {
+        Routes current = routes;
+        Zone zone = sensor.getZone();
+        for (StatusListener listener : current.zoneSensors.get(zone)) {
+            listener.sensorStatusChanged();
+        }
+        StatusListener[] bySensor = current.bySensor.get(sensor.getSensorId());
+        if (bySensor == null) {
+            return;
+        }
+        for (StatusListener listener : bySensor) {
+            //already told if it also asked about the zone
+            if (!current.interests.get(listener).zones.contains(zone)) {
+                listener.sensorStatusChanged();
+            }
+        }
+    }
+
+    private Interest interest(StatusListener listener) {
+        return interests.computeIfAbsent(listener, l -> new Interest());
+    }
+
+    private void rebuild() {
+        Map<StatusListener, Interest> copy = new LinkedHashMap<>();
+        interests.forEach((listener, interest) -> copy.put(listener, interest.copy()));
+        routes = new Routes(copy);
+    }
+
+    private static class Interest {
+        private final Set<StatusTopic> topics = EnumSet.noneOf(StatusTopic.class);
+        private final Set<Zone> zones = EnumSet.noneOf(Zone.class);
+        private final Set<UUID> sensorIds = new HashSet<>();
+
+        boolean anySensor() {
+            return topics.contains(StatusTopic.SENSORS) || !zones.isEmpty() || !sensorIds.isEmpty();
+        }
+
+        Interest copy() {
+            Interest copy = new Interest();
+            copy.topics.addAll(topics);
+            copy.zones.addAll(zones);
+            copy.sensorIds.addAll(sensorIds);
+            return copy;
+        }
+    }
+
+    /**
+     * Who to call for each kind of event. Never changed once built.
+     */
+    private static class Routes {
+        private final Map<StatusListener, Interest> interests;
+        private final StatusListener[] alarm;
+        private final StatusListener[] cat;
+        private final StatusListener[] sensors;
+        private final Map<Zone, StatusListener[]> zoneWide = new EnumMap<>(Zone.class);
+        private final Map<Zone, StatusListener[]> zoneSensors = new EnumMap<>(Zone.class);
+        private final Map<UUID, StatusListener[]> bySensor = new HashMap<>();
+
+        Routes(Map<StatusListener, Interest> interests) {
+            this.interests = interests;
+            this.alarm = select(interest -> interest.topics.contains(StatusTopic.ALARM));
+            this.cat = select(interest -> interest.topics.contains(StatusTopic.CAT_DETECTION));
+            this.sensors = select(Interest::anySensor);
+            for (Zone zone : Zone.values()) {
+                //a sensor's zone is not known up front, so listeners to single sensors are
+                //told about changes to every zone
+                zoneWide.put(zone, select(interest -> interest.topics.contains(StatusTopic.SENSORS)
+                        || interest.zones.contains(zone) || !interest.sensorIds.isEmpty()));
+                zoneSensors.put(zone, select(interest -> interest.zones.contains(zone)));
+            }
+            Set<UUID> sensorIds = new HashSet<>();
+            interests.values().forEach(interest -> sensorIds.addAll(interest.sensorIds));
+            for (UUID sensorId : sensorIds) {
+                bySensor.put(sensorId, select(interest -> interest.sensorIds.contains(sensorId)));
+            }
+        }
+
+        private StatusListener[] select(Predicate<Interest> wanted) {
+            List<StatusListener> selected = new ArrayList<>();
+            interests.forEach((listener, interest) -> {
+                if (wanted.test(interest)) {
+                    selected.add(listener);
+                }
+            });
+            return selected.isEmpty() ? NONE : selected.toArray(NONE);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
+import com.udacity.catpoint.security.data.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Security service for properties divided into {@link Zone}s. Every zone has its own arming and
+ * alarm status and runs the {@link AlarmRules} on its own, under its own lock, so events in
+ * different zones are evaluated concurrently. Each zone keeps its active sensors, so arming a
+ * zone only resets the sensors of that zone that are actually active, and deciding whether a
+ * zone has any active sensor is a size check rather than a scan.
+ *
+ * The house statuses stored as the repository's alarm and arming status are derived from the
+ * zones: the alarm is the most severe zone alarm and the arming status the most armed zone.
+ * Both are maintained from counts of zones per status, so a change in one zone never rescans
+ * the others. Listeners hear about house alarm changes, on the thread that made the change; a
+ * change that reaches them after a later one is dropped, so the last status they hear is the
+ * house status.
+ * State saved before zones existed has no zone statuses; every zone then starts with the stored
+ * house statuses.
+ */
+public class ZonedSecurityService {
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final SecurityRepository securityRepository;
+    private final AlarmRules alarmRules;
+    private final Map<Zone, ZoneState> zones = new EnumMap<>(Zone.class);
+    private final StatusListenerRegistry statusListeners = new StatusListenerRegistry();
+
+    //the repository is not thread-safe, and zones write to it concurrently
+    private final Object repositoryLock = new Object();
+
+    //lock order: a zone, then the house, then the repository
+    private final Object houseLock = new Object();
+    private final int[] zonesByAlarmStatus = new int[ALARM_STATUSES.length];
+    private final int[] zonesByArmingStatus = new int[ARMING_STATUSES.length];
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+    //guarded by houseLock; numbers house alarm changes in the order they were made
+    private long alarmChanges;
+
+    //held by a zone, after the house lock is released, while listeners hear about a house alarm
+    //change; guards the number of the last change they heard about
+    private final Object notifyLock = new Object();
+    private long alarmChangesNotified;
+
+    public ZonedSecurityService(SecurityRepository securityRepository) {
+        this(securityRepository, AlarmRules.defaults());
+    }
+
+    public ZonedSecurityService(SecurityRepository securityRepository, AlarmRules alarmRules) {
+        this.securityRepository = securityRepository;
+        this.alarmRules = alarmRules;
+        boolean seedFromHouse = !securityRepository.hasZoneStatuses();
+        for (Zone zone : Zone.values()) {
+            if (seedFromHouse) {
+                securityRepository.setZoneAlarmStatus(zone, securityRepository.getAlarmStatus());
+                securityRepository.setZoneArmingStatus(zone, securityRepository.getArmingStatus());
+            }
+            ZoneState state = new ZoneState(zone, securityRepository.getZoneAlarmStatus(zone),
+                    securityRepository.getZoneArmingStatus(zone));
+            zones.put(zone, state);
+            zonesByAlarmStatus[state.alarmStatus.ordinal()]++;
+            zonesByArmingStatus[state.armingStatus.ordinal()]++;
+        }
+        for (Sensor sensor : securityRepository.getSensors()) {
+            if (Boolean.TRUE.equals(sensor.getActive())) {
+                zones.get(sensor.getZone()).activeSensors.add(sensor);
+            }
+        }
+        alarmStatus = mostSevere(zonesByAlarmStatus, ALARM_STATUSES);
+        armingStatus = mostSevere(zonesByArmingStatus, ARMING_STATUSES);
+        if (alarmStatus != securityRepository.getAlarmStatus()) {
+            securityRepository.setAlarmStatus(alarmStatus);
+        }
+        if (armingStatus != securityRepository.getArmingStatus()) {
+            securityRepository.setArmingStatus(armingStatus);
+        }
+    }
+
+    /**
+     * Arms or disarms one zone. Arming resets the zone's active sensors; other zones are not
+     * touched.
+     */
+    public void setZoneArmingStatus(Zone zone, ArmingStatus status) {
+        ZoneState state = zones.get(zone);
+        synchronized (state) {
+            applyRules(state, state.catDetected ? AlarmEvent.ARMING_CHANGED_CAT_PRESENT : AlarmEvent.ARMING_CHANGED,
+                    status, null);
+            if (status != ArmingStatus.DISARMED) {
+                for (Sensor sensor : new ArrayList<>(state.activeSensors)) {
+                    changeSensorActivationStatus(sensor, false);
+                }
+            }
+            ArmingStatus previous = state.armingStatus;
+            state.armingStatus = status;
+            synchronized (houseLock) {
+                zonesByArmingStatus[previous.ordinal()]--;
+                zonesByArmingStatus[status.ordinal()]++;
+                ArmingStatus house = mostSevere(zonesByArmingStatus, ARMING_STATUSES);
+                synchronized (repositoryLock) {
+                    securityRepository.setZoneArmingStatus(zone, status);
+                    if (house != armingStatus) {
+                        armingStatus = house;
+                        securityRepository.setArmingStatus(house);
+                    }
+                }
+            }
+        }
+        statusListeners.sensorsChanged(zone);
+    }
+
+    /**
+     * Arms or disarms every zone.
+     */
+    public void setArmingStatus(ArmingStatus status) {
+        for (Zone zone : Zone.values()) {
+            setZoneArmingStatus(zone, status);
+        }
+    }
+
+    /**
+     * Switches a sensor on or off and applies the rules of the sensor's zone.
+     */
+    public void changeSensorActivationStatus(Sensor sensor, boolean active) {
+        ZoneState state = zones.get(sensor.getZone());
+        synchronized (state) {
+            AlarmEvent event;
+            if (active) {
+                event = AlarmEvent.SENSOR_ACTIVATED;
+            } else if (state.activeSensors.contains(sensor)) {
+                event = AlarmEvent.SENSOR_DEACTIVATED;
+            } else {
+                event = AlarmEvent.INACTIVE_SENSOR_DEACTIVATED;
+            }
+            applyRules(state, event, state.armingStatus, sensor.getSensorType());
+            sensor.setActive(active);
+            if (active) {
+                state.activeSensors.add(sensor);
+            } else {
+                state.activeSensors.remove(sensor);
+            }
+            synchronized (repositoryLock) {
+                securityRepository.updateSensor(sensor);
+            }
+        }
+        statusListeners.sensorChanged(sensor);
+    }
+
+    /**
+     * Reports whether the camera watching the given zone shows a cat.
+     */
+    public void catDetected(Zone zone, boolean cat) {
+        ZoneState state = zones.get(zone);
+        synchronized (state) {
+            state.catDetected = cat;
+            AlarmEvent event;
+            if (cat) {
+                event = AlarmEvent.CAT_DETECTED;
+            } else if (state.activeSensors.isEmpty()) {
+                event = AlarmEvent.CAT_GONE_SENSORS_INACTIVE;
+            } else {
+                event = AlarmEvent.CAT_GONE_SENSORS_ACTIVE;
+            }
+            applyRules(state, event, state.armingStatus, null);
+        }
+        statusListeners.catDetected(cat);
+    }
+
+    public void addSensor(Sensor sensor) {
+        ZoneState state = zones.get(sensor.getZone());
+        synchronized (state) {
+            if (Boolean.TRUE.equals(sensor.getActive())) {
+                state.activeSensors.add(sensor);
+            }
+            synchronized (repositoryLock) {
+                securityRepository.addSensor(sensor);
+            }
+        }
+    }
+
+    public void removeSensor(Sensor sensor) {
+        ZoneState state = zones.get(sensor.getZone());
+        synchronized (state) {
+            state.activeSensors.remove(sensor);
+            synchronized (repositoryLock) {
+                securityRepository.removeSensor(sensor);
+            }
+        }
+    }
+
+    /**
+     * Looks up the zone's transition for the event and, if there is one, moves the zone and
+     * updates the house alarm. Called holding the zone's lock.
+     */
+    private void applyRules(ZoneState state, AlarmEvent event, ArmingStatus armingStatus, SensorType sensorType) {
+        AlarmStatus next = alarmRules.next(event, state.alarmStatus, armingStatus, sensorType);
+        if (next == null || next == state.alarmStatus) {
+            return;
+        }
+        AlarmStatus previous = state.alarmStatus;
+        state.alarmStatus = next;
+        AlarmStatus changed = null;
+        long sequence = 0;
+        synchronized (houseLock) {
+            zonesByAlarmStatus[previous.ordinal()]--;
+            zonesByAlarmStatus[next.ordinal()]++;
+            AlarmStatus house = mostSevere(zonesByAlarmStatus, ALARM_STATUSES);
+            synchronized (repositoryLock) {
+                securityRepository.setZoneAlarmStatus(state.zone, next);
+                if (house != alarmStatus) {
+                    alarmStatus = house;
+                    securityRepository.setAlarmStatus(house);
+                    changed = house;
+                    sequence = ++alarmChanges;
+                }
+            }
+        }
+        if (changed != null) {
+            notifyAlarmChanged(changed, sequence);
+        }
+    }
+
+    /**
+     * Tells listeners about a house alarm change, unless they already heard about a later one.
+     */
+    private void notifyAlarmChanged(AlarmStatus status, long sequence) {
+        synchronized (notifyLock) {
+            if (sequence > alarmChangesNotified) {
+                alarmChangesNotified = sequence;
+                statusListeners.alarmChanged(status);
+            }
+        }
+    }
+
+    /**
+     * The highest status any zone is in, given the number of zones in each status.
+     */
+    private static <S> S mostSevere(int[] zonesByStatus, S[] statuses) {
+        for (int i = zonesByStatus.length - 1; i > 0; i--) {
+            if (zonesByStatus[i] > 0) {
+                return statuses[i];
+            }
+        }
+        return statuses[0];
+    }
+
+    public void addStatusListener(StatusListener statusListener) {
+        statusListeners.subscribe(statusListener, EnumSet.allOf(StatusTopic.class));
+    }
+
+    /**
+     * Registers the listener for only some kinds of update, like
+     * {@link SecurityService#addStatusListener(StatusListener, StatusTopic, StatusTopic...)}.
+     */
+    public void addStatusListener(StatusListener statusListener, StatusTopic topic, StatusTopic... moreTopics) {
+        statusListeners.subscribe(statusListener, EnumSet.of(topic, moreTopics));
+    }
+
+    /**
+     * Registers the listener for changes to the zone's sensors only, including the zone being
+     * armed.
+     */
+    public void addSensorListener(StatusListener statusListener, Zone zone) {
+        statusListeners.subscribe(statusListener, zone);
+    }
+
+    public void addSensorListener(StatusListener statusListener, UUID sensorId) {
+        statusListeners.subscribe(statusListener, sensorId);
+    }
+
+    public void removeStatusListener(StatusListener statusListener) {
+        statusListeners.unsubscribe(statusListener);
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        synchronized (houseLock) {
+            return alarmStatus;
+        }
+    }
+
+    public ArmingStatus getArmingStatus() {
+        synchronized (houseLock) {
+            return armingStatus;
+        }
+    }
+
+    public AlarmStatus getZoneAlarmStatus(Zone zone) {
+        ZoneState state = zones.get(zone);
+        synchronized (state) {
+            return state.alarmStatus;
+        }
+    }
+
+    public ArmingStatus getZoneArmingStatus(Zone zone) {
+        ZoneState state = zones.get(zone);
+        synchronized (state) {
+            return state.armingStatus;
+        }
+    }
+
+    public int getActiveSensorCount(Zone zone) {
+        ZoneState state = zones.get(zone);
+        synchronized (state) {
+            return state.activeSensors.size();
+        }
+    }
+
+    /**
+     * State machine of one zone. Its fields are guarded by the object itself.
+     */
+    private static final class ZoneState {
+        final Zone zone;
+        final Set<Sensor> activeSensors = new HashSet<>();
+        AlarmStatus alarmStatus;
+        ArmingStatus armingStatus;
+        boolean catDetected;
+
+        ZoneState(Zone zone, AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+            this.zone = zone;
+            this.alarmStatus = alarmStatus;
+            this.armingStatus = armingStatus;
+        }
+    }
+}
@@ -4,6 +4,7 @@ module com.udacity.catpoint.security {
     requires com.google.gson;
     requires com.google.common;
     requires java.prefs;
+    requires java.management;
+    requires java.net.http;
     requires com.udacity.catpoint.image;
-    opens com.udacity.catpoint.security.data to com.google.gson;
 }
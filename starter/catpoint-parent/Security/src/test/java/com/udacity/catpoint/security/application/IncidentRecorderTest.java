@@ -0,0 +1,48 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.io.FrameRingBuffer;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncidentRecorderTest {
+
+    private static final byte[] FRAME = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void alarm_savesBufferedFramesOnce() throws Exception {
+        IncidentRecorder recorder = new IncidentRecorder("front", new FrameRingBuffer(8, 16), tempDir);
+        recorder.recordFrame(FRAME);
+        recorder.recordFrame(FRAME);
+
+        recorder.notify(AlarmStatus.PENDING_ALARM);
+        recorder.notify(AlarmStatus.ALARM);
+        Path incident = recorder.getLastIncident().get();
+        recorder.notify(AlarmStatus.ALARM);
+
+        assertNotNull(incident);
+        assertSame(incident, recorder.getLastIncident().get(), "a repeated ALARM is not a new incident");
+        assertTrue(Files.size(incident) > 2 * FRAME.length);
+        assertTrue(incident.getFileName().toString().startsWith("incident-front-"));
+    }
+
+    @Test
+    public void alarmWithoutFrames_writesNothing() throws Exception {
+        IncidentRecorder recorder = new IncidentRecorder("front", new FrameRingBuffer(8, 16), tempDir);
+
+        recorder.notify(AlarmStatus.ALARM);
+
+        assertNull(recorder.getLastIncident().get());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
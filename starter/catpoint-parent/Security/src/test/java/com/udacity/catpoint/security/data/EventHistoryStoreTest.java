@@ -0,0 +1,223 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EventHistoryStoreTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path tempDir;
+
+    private EventHistoryStore open() throws IOException {
+        //small blocks and segments so tests span several of each
+        return new EventHistoryStore(tempDir, 16, 1024, null, Duration.ofHours(1));
+    }
+
+    @Test
+    public void query_returnsMatchingTypesInRangeInOrder() throws IOException {
+        try (EventHistoryStore store = open()) {
+            UUID door = UUID.randomUUID();
+            for (int i = 0; i < 500; i++) {
+                store.append(i % 10 == 0
+                        ? SecurityEvent.alarm(i * 1000L, i % 20 == 0 ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM)
+                        : SecurityEvent.sensor(i * 1000L, SecurityEvent.Type.SENSOR_ACTIVATED, door));
+            }
+
+            List<SecurityEvent> alarms = store.query(100_000, 200_000, EnumSet.of(SecurityEvent.Type.ALARM_STATUS));
+
+            assertEquals(10, alarms.size());
+            for (int i = 0; i < alarms.size(); i++) {
+                assertEquals(100_000 + i * 10_000L, alarms.get(i).getTimestamp());
+            }
+            assertEquals(AlarmStatus.ALARM, alarms.get(0).getAlarmStatus());
+            assertEquals(AlarmStatus.NO_ALARM, alarms.get(1).getAlarmStatus());
+        }
+    }
+
+    @Test
+    public void sensorHistory_onlyThatSensor() throws IOException {
+        try (EventHistoryStore store = open()) {
+            UUID door = UUID.randomUUID();
+            UUID window = UUID.randomUUID();
+            for (int i = 0; i < 100; i++) {
+                store.append(SecurityEvent.sensor(i, SecurityEvent.Type.SENSOR_ACTIVATED, i % 4 == 0 ? door : window));
+            }
+
+            List<SecurityEvent> events = store.sensorHistory(door, 0, Long.MAX_VALUE);
+
+            assertEquals(25, events.size());
+            assertTrue(events.stream().allMatch(event -> door.equals(event.getSensorId())));
+        }
+    }
+
+    @Test
+    public void append_clockStepsBack_historyStaysOrdered() throws IOException {
+        try (EventHistoryStore store = open()) {
+            store.append(SecurityEvent.arming(5000, ArmingStatus.ARMED_HOME));
+            store.append(SecurityEvent.arming(4000, ArmingStatus.DISARMED));
+
+            List<SecurityEvent> events = store.query(0, Long.MAX_VALUE, EnumSet.allOf(SecurityEvent.Type.class));
+
+            assertEquals(List.of(5000L, 5000L), events.stream().map(SecurityEvent::getTimestamp).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void reopen_keepsHistoryAndDropsTornBlock() throws IOException {
+        try (EventHistoryStore store = open()) {
+            for (int i = 0; i < 40; i++) {
+                store.append(SecurityEvent.arming(i, ArmingStatus.ARMED_AWAY));
+            }
+        }
+        Path last = lastSegment();
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x45, 0x56, 0x42})); //torn header
+        }
+
+        try (EventHistoryStore store = open()) {
+            store.append(SecurityEvent.arming(40, ArmingStatus.DISARMED));
+
+            List<SecurityEvent> events = store.query(0, Long.MAX_VALUE, EnumSet.of(SecurityEvent.Type.ARMING_STATUS));
+
+            assertEquals(41, events.size());
+            assertEquals(ArmingStatus.DISARMED, events.get(40).getArmingStatus());
+        }
+    }
+
+    @Test
+    public void reopen_dropsTailBlockFailingChecksum() throws IOException {
+        try (EventHistoryStore store = open()) {
+            for (int i = 0; i < 40; i++) {
+                store.append(SecurityEvent.arming(i, ArmingStatus.ARMED_AWAY));
+            }
+        }
+        Path last = lastSegment();
+        long size = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), size - 4); //half-written payload
+        }
+
+        try (EventHistoryStore store = open()) {
+            List<SecurityEvent> events = store.query(0, Long.MAX_VALUE, EnumSet.of(SecurityEvent.Type.ARMING_STATUS));
+
+            //the last block held the final 8 events
+            assertEquals(32, events.size());
+            assertTrue(Files.size(last) < size);
+        }
+    }
+
+    @Test
+    public void query_corruptBlock_throwsIOException() throws IOException {
+        try (EventHistoryStore store = open()) {
+            for (int i = 0; i < 40; i++) {
+                store.append(SecurityEvent.arming(i, ArmingStatus.ARMED_AWAY));
+            }
+            store.flush().join();
+            Path first;
+            try (Stream<Path> files = Files.list(tempDir)) {
+                first = files.sorted().findFirst().orElseThrow();
+            }
+            try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+                channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x55}), 60); //inside the first block's payload
+            }
+
+            assertThrows(IOException.class, () -> store.query(0, Long.MAX_VALUE, EnumSet.allOf(SecurityEvent.Type.class)));
+        }
+    }
+
+    @Test
+    public void appendAfterClose_isDroppedQuietly() throws IOException {
+        EventHistoryStore store = open();
+        store.append(SecurityEvent.arming(1, ArmingStatus.ARMED_HOME));
+        store.close();
+
+        store.append(SecurityEvent.arming(2, ArmingStatus.DISARMED));
+        store.flush().join();
+        store.close();
+
+        assertEquals(1, store.getEventsAppended());
+        assertEquals(1, store.getEventsDropped());
+        try (EventHistoryStore reopened = open()) {
+            assertEquals(1, reopened.query(0, Long.MAX_VALUE, EnumSet.allOf(SecurityEvent.Type.class)).size());
+        }
+    }
+
+    @Test
+    public void deleteBefore_dropsExpiredSegmentsOnly() throws IOException {
+        try (EventHistoryStore store = open()) {
+            UUID sensor = UUID.randomUUID();
+            for (int day = 0; day < 10; day++) {
+                for (int i = 0; i < 64; i++) {
+                    store.append(SecurityEvent.sensor(day * DAY + i, SecurityEvent.Type.SENSOR_DEACTIVATED, sensor));
+                }
+            }
+            store.flush().join();
+            int segmentsBefore = store.getSegmentCount();
+
+            store.deleteBefore(5 * DAY);
+
+            assertTrue(store.getSegmentCount() < segmentsBefore);
+            List<SecurityEvent> events = store.sensorHistory(sensor, 0, Long.MAX_VALUE);
+            assertTrue(events.get(0).getTimestamp() > 0);
+            assertEquals(5 * 64, events.stream().filter(event -> event.getTimestamp() >= 5 * DAY).count());
+        }
+    }
+
+    @Test
+    public void recordingRepository_recordsOnlyActualTransitions() throws IOException {
+        SecurityRepository delegate = mock(SecurityRepository.class);
+        when(delegate.ready()).thenReturn(CompletableFuture.completedFuture(null));
+        when(delegate.getSensors()).thenReturn(Set.of());
+        when(delegate.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(delegate.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        try (EventHistoryStore store = open()) {
+            long[] now = {0};
+            RecordingSecurityRepository repository = new RecordingSecurityRepository(delegate, store, () -> ++now[0]);
+            Sensor sensor = new Sensor("Door", SensorType.DOOR);
+
+            repository.setAlarmStatus(AlarmStatus.NO_ALARM);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setArmingStatus(ArmingStatus.DISARMED);
+            repository.addSensor(sensor);
+            repository.updateSensor(sensor);
+            sensor.setActive(true);
+            repository.updateSensor(sensor);
+            repository.updateSensor(sensor);
+            sensor.setActive(false);
+            repository.updateSensor(sensor);
+
+            List<SecurityEvent> events = store.query(0, Long.MAX_VALUE, EnumSet.allOf(SecurityEvent.Type.class));
+            assertEquals(List.of(
+                    SecurityEvent.alarm(1, AlarmStatus.PENDING_ALARM),
+                    SecurityEvent.sensor(2, SecurityEvent.Type.SENSOR_ADDED, sensor.getSensorId()),
+                    SecurityEvent.sensor(3, SecurityEvent.Type.SENSOR_ACTIVATED, sensor.getSensorId()),
+                    SecurityEvent.sensor(4, SecurityEvent.Type.SENSOR_DEACTIVATED, sensor.getSensorId())), events);
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().reduce((a, b) -> b).orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Rough benchmark comparing the reflective Gson path the repository used to take with the
+ * hand-written codecs. Not run as part of the test suite; launch the main method directly with
+ * an optional sensor count, for example {@code SecurityStateCodecBenchmark 200000}. Add
+ * {@code -Xlog:gc} to the JVM options to compare the garbage each path produces.
+ */
+public class SecurityStateCodecBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Set<Sensor> sensors = new TreeSet<>();
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, types[i % types.length]);
+            sensor.setActive(i % 2 == 0);
+            sensors.add(sensor);
+        }
+        SecurityState state = new SecurityState(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, sensors);
+
+        Gson gson = new Gson();
+        Type type = new TypeToken<Set<Sensor>>() {}.getType();
+        String gsonJson = gson.toJson(sensors);
+        run("gson (reflective) save", () -> gson.toJson(sensors));
+        run("gson (reflective) load", () -> gson.fromJson(gsonJson, type));
+
+        JsonSecurityStateCodec json = new JsonSecurityStateCodec();
+        String codecJson = json.writeSensors(sensors);
+        run("json codec save", () -> json.writeSensors(sensors));
+        run("json codec load", () -> json.readSensors(codecJson));
+
+        BinarySecurityStateCodec binary = new BinarySecurityStateCodec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        binary.write(state, out);
+        byte[] bytes = out.toByteArray();
+        run("binary codec save", () -> binary.write(state, new ByteArrayOutputStream(bytes.length)));
+        run("binary codec load", () -> binary.read(new ByteArrayInputStream(bytes)));
+
+        System.out.printf("encoded size: gson %d chars, json codec %d chars, binary %d bytes%n",
+                gsonJson.length(), codecJson.length(), bytes.length);
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private static void run(String name, Task task) throws IOException {
+        for (int i = 0; i < ITERATIONS / 2; i++) {
+            task.run(); //warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-24s %8.2f ms/op%n", name, elapsed / 1e6 / ITERATIONS);
+    }
+}
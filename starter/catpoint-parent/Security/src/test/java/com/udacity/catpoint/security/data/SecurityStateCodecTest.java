@@ -0,0 +1,137 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityStateCodecTest {
+
+    private SecurityState state;
+
+    @BeforeEach
+    public void init() {
+        Set<Sensor> sensors = new TreeSet<>();
+        for (SensorType type : SensorType.values()) {
+            Sensor sensor = new Sensor("sensor \"" + type + "\" \u00e9", type);
+            sensor.setActive(type == SensorType.WINDOW);
+            sensors.add(sensor);
+        }
+        sensors.add(new Sensor("garage", SensorType.DOOR, Zone.GARAGE));
+        state = new SecurityState(AlarmStatus.PENDING_ALARM, ArmingStatus.ARMED_AWAY,
+                Map.of(Zone.PERIMETER, AlarmStatus.PENDING_ALARM), Map.of(Zone.PERIMETER, ArmingStatus.ARMED_AWAY,
+                Zone.GARAGE, ArmingStatus.ARMED_HOME), sensors);
+    }
+
+    @Test
+    public void binaryCodec_roundTrip_preservesState() throws IOException {
+        assertStateEquals(state, roundTrip(new BinarySecurityStateCodec(), state));
+    }
+
+    @Test
+    public void jsonCodec_roundTrip_preservesState() throws IOException {
+        assertStateEquals(state, roundTrip(new JsonSecurityStateCodec(), state));
+    }
+
+    @Test
+    public void binaryCodec_rejectsUnknownHeader() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7};
+        assertThrows(IOException.class, () -> new BinarySecurityStateCodec().read(new ByteArrayInputStream(garbage)));
+    }
+
+    @Test
+    public void binaryCodec_rejectsUnknownOrdinals() throws IOException {
+        BinarySecurityStateCodec codec = new BinarySecurityStateCodec();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(state, bytes);
+        byte[] valid = bytes.toByteArray();
+
+        //alarm status, then the first zone's arming status, then the last sensor's zone
+        for (int offset : new int[]{5, 8, valid.length - 1}) {
+            byte[] corrupt = valid.clone();
+            corrupt[offset] = 99;
+            assertThrows(IOException.class, () -> codec.read(new ByteArrayInputStream(corrupt)), "offset " + offset);
+        }
+    }
+
+    @Test
+    public void binaryCodec_readsVersion1() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(BinarySecurityStateCodec.MAGIC);
+        data.writeByte(1);
+        data.writeByte(AlarmStatus.ALARM.ordinal());
+        data.writeByte(ArmingStatus.ARMED_HOME.ordinal());
+        data.writeInt(1);
+        data.writeLong(1);
+        data.writeLong(2);
+        data.writeByte(SensorType.WINDOW.ordinal());
+        data.writeByte(1);
+
+        SecurityState read = new BinarySecurityStateCodec().read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(AlarmStatus.ALARM, read.getAlarmStatus());
+        assertEquals(ArmingStatus.DISARMED, read.getZoneArmingStatus(Zone.PERIMETER));
+        Sensor sensor = read.getSensors().iterator().next();
+        assertTrue(sensor.getActive());
+        assertEquals(Zone.PERIMETER, sensor.getZone());
+    }
+
+    @Test
+    public void jsonCodec_readsSensorsStoredByReflectiveGson() {
+        String stored = "[{\"sensorId\":\"0b0e3ad4-7c1d-4f34-9a58-2d6c1b5f0e11\",\"name\":\"Front\",\"active\":true,\"sensorType\":\"DOOR\"}]";
+        Set<Sensor> sensors = new JsonSecurityStateCodec().readSensors(stored);
+
+        assertEquals(1, sensors.size());
+        Sensor sensor = sensors.iterator().next();
+        assertEquals("0b0e3ad4-7c1d-4f34-9a58-2d6c1b5f0e11", sensor.getSensorId().toString());
+        assertEquals("Front", sensor.getName());
+        assertTrue(sensor.getActive());
+        assertEquals(SensorType.DOOR, sensor.getSensorType());
+    }
+
+    @Test
+    public void jsonCodec_sensorListRoundTrip() {
+        JsonSecurityStateCodec codec = new JsonSecurityStateCodec();
+        Set<Sensor> sensors = codec.readSensors(codec.writeSensors(state.getSensors()));
+        assertSensorsEqual(state.getSensors(), sensors);
+    }
+
+    private SecurityState roundTrip(SecurityStateCodec codec, SecurityState state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(state, out);
+        return codec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private void assertStateEquals(SecurityState expected, SecurityState actual) {
+        assertEquals(expected.getAlarmStatus(), actual.getAlarmStatus());
+        assertEquals(expected.getArmingStatus(), actual.getArmingStatus());
+        for (Zone zone : Zone.values()) {
+            assertEquals(expected.getZoneAlarmStatus(zone), actual.getZoneAlarmStatus(zone));
+            assertEquals(expected.getZoneArmingStatus(zone), actual.getZoneArmingStatus(zone));
+        }
+        assertSensorsEqual(expected.getSensors(), actual.getSensors());
+    }
+
+    private void assertSensorsEqual(Set<Sensor> expected, Set<Sensor> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Sensor> it = actual.iterator();
+        for (Sensor e : expected) {
+            Sensor a = it.next();
+            assertEquals(e.getSensorId(), a.getSensorId());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getActive(), a.getActive());
+            assertEquals(e.getSensorType(), a.getSensorType());
+            assertEquals(e.getZone(), a.getZone());
+        }
+    }
+}
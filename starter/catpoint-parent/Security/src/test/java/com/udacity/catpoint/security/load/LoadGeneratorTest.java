@@ -0,0 +1,63 @@
+package com.udacity.catpoint.security.load;
+
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void run_shortSoak_reportsThroughputLatencyAndTransitions() {
+        List<LoadReport> intervals = new ArrayList<>();
+        LoadReport total = LoadGenerator.builder()
+                .sensors(SensorType.MOTION, 50)
+                .activationsPerSecond(2000)
+                .framesPerSecond(20)
+                .catProbability(0.2)
+                .duration(Duration.ofMillis(600))
+                .reportInterval(Duration.ofMillis(200))
+                .armingCycle(Duration.ofMillis(100))
+                .reporter(intervals::add)
+                .build()
+                .run();
+
+        assertTrue(total.getCalls() > 100, "calls: " + total.getCalls());
+        assertTrue(total.getFrames() > 0);
+        assertFalse(total.getAlarmTransitions().isEmpty());
+        assertTrue(total.getP50Nanos() <= total.getP99Nanos());
+        assertTrue(total.getP99Nanos() <= total.getMaxNanos());
+        assertEquals(2, intervals.size());
+        assertTrue(intervals.stream().mapToLong(LoadReport::getCalls).sum() <= total.getCalls());
+    }
+
+    @Test
+    public void builder_rejectsIntervalsThatNeverAdvanceAndNegativeRates() {
+        LoadGenerator.Builder builder = LoadGenerator.builder();
+
+        assertThrows(IllegalArgumentException.class, () -> builder.reportInterval(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> builder.armingCycle(Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.duration(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> builder.activationsPerSecond(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.framesPerSecond(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> builder.catProbability(1.5));
+        assertThrows(IllegalArgumentException.class, () -> builder.sensors(SensorType.DOOR, -1));
+    }
+
+    @Test
+    public void histogram_percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(50_000_000, histogram.percentile(0.5), 50_000_000 * 0.07);
+        assertEquals(99_000_000, histogram.percentile(0.99), 99_000_000 * 0.07);
+        assertEquals(100_000_000, histogram.getMax());
+        assertTrue(histogram.percentile(0.5) >= 50_000_000, "upper bucket edge never understates");
+    }
+}
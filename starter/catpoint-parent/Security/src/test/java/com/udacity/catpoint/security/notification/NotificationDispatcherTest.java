@@ -0,0 +1,189 @@
+package com.udacity.catpoint.security.notification;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationDispatcherTest {
+
+    private NotificationDispatcher dispatcher;
+
+    @AfterEach
+    void close() {
+        dispatcher.close();
+    }
+
+    @Test
+    public void everySubscriberReceivesEveryNotificationInOrder() throws Exception {
+        dispatcher = NotificationDispatcher.builder().threads(4).build();
+        List<RecordingSink> sinks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            RecordingSink sink = new RecordingSink();
+            sinks.add(sink);
+            dispatcher.subscribe(sink);
+        }
+
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        dispatcher.catDetected(true);
+        dispatcher.notify(AlarmStatus.ALARM);
+
+        awaitTrue(() -> sinks.stream().allMatch(sink -> sink.received().size() == 3));
+        for (RecordingSink sink : sinks) {
+            List<Notification> received = sink.received();
+            assertEquals("PENDING_ALARM", received.get(0).getValue());
+            assertEquals(Notification.Type.CAT_DETECTED, received.get(1).getType());
+            assertEquals("ALARM", received.get(2).getValue());
+        }
+    }
+
+    @Test
+    public void slowSink_notificationsQueuedMeanwhileGoOutAsOneBatch() throws Exception {
+        dispatcher = NotificationDispatcher.builder().build();
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void deliver(List<Notification> batch) throws IOException {
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.deliver(batch);
+            }
+        };
+        dispatcher.subscribe(sink);
+
+        long start = System.nanoTime();
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "publishing must not wait for the sink");
+        awaitTrue(() -> dispatcher.getSubscriptions().get(0).getQueued() == 51);
+        release.countDown();
+
+        awaitTrue(() -> sink.received().size() == 51);
+        assertEquals(2, sink.batches.get(), "the first notification, then the 50 that queued behind it");
+    }
+
+    @Test
+    public void fullQueue_dropsOldest() throws Exception {
+        dispatcher = NotificationDispatcher.builder().queueCapacity(2).build();
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void deliver(List<Notification> batch) throws IOException {
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.deliver(batch);
+            }
+        };
+        NotificationDispatcher.Subscription subscription = dispatcher.subscribe(sink);
+        dispatcher.notify(AlarmStatus.NO_ALARM);
+        //the first notification is held by the sink, so the queue starts empty
+        assertTrue(delivering.await(10, TimeUnit.SECONDS));
+
+        for (AlarmStatus status : AlarmStatus.values()) {
+            dispatcher.notify(status);
+        }
+        awaitTrue(() -> subscription.getDropped() == 1);
+        release.countDown();
+
+        awaitTrue(() -> sink.received().size() == 3);
+        assertEquals("PENDING_ALARM", sink.received().get(1).getValue());
+        assertEquals("ALARM", sink.received().get(2).getValue());
+    }
+
+    @Test
+    public void failingSink_retriedWithBackoffUntilItRecovers() throws Exception {
+        dispatcher = NotificationDispatcher.builder().backoff(Duration.ofMillis(10), Duration.ofMillis(50)).build();
+        AtomicInteger failures = new AtomicInteger(3);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void deliver(List<Notification> batch) throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IOException("down");
+                }
+                super.deliver(batch);
+            }
+        };
+        NotificationDispatcher.Subscription subscription = dispatcher.subscribe(sink);
+
+        dispatcher.notify(AlarmStatus.ALARM);
+
+        awaitTrue(() -> sink.received().size() == 1);
+        assertEquals(3, subscription.getRetries());
+        assertEquals(0, subscription.getDeadLettered());
+    }
+
+    @Test
+    public void sinkThatNeverRecovers_deadLetteredWithoutStoppingOthers() throws Exception {
+        List<Notification> deadLetters = Collections.synchronizedList(new ArrayList<>());
+        dispatcher = NotificationDispatcher.builder()
+                .maxAttempts(3)
+                .backoff(Duration.ofMillis(5), Duration.ofMillis(20))
+                .deadLetterHandler((sink, batch, cause) -> deadLetters.addAll(batch))
+                .build();
+        NotificationDispatcher.Subscription broken = dispatcher.subscribe(batch -> {
+            throw new IOException("down");
+        });
+        RecordingSink healthy = new RecordingSink();
+        dispatcher.subscribe(healthy);
+
+        dispatcher.notify(AlarmStatus.ALARM);
+
+        awaitTrue(() -> deadLetters.size() == 1);
+        assertEquals(2, broken.getRetries());
+        assertEquals(1, healthy.received().size());
+
+        dispatcher.notify(AlarmStatus.NO_ALARM);
+        awaitTrue(() -> deadLetters.size() == 2);
+    }
+
+    static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    static class RecordingSink implements NotificationSink {
+        private final List<Notification> received = new ArrayList<>();
+        final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public void deliver(List<Notification> batch) throws IOException {
+            synchronized (received) {
+                batches.incrementAndGet();
+                received.addAll(batch);
+            }
+        }
+
+        List<Notification> received() {
+            synchronized (received) {
+                return new ArrayList<>(received);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.udacity.catpoint.security.notification;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Each sink against a minimal local stand-in for the real server.
+ */
+public class NotificationSinksTest {
+
+    private static final List<Notification> BATCH = List.of(
+            Notification.alarm(1000, AlarmStatus.PENDING_ALARM), Notification.cat(1001, true));
+    private static final String BATCH_JSON = "[{\"time\":1000,\"type\":\"ALARM_STATUS\",\"value\":\"PENDING_ALARM\"},"
+            + "{\"time\":1001,\"type\":\"CAT_DETECTED\",\"value\":\"true\"}]";
+
+    private final ServerSocket server;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    @TempDir
+    Path tempDir;
+
+    public NotificationSinksTest() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    private void serve(ConnectionHandler handler) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    try (Socket socket = server.accept()) {
+                        handler.handle(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                                socket.getOutputStream());
+                    } catch (EOFException e) {
+                        //client closed, take the next connection
+                    }
+                }
+            } catch (IOException e) {
+                //server closed
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private interface ConnectionHandler {
+        void handle(DataInputStream in, OutputStream out) throws IOException;
+    }
+
+    @Test
+    public void webhook_postsBatchAsJson() throws Exception {
+        serve((in, out) -> {
+            String line;
+            int length = 0;
+            while (!(line = readLine(in)).isEmpty()) {
+                if (line.toLowerCase().startsWith("content-length:")) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            received.add(new String(body, StandardCharsets.UTF_8));
+            out.write("HTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        });
+        WebhookSink sink = new WebhookSink(URI.create("http://127.0.0.1:" + server.getLocalPort() + "/alarm"), Duration.ofSeconds(5));
+
+        sink.deliver(BATCH);
+
+        assertEquals(BATCH_JSON, received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void webhook_errorStatusIsFailure() {
+        serve((in, out) -> {
+            while (!readLine(in).isEmpty()) {
+            }
+            out.write("HTTP/1.1 503 Unavailable\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        });
+        WebhookSink sink = new WebhookSink(URI.create("http://127.0.0.1:" + server.getLocalPort() + "/alarm"), Duration.ofSeconds(5));
+
+        IOException e = assertThrows(IOException.class, () -> sink.deliver(BATCH));
+        assertTrue(e.getMessage().contains("503"));
+    }
+
+    @Test
+    public void mqtt_connectsOnceAndPublishesEachBatchWithQos1() throws Exception {
+        serve((in, out) -> {
+            assertEquals(0x10, in.readUnsignedByte());
+            in.readFully(new byte[readRemainingLength(in)]);
+            out.write(new byte[]{0x20, 2, 0, 0});
+            out.flush();
+            while (true) {
+                assertEquals(0x32, in.readUnsignedByte());
+                byte[] packet = new byte[readRemainingLength(in)];
+                in.readFully(packet);
+                DataInputStream publish = new DataInputStream(new ByteArrayInputStream(packet));
+                byte[] topic = new byte[publish.readUnsignedShort()];
+                publish.readFully(topic);
+                int packetId = publish.readUnsignedShort();
+                received.add(new String(topic, StandardCharsets.UTF_8) + " " + new String(publish.readAllBytes(), StandardCharsets.UTF_8));
+                out.write(new byte[]{0x40, 2, (byte) (packetId >> 8), (byte) packetId});
+                out.flush();
+            }
+        });
+        NotificationSink sink = NotificationSink.parse("mqtt:127.0.0.1:" + server.getLocalPort() + "/catpoint/alarm");
+
+        sink.deliver(BATCH);
+        sink.deliver(BATCH);
+
+        assertEquals("catpoint/alarm " + BATCH_JSON, received.poll(5, TimeUnit.SECONDS));
+        assertEquals("catpoint/alarm " + BATCH_JSON, received.poll(5, TimeUnit.SECONDS));
+        sink.close();
+    }
+
+    @Test
+    public void socket_writesJsonLinesAndReconnectsAfterFailure() throws Exception {
+        serve((in, out) -> {
+            String line;
+            while ((line = readLine(in)) != null) {
+                received.add(line);
+            }
+        });
+        SocketSink sink = new SocketSink(address());
+
+        sink.deliver(BATCH);
+
+        assertEquals(BATCH.get(0).toJson(), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(BATCH.get(1).toJson(), received.poll(5, TimeUnit.SECONDS));
+        sink.close();
+        sink.deliver(BATCH.subList(0, 1));
+        assertEquals(BATCH.get(0).toJson(), received.poll(5, TimeUnit.SECONDS));
+        sink.close();
+    }
+
+    @Test
+    public void file_appendsJsonLines() throws IOException {
+        Path file = tempDir.resolve("notifications.jsonl");
+        FileSink sink = new FileSink(file);
+
+        sink.deliver(BATCH);
+        sink.deliver(BATCH.subList(0, 1));
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(List.of(BATCH.get(0).toJson(), BATCH.get(1).toJson(), BATCH.get(0).toJson()), lines);
+    }
+
+    @Test
+    public void parse_rejectsUnknownKind() {
+        assertThrows(IllegalArgumentException.class, () -> NotificationSink.parse("carrier-pigeon:home"));
+    }
+
+    @Test
+    public void parse_rejectsMalformedTargets() {
+        for (String spec : List.of("mqtt:localhost:1883", "mqtt:localhost/alarms", "socket:localhost",
+                "socket::9000", "socket:localhost:port", "socket:localhost:70000")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> NotificationSink.parse(spec));
+            assertTrue(e.getMessage().contains(spec), e.getMessage());
+        }
+    }
+
+    private static int readRemainingLength(DataInputStream in) throws IOException {
+        int length = 0;
+        int shift = 0;
+        int digit;
+        do {
+            digit = in.readUnsignedByte();
+            length |= (digit & 0x7F) << shift;
+            shift += 7;
+        } while ((digit & 0x80) != 0);
+        return length;
+    }
+
+    /**
+     * Reads a CRLF or LF terminated line, or returns null at the end of the stream.
+     */
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTest {
+
+    private InMemorySecurityRepository replica;
+    private StandbyServer standby;
+    private ReplicatedSecurityRepository primary;
+
+    @BeforeEach
+    void init() throws IOException {
+        replica = new InMemorySecurityRepository();
+        standby = new StandbyServer(replica, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (primary != null) {
+            primary.close();
+        }
+        standby.close();
+    }
+
+    private ReplicatedSecurityRepository connect(SecurityRepository local) {
+        primary = new ReplicatedSecurityRepository(local,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), standby.getPort()), 1024, Duration.ofMillis(50));
+        return primary;
+    }
+
+    @Test
+    public void existingStateArrivesAsSnapshot_laterChangesAsBatches() throws Exception {
+        InMemorySecurityRepository local = new InMemorySecurityRepository();
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        local.addSensor(door);
+        local.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        local.setZoneArmingStatus(Zone.PERIMETER, ArmingStatus.ARMED_AWAY);
+        connect(local);
+
+        Sensor window = new Sensor("Kitchen window", SensorType.WINDOW);
+        primary.addSensor(window);
+        door.setActive(true);
+        primary.updateSensor(door);
+        primary.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        primary.setZoneAlarmStatus(Zone.PERIMETER, AlarmStatus.PENDING_ALARM);
+
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+        assertSameState(local, replica);
+        assertEquals(1, standby.getSnapshotsApplied());
+        assertEquals(4, standby.getLastAppliedSequence());
+    }
+
+    @Test
+    public void reconnectResumesFromBacklogWithoutSnapshot() throws Exception {
+        connect(new InMemorySecurityRepository());
+        primary.addSensor(new Sensor("Garage", SensorType.MOTION));
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+
+        standby.dropConnection();
+        for (int i = 0; i < 200; i++) {
+            primary.addSensor(new Sensor("Sensor " + i, SensorType.DOOR));
+        }
+
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+        assertSameState(primary, replica);
+        assertEquals(1, primary.getSnapshotsSent());
+        assertTrue(primary.getConnections() >= 2);
+    }
+
+    @Test
+    public void backlogOverrunFallsBackToSnapshot() throws Exception {
+        connect(new InMemorySecurityRepository());
+        primary.addSensor(new Sensor("Garage", SensorType.MOTION));
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+
+        standby.dropConnection();
+        for (int i = 0; i < 3000; i++) {
+            primary.addSensor(new Sensor("Sensor " + i, SensorType.WINDOW));
+        }
+
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+        assertSameState(primary, replica);
+        assertEquals(2, primary.getSnapshotsSent());
+    }
+
+    @Test
+    public void primaryLossIsReportedAndPromotionKeepsState() throws Exception {
+        CountDownLatch lost = new CountDownLatch(1);
+        standby.setPrimaryLostListener(lost::countDown);
+        connect(new InMemorySecurityRepository());
+        primary.setArmingStatus(ArmingStatus.ARMED_HOME);
+        primary.setAlarmStatus(AlarmStatus.ALARM);
+        assertTrue(primary.awaitReplicated(5, TimeUnit.SECONDS));
+
+        primary.close();
+
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        SecurityRepository promoted = standby.promote();
+        assertEquals(AlarmStatus.ALARM, promoted.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, promoted.getArmingStatus());
+    }
+
+    @Test
+    public void noStandby_awaitTimesOutAndChangesStillApplyLocally() throws Exception {
+        standby.close();
+        connect(new InMemorySecurityRepository());
+
+        primary.setAlarmStatus(AlarmStatus.ALARM);
+
+        assertFalse(primary.awaitReplicated(100, TimeUnit.MILLISECONDS));
+        assertEquals(AlarmStatus.ALARM, primary.getAlarmStatus());
+    }
+
+    private static void assertSameState(SecurityRepository expected, SecurityRepository actual) {
+        assertEquals(expected.getAlarmStatus(), actual.getAlarmStatus());
+        assertEquals(expected.getArmingStatus(), actual.getArmingStatus());
+        for (Zone zone : Zone.values()) {
+            assertEquals(expected.getZoneAlarmStatus(zone), actual.getZoneAlarmStatus(zone));
+            assertEquals(expected.getZoneArmingStatus(zone), actual.getZoneArmingStatus(zone));
+        }
+        assertEquals(activeById(expected), activeById(actual));
+    }
+
+    private static Map<UUID, Boolean> activeById(SecurityRepository repository) {
+        Map<UUID, Boolean> active = new HashMap<>();
+        repository.getSensors().forEach(sensor -> active.put(sensor.getSensorId(), sensor.getActive()));
+        return active;
+    }
+}
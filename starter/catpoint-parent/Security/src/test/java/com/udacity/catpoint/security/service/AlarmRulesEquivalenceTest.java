@@ -0,0 +1,247 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the default rules make exactly the alarm transitions the hard-coded logic they
+ * replaced made. {@link Legacy} is that logic, copied unchanged, and serves as the oracle.
+ */
+public class AlarmRulesEquivalenceTest {
+
+    private static final int SENSORS = 4;
+
+    @Test
+    public void everyOperationFromEveryState_sameTransitions() {
+        for (AlarmStatus alarm : AlarmStatus.values()) {
+            for (ArmingStatus arming : ArmingStatus.values()) {
+                for (boolean cat : new boolean[]{false, true}) {
+                    for (int activeMask = 0; activeMask < 1 << SENSORS; activeMask++) {
+                        for (int operation = 0; operation < Pair.OPERATIONS; operation++) {
+                            Pair pair = new Pair(alarm, arming, cat, activeMask);
+                            pair.perform(operation);
+                            pair.assertSame("operation " + operation + " from " + alarm + "/" + arming
+                                    + " cat=" + cat + " active=" + Integer.toBinaryString(activeMask));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomOperationSequences_sameTransitions() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            Pair pair = new Pair(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, 0);
+            for (int step = 0; step < 500; step++) {
+                int operation = random.nextInt(Pair.OPERATIONS);
+                pair.perform(operation);
+                pair.assertSame("run " + run + " step " + step + " operation " + operation);
+            }
+        }
+    }
+
+    /**
+     * The same starting state in the legacy logic and in a SecurityService using the default
+     * rules, driven in lockstep.
+     */
+    private static class Pair {
+        static final int OPERATIONS = 8 + 4 * SENSORS;
+
+        final InMemorySecurityRepository legacyRepository = new InMemorySecurityRepository();
+        final InMemorySecurityRepository repository = new InMemorySecurityRepository();
+        final Legacy legacy;
+        final SecurityService service;
+        final List<Sensor> legacySensors = new ArrayList<>();
+        final List<Sensor> sensors = new ArrayList<>();
+        final List<AlarmStatus> legacyTransitions = new ArrayList<>();
+        final List<AlarmStatus> transitions = new ArrayList<>();
+
+        Pair(AlarmStatus alarm, ArmingStatus arming, boolean cat, int activeMask) {
+            for (InMemorySecurityRepository repo : List.of(legacyRepository, repository)) {
+                repo.setAlarmStatus(alarm);
+                repo.setArmingStatus(arming);
+            }
+            for (int i = 0; i < SENSORS; i++) {
+                SensorType type = SensorType.values()[i % SensorType.values().length];
+                Sensor legacySensor = new Sensor("Sensor " + i, type);
+                legacySensor.setActive((activeMask & 1 << i) != 0);
+                Sensor sensor = new Sensor(legacySensor.getName(), type);
+                sensor.setSensorId(legacySensor.getSensorId());
+                sensor.setActive(legacySensor.getActive());
+                legacyRepository.addSensor(legacySensor);
+                repository.addSensor(sensor);
+                legacySensors.add(legacySensor);
+                sensors.add(sensor);
+            }
+            legacy = new Legacy(legacyRepository, legacyTransitions);
+            legacy.catDetection = cat;
+            service = new SecurityService(repository, new FakeImageService());
+            if (cat) {
+                //get the service's cat flag set without recording the transition it may cause
+                service.processDetection(DetectionResult.of(List.of(new DetectionResult.Label("Cat", 99f))));
+                repository.setAlarmStatus(alarm);
+            }
+            service.addStatusListener(new StatusListener() {
+                @Override
+                public void notify(AlarmStatus status) {
+                    transitions.add(status);
+                }
+
+                @Override
+                public void catDetected(boolean catDetected) {
+                }
+
+                @Override
+                public void sensorStatusChanged() {
+                }
+            });
+        }
+
+        void perform(int operation) {
+            if (operation < 3) {
+                ArmingStatus arming = ArmingStatus.values()[operation];
+                legacy.setArmingStatus(arming);
+                service.setArmingStatus(arming);
+            } else if (operation < 5) {
+                boolean cat = operation == 3;
+                legacy.catDetected(cat);
+                service.processDetection(cat ? DetectionResult.of(List.of(new DetectionResult.Label("Cat", 99f)))
+                        : DetectionResult.empty());
+            } else if (operation < 8) {
+                AlarmStatus alarm = AlarmStatus.values()[operation - 5];
+                legacy.setAlarmStatus(alarm);
+                service.setAlarmStatus(alarm);
+            } else {
+                int sensor = (operation - 8) % SENSORS;
+                switch ((operation - 8) / SENSORS) {
+                    case 0 -> {
+                        legacy.changeSensorActivationStatus(legacySensors.get(sensor), true);
+                        service.changeSensorActivationStatus(sensors.get(sensor), true);
+                    }
+                    case 1 -> {
+                        legacy.changeSensorActivationStatus(legacySensors.get(sensor), false);
+                        service.changeSensorActivationStatus(sensors.get(sensor), false);
+                    }
+                    default -> {
+                        boolean active = (operation - 8) / SENSORS == 2;
+                        legacySensors.get(sensor).setActive(active);
+                        sensors.get(sensor).setActive(active);
+                        legacy.changeSensorActivationStatus(legacySensors.get(sensor));
+                        service.changeSensorActivationStatus(sensors.get(sensor));
+                    }
+                }
+            }
+        }
+
+        void assertSame(String context) {
+            assertEquals(legacyTransitions, transitions, context);
+            assertEquals(legacyRepository.getAlarmStatus(), repository.getAlarmStatus(), context);
+            assertEquals(legacyRepository.getArmingStatus(), repository.getArmingStatus(), context);
+            for (int i = 0; i < SENSORS; i++) {
+                assertEquals(legacySensors.get(i).getActive(), sensors.get(i).getActive(), context);
+            }
+        }
+    }
+
+    /**
+     * The alarm logic of SecurityService before it was driven by AlarmRules.
+     */
+    private static class Legacy {
+        final SecurityRepository securityRepository;
+        final List<AlarmStatus> transitions;
+        Boolean catDetection = false;
+
+        Legacy(SecurityRepository securityRepository, List<AlarmStatus> transitions) {
+            this.securityRepository = securityRepository;
+            this.transitions = transitions;
+        }
+
+        void setArmingStatus(ArmingStatus armingStatus) {
+            if(catDetection && armingStatus == ArmingStatus.ARMED_HOME) {
+                setAlarmStatus(AlarmStatus.ALARM);
+            }
+
+            if(armingStatus == ArmingStatus.DISARMED) {
+                setAlarmStatus(AlarmStatus.NO_ALARM);
+            } else {
+                ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(securityRepository.getSensors());
+                sensors.forEach(sensor -> changeSensorActivationStatus(sensor, false));
+            }
+            securityRepository.setArmingStatus(armingStatus);
+        }
+
+        boolean getAllSensorsFromState(boolean state) {
+            return securityRepository.getSensors().stream().allMatch(sensor -> sensor.getActive() == state);
+        }
+
+        void catDetected(Boolean cat) {
+            catDetection = cat;
+
+            if(cat && securityRepository.getArmingStatus() == ArmingStatus.ARMED_HOME) {
+                setAlarmStatus(AlarmStatus.ALARM);
+            } else if(!cat && getAllSensorsFromState(false)) {
+                setAlarmStatus(AlarmStatus.NO_ALARM);
+            }
+        }
+
+        void setAlarmStatus(AlarmStatus status) {
+            securityRepository.setAlarmStatus(status);
+            transitions.add(status);
+        }
+
+        void handleSensorActivated() {
+            if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
+                return;
+            }
+            switch(securityRepository.getAlarmStatus()) {
+                case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+            }
+        }
+
+        void handleSensorDeactivated() {
+            switch(securityRepository.getAlarmStatus()) {
+                case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
+                case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            }
+        }
+
+        void changeSensorActivationStatus(Sensor sensor) {
+            AlarmStatus actualAlarmStatus = securityRepository.getAlarmStatus();
+            ArmingStatus actualArmingStatus = securityRepository.getArmingStatus();
+
+            if (actualAlarmStatus == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
+                handleSensorDeactivated();
+            } else if (actualAlarmStatus == AlarmStatus.ALARM && actualArmingStatus == ArmingStatus.DISARMED) {
+                handleSensorDeactivated();
+            }
+            securityRepository.updateSensor(sensor);
+        }
+
+        void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+            AlarmStatus actualAlarmStatus = securityRepository.getAlarmStatus();
+
+            if(actualAlarmStatus != AlarmStatus.ALARM) {
+                if(active) {
+                    handleSensorActivated();
+                } else if (sensor.getActive()) {
+                    handleSensorDeactivated();
+                }
+            }
+            sensor.setActive(active);
+            securityRepository.updateSensor(sensor);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlarmRulesTest {
+
+    @Test
+    public void specificRuleShadowsGeneralRuleBelowIt() throws IOException {
+        AlarmRules rules = AlarmRules.parse(new StringReader(String.join("\n",
+                "# pets roam the house while the family is home",
+                "SENSOR_ACTIVATED NO_ALARM ARMED_HOME MOTION -> UNCHANGED",
+                "SENSOR_ACTIVATED NO_ALARM !DISARMED * -> PENDING_ALARM")));
+
+        assertNull(rules.next(AlarmEvent.SENSOR_ACTIVATED, AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, SensorType.MOTION));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                rules.next(AlarmEvent.SENSOR_ACTIVATED, AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, SensorType.DOOR));
+        assertEquals(AlarmStatus.PENDING_ALARM,
+                rules.next(AlarmEvent.SENSOR_ACTIVATED, AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY, SensorType.MOTION));
+        assertNull(rules.next(AlarmEvent.SENSOR_ACTIVATED, AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, SensorType.DOOR));
+    }
+
+    @Test
+    public void listsMatchEachNamedValue_noSensorOnlyMatchesWildcards() throws IOException {
+        AlarmRules rules = AlarmRules.parse(new StringReader(
+                "CAT_DETECTED NO_ALARM,PENDING_ALARM * DOOR,WINDOW -> ALARM\nCAT_DETECTED ALARM * !DOOR -> NO_ALARM"));
+
+        assertEquals(AlarmStatus.ALARM, rules.next(AlarmEvent.CAT_DETECTED, AlarmStatus.PENDING_ALARM, ArmingStatus.DISARMED, SensorType.WINDOW));
+        assertNull(rules.next(AlarmEvent.CAT_DETECTED, AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, null));
+        assertEquals(AlarmStatus.NO_ALARM, rules.next(AlarmEvent.CAT_DETECTED, AlarmStatus.ALARM, null, null));
+        assertNull(rules.next(AlarmEvent.CAT_GONE_SENSORS_ACTIVE, AlarmStatus.ALARM, null, null));
+    }
+
+    @Test
+    public void malformedRule_reportsLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> AlarmRules.parse(new StringReader(
+                "CAT_DETECTED * ARMED_HOME * -> ALARM\n\nCAT_DETECTED * ARMED_OUT * -> ALARM")));
+
+        assertTrue(e.getMessage().startsWith("Line 3:"), e.getMessage());
+    }
+
+    @Test
+    public void defaults_loadFromBundledFile() {
+        assertSame(AlarmRules.defaults(), AlarmRules.defaults());
+        assertEquals(AlarmStatus.ALARM,
+                AlarmRules.defaults().next(AlarmEvent.CAT_DETECTED, AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, null));
+    }
+}
@@ -0,0 +1,243 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConflatingPublisherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void close() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void subscriberGetsCurrentValueThenEachChange() throws Exception {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, () -> Map.of("x", 0));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 3; i++) {
+            publisher.publish("x", i);
+        }
+        publisher.publish("x", 3);
+
+        assertEquals(List.of(0, 1, 2, 3), subscriber.received);
+    }
+
+    @Test
+    public void slowSubscriber_getsOnlyLatestValueOfEachKey() {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, Collections::emptyMap);
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0);
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 100_000; i++) {
+            publisher.publish(i % 2 == 0 ? "even" : "odd", i);
+        }
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(10);
+        assertEquals(List.of(99_998, 99_999), subscriber.received);
+    }
+
+    @Test
+    public void demandIsRespected() {
+        ConflatingPublisher<Integer, Integer> publisher = new ConflatingPublisher<>(Runnable::run, Collections::emptyMap);
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(2);
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(i, i);
+        }
+        assertEquals(List.of(0, 1), subscriber.received);
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0, 1, 2, 3), subscriber.received);
+    }
+
+    @Test
+    public void retractedKey_toldToSubscribersThenForgotten() {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, Collections::emptyMap);
+        RecordingSubscriber<Integer> eager = new RecordingSubscriber<>(Long.MAX_VALUE);
+        RecordingSubscriber<Integer> stalled = new RecordingSubscriber<>(0);
+        publisher.subscribe(eager);
+        publisher.subscribe(stalled);
+        publisher.publish("x", 1);
+        publisher.publish("y", 2);
+
+        publisher.retract("x", -1);
+        publisher.retract("x", -1);
+        RecordingSubscriber<Integer> late = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(late);
+        stalled.subscription.request(10);
+
+        assertEquals(List.of(1, 2, -1), eager.received);
+        assertEquals(List.of(-1, 2), stalled.received);
+        assertEquals(List.of(2), late.received);
+    }
+
+    @Test
+    public void republishedAfterRetract_slowSubscriberGetsLatestValueOnly() {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, Collections::emptyMap);
+        RecordingSubscriber<Integer> stalled = new RecordingSubscriber<>(0);
+        publisher.subscribe(stalled);
+        publisher.publish("x", 1);
+
+        publisher.retract("x", -1);
+        publisher.publish("x", 3);
+        stalled.subscription.request(10);
+
+        assertEquals(List.of(3), stalled.received);
+    }
+
+    @Test
+    public void keyRetractedWhileSeeding_doesNotComeBack() throws Exception {
+        Map<String, Integer> state = new ConcurrentHashMap<>(Map.of("x", 1));
+        List<ConflatingPublisher<String, Integer>> holder = new ArrayList<>();
+        List<Thread> removers = new ArrayList<>();
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, () -> {
+            Map<String, Integer> snapshot = Map.copyOf(state);
+            if (removers.isEmpty()) {
+                //the key is removed and retracted after the snapshot was taken
+                Thread remover = new Thread(() -> {
+                    state.remove("x");
+                    holder.get(0).retract("x", -1);
+                });
+                removers.add(remover);
+                remover.start();
+                try {
+                    remover.join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return snapshot;
+        });
+        holder.add(publisher);
+        RecordingSubscriber<Integer> first = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        removers.get(0).join();
+
+        RecordingSubscriber<Integer> late = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(late);
+
+        //the first subscriber may or may not have been sent 1 before the retraction
+        assertEquals(-1, first.received.get(first.received.size() - 1));
+        assertEquals(List.of(), late.received);
+    }
+
+    @Test
+    public void nonPositiveRequest_signalsError() {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(Runnable::run, Collections::emptyMap);
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void stalledSubscriber_doesNotHoldUpPublisherOrOthers() throws Exception {
+        ConflatingPublisher<String, Integer> publisher = new ConflatingPublisher<>(executor, Collections::emptyMap);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSubscriber<Integer> stalled = new RecordingSubscriber<>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Integer item) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onNext(item);
+            }
+        };
+        RecordingSubscriber<Integer> fast = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(stalled);
+        publisher.subscribe(fast);
+
+        long start = System.nanoTime();
+        for (int i = 0; i <= 10_000; i++) {
+            publisher.publish("x", i);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        fast.awaitLast(10_000);
+
+        release.countDown();
+        stalled.awaitLast(10_000);
+        assertTrue(stalled.received.size() <= 2, "the value it was stuck on, then the latest");
+    }
+
+    @Test
+    public void securityService_publishesStateChanges() throws Exception {
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), null, AlarmRules.defaults(), Runnable::run);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        service.addSensor(door);
+        RecordingSubscriber<AlarmStatus> alarms = new RecordingSubscriber<>(Long.MAX_VALUE);
+        RecordingSubscriber<ArmingStatus> arming = new RecordingSubscriber<>(Long.MAX_VALUE);
+        RecordingSubscriber<SensorChange> sensors = new RecordingSubscriber<>(Long.MAX_VALUE);
+        service.alarmStatuses().subscribe(alarms);
+        service.armingStatuses().subscribe(arming);
+        service.sensorChanges().subscribe(sensors);
+
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.changeSensorActivationStatus(door, true);
+        service.removeSensor(door);
+
+        assertEquals(List.of(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM), alarms.received);
+        assertEquals(List.of(ArmingStatus.DISARMED, ArmingStatus.ARMED_HOME), arming.received);
+        assertEquals("[Door inactive, Door active, Door removed]", sensors.received.toString());
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final long initialRequest;
+        final List<T> received = Collections.synchronizedList(new ArrayList<>());
+        Flow.Subscription subscription;
+        Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void awaitLast(T value) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.isEmpty() || !value.equals(received.get(received.size() - 1))) {
+                assertTrue(System.nanoTime() < deadline, "timed out waiting for " + value);
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameSamplerTest {
+
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(40);
+
+    private long now = 0;
+
+    private final FrameSampler sampler = FrameSampler.builder()
+            .budget(4)
+            .activityWindow(Duration.ofSeconds(30))
+            .clock(() -> now)
+            .build();
+
+    @Test
+    public void disarmed_analyzesRarely_armedAwayOften() {
+        FrameSampler.Camera camera = sampler.addCamera("porch", Zone.PERIMETER);
+
+        int disarmed = admittedOver(camera, 10);
+        sampler.armingChanged(ArmingStatus.ARMED_AWAY);
+        int armed = admittedOver(camera, 10);
+
+        assertEquals(2.0, camera.getRate(), 1e-9);
+        assertTrue(disarmed <= 2, "disarmed admitted " + disarmed);
+        assertEquals(21, armed, 1);
+    }
+
+    @Test
+    public void camerasWantingMoreThanTheBudget_shareItInProportion() {
+        sampler.armingChanged(ArmingStatus.ARMED_AWAY);
+        FrameSampler.Camera[] cameras = new FrameSampler.Camera[8];
+        for (int i = 0; i < cameras.length; i++) {
+            cameras[i] = sampler.addCamera("camera " + i, Zone.INTERIOR);
+        }
+
+        assertEquals(4.0, sampler.getAllocated(), 1e-9);
+        int total = 0;
+        for (int frame = 0; frame < 25 * 20; frame++) {
+            now += FRAME_NANOS;
+            for (FrameSampler.Camera camera : cameras) {
+                total += camera.offer() ? 1 : 0;
+            }
+        }
+        //one saved-up frame per camera, then the budget
+        assertEquals(8 + 4 * 20, total, 8);
+
+        cameras[0].close();
+        assertEquals(4.0 / 7, cameras[1].getRate(), 1e-9);
+    }
+
+    @Test
+    public void pendingAlarm_boostsRateAndAdmitsNextFrameAtOnce() {
+        sampler.armingChanged(ArmingStatus.ARMED_HOME);
+        FrameSampler.Camera camera = sampler.addCamera("hall", Zone.INTERIOR);
+        assertTrue(camera.offer());
+        now += FRAME_NANOS;
+        assertFalse(camera.offer());
+
+        sampler.alarmChanged(AlarmStatus.PENDING_ALARM);
+
+        assertEquals(4.0, camera.getRate(), 1e-9);
+        assertTrue(camera.offer());
+    }
+
+    @Test
+    public void sensorActivation_boostsCamerasInItsZoneMostUntilTheWindowPasses() {
+        sampler.armingChanged(ArmingStatus.ARMED_HOME);
+        FrameSampler.Camera garage = sampler.addCamera("garage", Zone.GARAGE);
+        FrameSampler.Camera porch = sampler.addCamera("porch", Zone.PERIMETER);
+        FrameSampler.Camera overview = sampler.addCamera("overview", null);
+
+        sampler.sensorActivated(Zone.GARAGE);
+
+        //wanted 4 + 2 + 4 = 10 frames per second, scaled to the budget of 4
+        assertEquals(1.6, garage.getRate(), 1e-9);
+        assertEquals(0.8, porch.getRate(), 1e-9);
+        assertEquals(1.6, overview.getRate(), 1e-9);
+
+        now += TimeUnit.SECONDS.toNanos(31);
+        garage.offer();
+
+        assertEquals(1.0, garage.getRate(), 1e-9);
+        assertEquals(1.0, porch.getRate(), 1e-9);
+    }
+
+    @Test
+    public void watch_followsTheSecurityService() throws Exception {
+        SecurityService securityService = new SecurityService(
+                new InMemorySecurityRepository(), null, AlarmRules.defaults(), Runnable::run);
+        FrameSampler.Camera camera = sampler.addCamera("porch", Zone.PERIMETER);
+        sampler.watch(securityService);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        assertEquals(2.0, camera.getRate(), 1e-9);
+    }
+
+    @Test
+    public void watch_countsActivationsEvenIfSwitchedStraightOff_butNotSensorsAlreadyActive() {
+        InMemorySecurityRepository repository = new InMemorySecurityRepository();
+        Sensor alreadyOpen = new Sensor("window", SensorType.WINDOW, Zone.GARAGE);
+        alreadyOpen.setActive(true);
+        repository.addSensor(alreadyOpen);
+        SecurityService securityService = new SecurityService(repository, null, AlarmRules.defaults(), Runnable::run);
+        FrameSampler.Camera garage = sampler.addCamera("garage", Zone.GARAGE);
+        sampler.watch(securityService);
+
+        assertEquals(0.1, garage.getRate(), 1e-9);
+
+        Sensor door = new Sensor("side door", SensorType.DOOR, Zone.GARAGE);
+        securityService.addSensor(door);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(door, false);
+
+        assertEquals(0.4, garage.getRate(), 1e-9);
+    }
+
+    private int admittedOver(FrameSampler.Camera camera, int seconds) {
+        int admitted = 0;
+        for (int frame = 0; frame < 25 * seconds; frame++) {
+            now += FRAME_NANOS;
+            admitted += camera.offer() ? 1 : 0;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,191 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityLanesTest {
+
+    private static final BufferedImage IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private final CountDownLatch releaseScans = new CountDownLatch(1);
+    private final AtomicInteger scansStarted = new AtomicInteger();
+    private final ImageService slowImages = new ImageService() {
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            return detect(image).containsCat(confidenceThreshhold);
+        }
+
+        @Override
+        public DetectionResult detect(BufferedImage image) {
+            scansStarted.incrementAndGet();
+            try {
+                releaseScans.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DetectionResult.empty();
+        }
+    };
+
+    private final InMemorySecurityRepository repository = new InMemorySecurityRepository();
+    private final SecurityService securityService = new SecurityService(repository, slowImages);
+    private SecurityLanes lanes;
+
+    @AfterEach
+    public void close() {
+        releaseScans.countDown();
+        lanes.close();
+    }
+
+    @Test
+    public void backlogOfFrames_doesNotDelayDoorSensor() throws Exception {
+        lanes = SecurityLanes.builder(securityService).imageThreads(2).imageQueueCapacity(4).build();
+        Sensor door = new Sensor("front door", SensorType.DOOR);
+        securityService.addSensor(door);
+        lanes.setArmingStatus(ArmingStatus.ARMED_AWAY).get(5, TimeUnit.SECONDS);
+        List<CompletableFuture<DetectionResult>> scans = new ArrayList<>();
+        scans.add(lanes.analyzeImage(IMAGE));
+        scans.add(lanes.analyzeImage(IMAGE));
+        awaitScans(2);
+        for (int i = 0; i < 18; i++) {
+            scans.add(lanes.analyzeImage(IMAGE));
+        }
+
+        lanes.changeSensorActivationStatus(door, true).get(5, TimeUnit.SECONDS);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        assertEquals(2, scansStarted.get());
+        assertEquals(4, lanes.getImageLane().getQueued());
+        assertEquals(14, lanes.getImageLane().getDropped());
+        assertEquals(14, scans.stream().filter(CompletableFuture::isCancelled).count());
+
+        releaseScans.countDown();
+        for (CompletableFuture<DetectionResult> scan : scans) {
+            if (!scan.isCancelled()) {
+                assertNotNull(scan.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(6, lanes.getImageLane().getCompleted());
+        assertEquals(2, lanes.getSensorLane().getCompleted());
+    }
+
+    @Test
+    public void imageLane_waitsWhileSensorLaneIsBusy() throws Exception {
+        lanes = SecurityLanes.builder(securityService).build();
+        CountDownLatch sensorRunning = new CountDownLatch(1);
+        CountDownLatch releaseSensor = new CountDownLatch(1);
+        securityService.addStatusListener(new BlockingListener(sensorRunning, releaseSensor));
+        CompletableFuture<Void> arming = lanes.setArmingStatus(ArmingStatus.ARMED_HOME);
+        assertTrue(sensorRunning.await(5, TimeUnit.SECONDS));
+
+        lanes.analyzeImage(IMAGE);
+        Thread.sleep(100);
+        assertEquals(0, scansStarted.get());
+        assertEquals(1, lanes.getImageLane().getQueued());
+
+        releaseSensor.countDown();
+        arming.get(5, TimeUnit.SECONDS);
+        awaitScans(1);
+        assertTrue(lanes.getSensorLane().getMaxWait().compareTo(lanes.getImageLane().getMaxWait()) <= 0);
+    }
+
+    @Test
+    public void sensorChanges_runInSubmissionOrder() throws Exception {
+        lanes = SecurityLanes.builder(securityService).build();
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        securityService.addSensor(window);
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 101; i++) {
+            last = lanes.changeSensorActivationStatus(window, i % 2 == 0);
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        assertTrue(window.getActive());
+        assertEquals(101, lanes.getSensorLane().getCompleted());
+    }
+
+    @Test
+    public void errorInSensorChange_failsItsFutureAndLanesKeepRunning() throws Exception {
+        lanes = SecurityLanes.builder(securityService).build();
+        AtomicInteger failures = new AtomicInteger(1);
+        Sensor window = new Sensor("window", SensorType.WINDOW) {
+            @Override
+            public void setActive(Boolean active) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new AssertionError("sensor broke");
+                }
+                super.setActive(active);
+            }
+        };
+        securityService.addSensor(window);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> lanes.changeSensorActivationStatus(window, true).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof AssertionError);
+
+        lanes.changeSensorActivationStatus(window, false).get(5, TimeUnit.SECONDS);
+        releaseScans.countDown();
+        lanes.analyzeImage(IMAGE).get(5, TimeUnit.SECONDS);
+        assertEquals(2, lanes.getSensorLane().getCompleted());
+    }
+
+    @Test
+    public void closedLanes_rejectWorkAndCancelQueuedFrames() {
+        lanes = SecurityLanes.builder(securityService).imageThreads(1).build();
+        lanes.analyzeImage(IMAGE);
+        CompletableFuture<DetectionResult> queued = lanes.analyzeImage(IMAGE);
+
+        lanes.close();
+
+        assertTrue(queued.isCancelled());
+        assertThrows(RejectedExecutionException.class, () -> lanes.setArmingStatus(ArmingStatus.DISARMED));
+    }
+
+    private void awaitScans(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scansStarted.get() < count) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class BlockingListener implements StatusListener {
+        private final CountDownLatch running;
+        private final CountDownLatch release;
+
+        BlockingListener(CountDownLatch running, CountDownLatch release) {
+            this.running = running;
+            this.release = release;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
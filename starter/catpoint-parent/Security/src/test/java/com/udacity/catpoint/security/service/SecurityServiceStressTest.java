@@ -0,0 +1,219 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives one SecurityService from many threads at once and checks that nothing is lost or
+ * corrupted. Each scenario runs a fixed number of operations per thread, all threads released
+ * together, and is repeated so that unlucky interleavings get a chance to happen.
+ */
+public class SecurityServiceStressTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 500;
+    private static final BufferedImage IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    @Test
+    public void concurrentTogglesArmingAndImages_keepStateConsistent() throws Exception {
+        Set<List<AlarmStatus>> legal = legalTransitions(AlarmRules.defaults());
+        for (int round = 0; round < ROUNDS; round++) {
+            InMemorySecurityRepository repository = new InMemorySecurityRepository();
+            ImageService images = (image, threshold) -> ThreadLocalRandom.current().nextBoolean();
+            SecurityService service = new SecurityService(repository, images);
+            List<Sensor> sensors = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                sensors.add(sensor);
+                service.addSensor(sensor);
+            }
+            TransitionListener transitions = new TransitionListener(repository);
+            service.addStatusListener(transitions);
+
+            run(thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    switch (thread % 4) {
+                        case 0 -> service.setArmingStatus(ArmingStatus.values()[random.nextInt(ArmingStatus.values().length)]);
+                        case 1 -> service.processImage(IMAGE);
+                        default -> service.changeSensorActivationStatus(sensors.get(random.nextInt(sensors.size())), random.nextBoolean());
+                    }
+                }
+            });
+
+            assertEquals(sensors.size(), repository.getSensors().size(), "sensors lost or duplicated by concurrent updates");
+            assertTrue(transitions.mismatches.isEmpty(), "listeners told a status the repository did not hold: " + transitions.mismatches);
+            for (List<AlarmStatus> transition : transitions.seen) {
+                assertTrue(legal.contains(transition), "no rule moves the alarm " + transition);
+            }
+            if (service.getArmingStatus() == ArmingStatus.DISARMED) {
+                assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+            }
+        }
+    }
+
+    @Test
+    public void listenersAddedAndRemovedWhileNotifying_noneMissedOrFailing() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            SecurityService service = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+            CountingListener permanent = new CountingListener();
+            service.addStatusListener(permanent);
+            AtomicInteger changes = new AtomicInteger();
+
+            run(thread -> {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    if (thread % 2 == 0) {
+                        CountingListener listener = new CountingListener();
+                        service.addStatusListener(listener);
+                        service.removeStatusListener(listener);
+                    } else {
+                        service.setArmingStatus(i % 2 == 0 ? ArmingStatus.ARMED_HOME : ArmingStatus.DISARMED);
+                        changes.incrementAndGet();
+                    }
+                }
+            });
+
+            assertEquals(changes.get(), permanent.sensorChanges.get());
+        }
+    }
+
+    @Test
+    public void sensorsAddedAndRemovedWhileIterated_noLostUpdates() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            SecurityService service = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+            ConcurrentLinkedQueue<Sensor> kept = new ConcurrentLinkedQueue<>();
+
+            run(thread -> {
+                for (int i = 0; i < OPERATIONS / 4; i++) {
+                    switch (thread % 3) {
+                        case 0 -> {
+                            Sensor sensor = new Sensor("Kept " + thread + "-" + i, SensorType.WINDOW);
+                            service.addSensor(sensor);
+                            kept.add(sensor);
+                        }
+                        case 1 -> {
+                            Sensor sensor = new Sensor("Removed " + thread + "-" + i, SensorType.DOOR);
+                            service.addSensor(sensor);
+                            service.changeSensorActivationStatus(sensor, true);
+                            service.removeSensor(sensor);
+                        }
+                        default -> {
+                            //iterates the sensors, as the GUI does when redrawing
+                            service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+                            service.setArmingStatus(ArmingStatus.DISARMED);
+                        }
+                    }
+                }
+            });
+
+            assertEquals(new HashSet<>(kept), new HashSet<>(service.getSensors()));
+        }
+    }
+
+    private static Set<List<AlarmStatus>> legalTransitions(AlarmRules rules) {
+        Set<List<AlarmStatus>> legal = new HashSet<>();
+        for (AlarmEvent event : AlarmEvent.values()) {
+            for (AlarmStatus from : AlarmStatus.values()) {
+                for (ArmingStatus arming : ArmingStatus.values()) {
+                    List<SensorType> types = new ArrayList<>(Arrays.asList(SensorType.values()));
+                    types.add(null);
+                    for (SensorType type : types) {
+                        AlarmStatus to = rules.next(event, from, arming, type);
+                        if (to != null) {
+                            legal.add(List.of(from, to));
+                        }
+                    }
+                }
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Starts the task on every thread at once and rethrows the first failure.
+     */
+    private static void run(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(number);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    fail("worker failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    private static class TransitionListener implements StatusListener {
+        private final SecurityRepository repository;
+        private AlarmStatus last = AlarmStatus.NO_ALARM;
+        final List<List<AlarmStatus>> seen = new ArrayList<>();
+        final List<String> mismatches = new ArrayList<>();
+
+        TransitionListener(SecurityRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public synchronized void notify(AlarmStatus status) {
+            if (status != repository.getAlarmStatus()) {
+                mismatches.add(status + " while repository held " + repository.getAlarmStatus());
+            }
+            seen.add(List.of(last, status));
+            last = status;
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+
+    private static class CountingListener implements StatusListener {
+        final AtomicInteger sensorChanges = new AtomicInteger();
+
+        @Override
+        public void notify(AlarmStatus status) {
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            sensorChanges.incrementAndGet();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.udacity.catpoint.security.service;
 
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.ImageService;
 import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
 import com.udacity.catpoint.security.data.*;
 import net.bytebuddy.utility.RandomString;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,9 +17,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 import static org.junit.jupiter.api.Assertions.*;
@@ -266,4 +272,48 @@ public class SecurityServiceTest {
 
         verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
     }
+
+    @Test
+    public void thresholdChange_reevaluatesLastDetectionWithoutRescanning() {
+        DetectionResult result = DetectionResult.of(List.of(new DetectionResult.Label("Cat", 70.0f)));
+        when(imageService.detect(any())).thenReturn(result);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+
+        assertEquals(result, securityService.analyzeImage(new BufferedImage(100, 120, TYPE_INT_RGB)));
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+
+        securityService.setCatConfidenceThreshold(90.0f);
+
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.NO_ALARM);
+        verify(imageService, times(1)).detect(any());
+    }
+
+    @Test
+    public void trackedSensor_quietForTooLong_isStaleUntilItReportsAgain() {
+        long[] now = {0};
+        SensorHeartbeats heartbeats = SensorHeartbeats.builder()
+                .timeout(Duration.ofSeconds(10))
+                .clock(() -> now[0])
+                .listener(securityService::sensorHealthChanged)
+                .build();
+        when(securityRepository.ready()).thenReturn(CompletableFuture.completedFuture(null));
+        when(securityRepository.getSensors()).thenReturn(Set.of(sensor));
+        securityService.addStatusListener(statusListeners, StatusTopic.SENSORS);
+        assertEquals(SensorHealth.UNKNOWN, securityService.getSensorHealth(sensor));
+
+        securityService.trackHealth(heartbeats);
+        assertEquals(SensorHealth.HEALTHY, securityService.getSensorHealth(sensor));
+
+        now[0] = TimeUnit.SECONDS.toNanos(11);
+        heartbeats.sweep();
+        assertEquals(SensorHealth.STALE, securityService.getSensorHealth(sensor));
+        verify(statusListeners, times(1)).sensorStatusChanged();
+
+        securityService.changeSensorActivationStatus(sensor);
+        assertEquals(SensorHealth.HEALTHY, securityService.getSensorHealth(sensor));
+        verify(statusListeners, times(2)).sensorStatusChanged();
+
+        securityService.removeSensor(sensor);
+        assertEquals(SensorHealth.UNKNOWN, securityService.getSensorHealth(sensor));
+    }
 }
@@ -0,0 +1,70 @@
+package com.udacity.catpoint.security.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Rough benchmark of {@link SensorHeartbeats} with many sensors, each reporting every few
+ * seconds of simulated time. Prints the cost of a heartbeat and of a sweep, and how many garbage
+ * collections ran while heartbeats were delivered. Not run as part of the test suite; launch
+ * the main method directly, optionally with the number of sensors.
+ */
+public class SensorHeartbeatsBenchmark {
+
+    private static final int ROUNDS = 200;
+    private static final int REPORT_EVERY_TICKS = 3;
+
+    private static long now;
+
+    public static void main(String[] args) {
+        int sensors = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        SensorHeartbeats heartbeats = SensorHeartbeats.builder()
+                .capacity(sensors)
+                .timeout(Duration.ofSeconds(10))
+                .tick(Duration.ofSeconds(1))
+                .clock(() -> now)
+                .build();
+        int[] slots = new int[sensors];
+        for (int i = 0; i < sensors; i++) {
+            slots[i] = heartbeats.register(UUID.randomUUID());
+        }
+
+        long heartbeatNanos = 0;
+        long sweepNanos = 0;
+        long delivered = 0;
+        long collections = -collections();
+        for (int round = 0; round < ROUNDS; round++) {
+            now += Duration.ofSeconds(1).toNanos();
+            long start = System.nanoTime();
+            for (int i = round % REPORT_EVERY_TICKS; i < sensors; i += REPORT_EVERY_TICKS) {
+                heartbeats.heartbeat(slots[i]);
+                delivered++;
+            }
+            long swept = System.nanoTime();
+            heartbeats.sweep();
+            long end = System.nanoTime();
+            if (round >= ROUNDS / 2) {
+                //the first half warms up
+                heartbeatNanos += swept - start;
+                sweepNanos += end - swept;
+            }
+        }
+        collections += collections();
+
+        System.out.printf("%d sensors, one report each every %d s%n", sensors, REPORT_EVERY_TICKS);
+        System.out.printf("heartbeat   %8.1f ns%n", (double) heartbeatNanos / (delivered / 2));
+        System.out.printf("sweep       %8.3f ms/tick%n", sweepNanos / 1e6 / (ROUNDS - ROUNDS / 2));
+        System.out.printf("stale       %8d%n", heartbeats.getStaleCount());
+        System.out.printf("collections %8d%n", collections);
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+}
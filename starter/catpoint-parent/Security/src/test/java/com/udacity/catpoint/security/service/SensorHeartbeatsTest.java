@@ -0,0 +1,124 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.SensorHealth;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorHeartbeatsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long now = 1_000 * SECOND;
+    private final List<String> changes = new ArrayList<>();
+
+    private SensorHeartbeats.Builder builder() {
+        return SensorHeartbeats.builder()
+                .timeout(Duration.ofSeconds(10))
+                .tick(Duration.ofSeconds(1))
+                .clock(() -> now)
+                .listener((sensorId, health) -> changes.add(sensorId + " " + health));
+    }
+
+    @Test
+    public void quietSensor_becomesStaleAfterTimeout_andRecoversOnHeartbeat() {
+        SensorHeartbeats heartbeats = builder().build();
+        UUID quiet = UUID.randomUUID();
+        UUID chatty = UUID.randomUUID();
+        heartbeats.register(quiet);
+        int chattySlot = heartbeats.register(chatty);
+
+        for (int second = 1; second <= 12; second++) {
+            now += SECOND;
+            heartbeats.heartbeat(chattySlot);
+            heartbeats.sweep();
+            SensorHealth expected = second <= 10 ? SensorHealth.HEALTHY : SensorHealth.STALE;
+            assertEquals(expected, heartbeats.getHealth(quiet), "after " + second + "s");
+        }
+        assertEquals(SensorHealth.HEALTHY, heartbeats.getHealth(chatty));
+        assertEquals(1, heartbeats.getStaleCount());
+        assertEquals(Duration.ofSeconds(12), heartbeats.getSilence(quiet));
+
+        heartbeats.heartbeat(quiet);
+
+        assertEquals(SensorHealth.HEALTHY, heartbeats.getHealth(quiet));
+        assertEquals(0, heartbeats.getStaleCount());
+        assertEquals(List.of(quiet + " STALE", quiet + " HEALTHY"), changes);
+
+        now += 11 * SECOND;
+        heartbeats.sweep();
+        assertEquals(SensorHealth.STALE, heartbeats.getHealth(quiet));
+        assertEquals(SensorHealth.STALE, heartbeats.getHealth(chatty));
+    }
+
+    @Test
+    public void sweepAfterLongPause_findsEverySensorOnce() {
+        SensorHeartbeats heartbeats = builder().build();
+        for (int i = 0; i < 50; i++) {
+            heartbeats.register(UUID.randomUUID());
+            now += SECOND / 3;
+        }
+
+        now += 300 * SECOND;
+        heartbeats.sweep();
+
+        assertEquals(50, heartbeats.getStaleCount());
+        assertEquals(50, changes.size());
+    }
+
+    @Test
+    public void unregisteredSlot_isReusedAndForgetsOldState() {
+        SensorHeartbeats heartbeats = builder().capacity(2).build();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        int slot = heartbeats.register(first);
+        heartbeats.register(second);
+        assertThrows(IllegalStateException.class, () -> heartbeats.register(UUID.randomUUID()));
+        now += 11 * SECOND;
+        heartbeats.sweep();
+        assertEquals(2, heartbeats.getStaleCount());
+
+        heartbeats.unregister(first);
+        UUID third = UUID.randomUUID();
+
+        assertEquals(slot, heartbeats.register(third));
+        assertEquals(SensorHealth.UNKNOWN, heartbeats.getHealth(first));
+        assertEquals(SensorHealth.HEALTHY, heartbeats.getHealth(third));
+        assertEquals(1, heartbeats.getStaleCount());
+        now += 5 * SECOND;
+        heartbeats.sweep();
+        assertEquals(SensorHealth.HEALTHY, heartbeats.getHealth(third));
+        now += 6 * SECOND;
+        heartbeats.sweep();
+        assertEquals(SensorHealth.STALE, heartbeats.getHealth(third));
+    }
+
+    @Test
+    public void manySensorsReportingInTurn_onlyTheSilentOnesGoStale() {
+        int sensors = 100_000;
+        SensorHeartbeats heartbeats = builder().capacity(sensors).build();
+        int[] slots = new int[sensors];
+        for (int i = 0; i < sensors; i++) {
+            slots[i] = heartbeats.register(new UUID(0, i));
+        }
+
+        //every sensor reports every 3 seconds, except every hundredth which never does
+        for (int tick = 1; tick <= 30; tick++) {
+            now += SECOND;
+            for (int i = tick % 3; i < sensors; i += 3) {
+                if (i % 100 != 0) {
+                    heartbeats.heartbeat(slots[i]);
+                }
+            }
+            heartbeats.sweep();
+        }
+
+        assertEquals(sensors / 100, heartbeats.getStaleCount());
+        assertEquals(SensorHealth.STALE, heartbeats.getHealth(new UUID(0, 500)));
+        assertEquals(SensorHealth.HEALTHY, heartbeats.getHealth(new UUID(0, 501)));
+    }
+}
@@ -0,0 +1,130 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.application.StatusTopic;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatusListenerRegistryTest {
+
+    private static final BufferedImage IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private final ImageService noCats = (image, threshold) -> false;
+    private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), noCats);
+
+    @Test
+    public void topicListener_onlyCalledForItsTopics() {
+        RecordingListener alarm = new RecordingListener();
+        RecordingListener cat = new RecordingListener();
+        RecordingListener all = new RecordingListener();
+        securityService.addStatusListener(alarm, StatusTopic.ALARM);
+        securityService.addStatusListener(cat, StatusTopic.CAT_DETECTION);
+        securityService.addStatusListener(all);
+
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        securityService.processImage(IMAGE);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        assertEquals("alarm PENDING_ALARM", alarm.calls.get(0));
+        assertTrue(alarm.calls.stream().allMatch(call -> call.startsWith("alarm")), alarm.calls.toString());
+        assertEquals(List.of("cat false"), cat.calls);
+        assertTrue(all.calls.containsAll(List.of("alarm PENDING_ALARM", "cat false", "sensors")), all.calls.toString());
+    }
+
+    @Test
+    public void addingTopicsAgain_extendsTheSubscription_andRemoveStopsAll() {
+        RecordingListener listener = new RecordingListener();
+        securityService.addStatusListener(listener, StatusTopic.ALARM);
+        securityService.addStatusListener(listener, StatusTopic.SENSORS);
+
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        securityService.processImage(IMAGE);
+        assertEquals("alarm ALARM", listener.calls.get(0));
+        assertTrue(listener.calls.contains("sensors"), listener.calls.toString());
+        assertFalse(listener.calls.contains("cat false"));
+
+        securityService.removeStatusListener(listener);
+        listener.calls.clear();
+        securityService.setAlarmStatus(AlarmStatus.NO_ALARM);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertEquals(List.of(), listener.calls);
+    }
+
+    @Test
+    public void zoneAndSensorListeners_hearAboutTheirSensorsOnlyOnce() {
+        Sensor door = new Sensor("front door", SensorType.DOOR, Zone.PERIMETER);
+        Sensor motion = new Sensor("hall motion", SensorType.MOTION, Zone.INTERIOR);
+        securityService.addSensor(door);
+        securityService.addSensor(motion);
+        RecordingListener perimeter = new RecordingListener();
+        RecordingListener doorOnly = new RecordingListener();
+        RecordingListener both = new RecordingListener();
+        RecordingListener topic = new RecordingListener();
+        securityService.addSensorListener(perimeter, Zone.PERIMETER);
+        securityService.addSensorListener(doorOnly, door.getSensorId());
+        securityService.addSensorListener(both, Zone.PERIMETER);
+        securityService.addSensorListener(both, door.getSensorId());
+        securityService.addStatusListener(topic, StatusTopic.SENSORS);
+
+        securityService.changeSensorActivationStatus(motion, true);
+        assertEquals(List.of(), perimeter.calls);
+        assertEquals(List.of(), doorOnly.calls);
+        assertEquals(List.of(), topic.calls);
+
+        securityService.changeSensorActivationStatus(door, true);
+        assertEquals(List.of("sensors"), perimeter.calls);
+        assertEquals(List.of("sensors"), doorOnly.calls);
+        assertEquals(List.of("sensors"), both.calls);
+        assertEquals(List.of(), topic.calls);
+
+        //arming resets every sensor, which all of them hear about
+        topic.calls.clear();
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        assertEquals(List.of("sensors"), topic.calls);
+        assertEquals(List.of("sensors", "sensors"), perimeter.calls);
+    }
+
+    @Test
+    public void zonedService_armingOneZone_onlyTellsThatZonesListeners() {
+        ZonedSecurityService zoned = new ZonedSecurityService(new InMemorySecurityRepository());
+        RecordingListener garage = new RecordingListener();
+        RecordingListener interior = new RecordingListener();
+        RecordingListener topic = new RecordingListener();
+        zoned.addSensorListener(garage, Zone.GARAGE);
+        zoned.addSensorListener(interior, Zone.INTERIOR);
+        zoned.addStatusListener(topic, StatusTopic.SENSORS);
+
+        zoned.setZoneArmingStatus(Zone.GARAGE, ArmingStatus.ARMED_AWAY);
+
+        assertEquals(List.of("sensors"), garage.calls);
+        assertEquals(List.of(), interior.calls);
+        assertEquals(List.of("sensors"), topic.calls);
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void notify(AlarmStatus status) {
+            calls.add("alarm " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            calls.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            calls.add("sensors");
+        }
+    }
+}
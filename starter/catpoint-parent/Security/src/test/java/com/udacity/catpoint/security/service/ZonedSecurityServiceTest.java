@@ -0,0 +1,227 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZonedSecurityServiceTest {
+
+    private InMemorySecurityRepository repository;
+    private ZonedSecurityService service;
+    private Sensor frontDoor;
+    private Sensor hallMotion;
+    private Sensor garageDoor;
+
+    @BeforeEach
+    void init() {
+        repository = new InMemorySecurityRepository();
+        service = new ZonedSecurityService(repository);
+        frontDoor = new Sensor("Front door", SensorType.DOOR);
+        hallMotion = new Sensor("Hall", SensorType.MOTION);
+        garageDoor = new Sensor("Garage door", SensorType.DOOR, Zone.GARAGE);
+        service.addSensor(frontDoor);
+        service.addSensor(hallMotion);
+        service.addSensor(garageDoor);
+    }
+
+    @Test
+    public void sensorsDefaultToZoneForTheirType() {
+        assertEquals(Zone.PERIMETER, frontDoor.getZone());
+        assertEquals(Zone.INTERIOR, hallMotion.getZone());
+        assertEquals(Zone.GARAGE, garageDoor.getZone());
+    }
+
+    @Test
+    public void partialArming_onlyArmedZoneRaisesAlarm() {
+        service.setZoneArmingStatus(Zone.PERIMETER, ArmingStatus.ARMED_HOME);
+
+        service.changeSensorActivationStatus(hallMotion, true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+
+        service.changeSensorActivationStatus(frontDoor, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getZoneAlarmStatus(Zone.PERIMETER));
+        assertEquals(AlarmStatus.NO_ALARM, service.getZoneAlarmStatus(Zone.INTERIOR));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+    }
+
+    @Test
+    public void armingZone_resetsOnlyThatZonesSensors() {
+        service.changeSensorActivationStatus(frontDoor, true);
+        service.changeSensorActivationStatus(hallMotion, true);
+
+        service.setZoneArmingStatus(Zone.INTERIOR, ArmingStatus.ARMED_AWAY);
+
+        assertFalse(hallMotion.getActive());
+        assertTrue(frontDoor.getActive());
+        assertEquals(1, service.getActiveSensorCount(Zone.PERIMETER));
+        assertEquals(0, service.getActiveSensorCount(Zone.INTERIOR));
+    }
+
+    @Test
+    public void houseStatusIsMostSevereZone() {
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(frontDoor, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+
+        service.setZoneArmingStatus(Zone.GARAGE, ArmingStatus.DISARMED);
+
+        assertEquals(AlarmStatus.NO_ALARM, service.getZoneAlarmStatus(Zone.GARAGE));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus());
+
+        service.setArmingStatus(ArmingStatus.DISARMED);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+    }
+
+    @Test
+    public void catOnlyAlarmsTheZoneItIsIn() {
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        service.catDetected(Zone.GARAGE, true);
+
+        assertEquals(AlarmStatus.ALARM, service.getZoneAlarmStatus(Zone.GARAGE));
+        assertEquals(AlarmStatus.NO_ALARM, service.getZoneAlarmStatus(Zone.INTERIOR));
+        service.catDetected(Zone.GARAGE, false);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void zoneStateSurvivesRestart() {
+        service.setZoneArmingStatus(Zone.PERIMETER, ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(frontDoor, true);
+
+        ZonedSecurityService restarted = new ZonedSecurityService(repository);
+
+        assertEquals(ArmingStatus.ARMED_AWAY, restarted.getZoneArmingStatus(Zone.PERIMETER));
+        assertEquals(ArmingStatus.DISARMED, restarted.getZoneArmingStatus(Zone.INTERIOR));
+        assertEquals(AlarmStatus.PENDING_ALARM, restarted.getAlarmStatus());
+        assertEquals(1, restarted.getActiveSensorCount(Zone.PERIMETER));
+    }
+
+    @Test
+    public void houseStatusSavedBeforeZones_seedsEveryZone() {
+        InMemorySecurityRepository legacy = new InMemorySecurityRepository();
+        legacy.setAlarmStatus(AlarmStatus.ALARM);
+        legacy.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        ZonedSecurityService upgraded = new ZonedSecurityService(legacy);
+
+        assertEquals(AlarmStatus.ALARM, upgraded.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, upgraded.getArmingStatus());
+        for (Zone zone : Zone.values()) {
+            assertEquals(AlarmStatus.ALARM, upgraded.getZoneAlarmStatus(zone));
+            assertEquals(ArmingStatus.ARMED_HOME, upgraded.getZoneArmingStatus(zone));
+        }
+        assertTrue(legacy.hasZoneStatuses());
+    }
+
+    @Test
+    public void concurrentZones_houseStatusMatchesZones() throws Exception {
+        List<Sensor> sensors = new ArrayList<>();
+        for (Zone zone : Zone.values()) {
+            for (int i = 0; i < 50; i++) {
+                Sensor sensor = new Sensor(zone + " " + i, SensorType.WINDOW, zone);
+                service.addSensor(sensor);
+                sensors.add(sensor);
+            }
+        }
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        ExecutorService pool = Executors.newFixedThreadPool(Zone.values().length);
+        List<Future<?>> work = new ArrayList<>();
+        for (Zone zone : Zone.values()) {
+            work.add(pool.submit(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (Sensor sensor : sensors) {
+                        if (sensor.getZone() == zone) {
+                            service.changeSensorActivationStatus(sensor, round % 2 == 0);
+                        }
+                    }
+                    if (round % 50 == 49) {
+                        service.setZoneArmingStatus(zone, ArmingStatus.ARMED_HOME);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : work) {
+            future.get();
+        }
+        pool.shutdown();
+
+        AlarmStatus mostSevere = AlarmStatus.NO_ALARM;
+        for (Zone zone : Zone.values()) {
+            AlarmStatus zoneStatus = service.getZoneAlarmStatus(zone);
+            assertEquals(zoneStatus, repository.getZoneAlarmStatus(zone));
+            mostSevere = zoneStatus.ordinal() > mostSevere.ordinal() ? zoneStatus : mostSevere;
+        }
+        assertEquals(mostSevere, service.getAlarmStatus());
+        assertEquals(mostSevere, repository.getAlarmStatus());
+    }
+
+    @Test
+    public void concurrentZones_listenersHearTheHouseStatusLast() throws Exception {
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.changeSensorActivationStatus(frontDoor, true);
+        service.catDetected(Zone.GARAGE, true);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<AlarmStatus> lastHeard = new AtomicReference<>();
+        service.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                if (status == AlarmStatus.PENDING_ALARM) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                lastHeard.set(status);
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+
+        //the garage steps the house down to pending, and its listener is held up; the perimeter
+        //then steps it down to no alarm
+        Thread garage = new Thread(() -> service.catDetected(Zone.GARAGE, false));
+        garage.start();
+        while (service.getAlarmStatus() != AlarmStatus.PENDING_ALARM) {
+            Thread.onSpinWait();
+        }
+        Thread perimeter = new Thread(() -> service.changeSensorActivationStatus(frontDoor, false));
+        perimeter.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (perimeter.getState() != Thread.State.BLOCKED && perimeter.getState() != Thread.State.TERMINATED
+                && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        garage.join();
+        perimeter.join();
+
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(AlarmStatus.NO_ALARM, lastHeard.get());
+    }
+}